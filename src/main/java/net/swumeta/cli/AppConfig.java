@@ -29,6 +29,8 @@ public record AppConfig(
         File output,
         File cache,
         int metagameMonths,
-        LocalDate metagameLimit
+        LocalDate metagameLimit,
+        int timelineMonths,
+        double maxRequestsPerSecond
 ) {
 }
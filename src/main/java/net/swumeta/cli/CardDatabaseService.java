@@ -20,44 +20,82 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PreDestroy;
 import net.swumeta.cli.model.Card;
-import org.eclipse.collections.api.multimap.MutableMultimap;
-import org.eclipse.collections.impl.factory.Multimaps;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.map.ImmutableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
+import org.springframework.util.DigestUtils;
 import org.springframework.util.FileSystemUtils;
 import org.springframework.util.StringUtils;
+import org.springframework.util.function.SingletonSupplier;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class CardDatabaseService {
+    private static final int THUMBNAIL_WIDTH = 120;
+    private static final int THUMBNAIL_HEIGHT = 40;
+    private static final int[] THUMBNAIL_DENSITIES = {1, 2, 3};
+    private static final float THUMBNAIL_JPEG_QUALITY = 0.82f;
+    private static final int IMAGE_CACHE_VERSION = 1;
     private final Logger logger = LoggerFactory.getLogger(CardDatabaseService.class);
     private final AppConfig config;
     private final ObjectMapper objectMapper;
-    private final MutableMultimap<String, File> cardsByName = Multimaps.mutable.set.of();
+    private final ConcurrentMap<String, Set<File>> cardsByName = new ConcurrentHashMap<>(512);
+    private final ConcurrentMap<File, String> namesByFile = new ConcurrentHashMap<>(512);
+    private volatile boolean indexed;
+    private final AtomicLong indexVersion = new AtomicLong();
     private final LoadingCache<Card.Id, Card> cardByIdCache;
+    private final ExecutorService imageExecutor;
 
     CardDatabaseService(AppConfig config) {
         this.config = config;
         this.objectMapper = new ObjectMapper(new YAMLFactory());
         this.objectMapper.findAndRegisterModules();
         cardByIdCache = Caffeine.newBuilder().weakKeys().weakValues().build(this::loadById);
+        final var threadFactory = new CustomizableThreadFactory("swumeta-images-");
+        threadFactory.setDaemon(true);
+        imageExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), threadFactory);
     }
 
     public Card findById(Card.Id id) {
@@ -75,55 +113,277 @@ public class CardDatabaseService {
     }
 
     public URI toIcon(Card.Id id) {
+        return join(toIconAsync(id), "Failed to create card icon: " + id);
+    }
+
+    public CompletableFuture<URI> toIconAsync(Card.Id id) {
         final var imagesDir = new File(config.output(), "images");
         final var iconsDir = new File(imagesDir, "icons");
         if (!iconsDir.exists()) {
             iconsDir.mkdirs();
         }
         final var iconFile = new File(iconsDir, id.toString() + ".png");
-        if (!iconFile.exists()) {
+        final var iconUri = UriComponentsBuilder.fromUri(config.base()).pathSegment("images", "icons", iconFile.getName()).build().toUri();
+        if (iconFile.exists()) {
+            return CompletableFuture.completedFuture(iconUri);
+        }
+        return CompletableFuture.supplyAsync(() -> {
             final var card = findById(id);
             if (card.art() == null) {
                 throw new AppException("Card art is not available: " + id);
             }
+            final var icon = renderArt(id, "icon", SingletonSupplier.of(() -> loadArt(id, card.art())), card.art(), art -> {
+                final var img = new BufferedImage(128, 128, BufferedImage.TYPE_INT_ARGB);
+                drawScaled(art, img, 70, 40, img.getWidth(), img.getHeight());
+                return PngEncoder.encode(img);
+            });
+            logger.debug("Saving icon art for card {} to file: {}", id, iconFile);
+            writeAtomically(icon, iconFile);
+            return iconUri;
+        }, imageExecutor);
+    }
+
+    /**
+     * Create icons on the image worker pool: cards without an icon are left out of the result.
+     */
+    public ImmutableMap<Card.Id, URI> toIcons(Iterable<Card.Id> ids) {
+        final var futures = Maps.mutable.<Card.Id, CompletableFuture<URI>>empty();
+        for (final var id : ids) {
+            futures.put(id, toIconAsync(id));
+        }
+        return joinAll(futures, "Failed to create card icon: {}");
+    }
+
+    public record Thumbnail(
+            URI src,
+            @Nullable String srcset,
+            int width,
+            int height
+    ) {
+        /**
+         * Get a thumbnail served from the card CDN, displayed with the same size as generated thumbnails.
+         */
+        public static Thumbnail remote(URI src) {
+            return new Thumbnail(src, null, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+        }
+    }
 
-            final BufferedImage art;
+    public CompletableFuture<Thumbnail> toThumbnailAsync(Card.Id id) {
+        return CompletableFuture.supplyAsync(() -> toThumbnail(id), imageExecutor);
+    }
+
+    /**
+     * Create thumbnails on the image worker pool: cards without a thumbnail are left out of the result.
+     */
+    public ImmutableMap<Card.Id, Thumbnail> toThumbnails(Iterable<Card.Id> ids) {
+        final var futures = Maps.mutable.<Card.Id, CompletableFuture<Thumbnail>>empty();
+        for (final var id : ids) {
+            futures.put(id, toThumbnailAsync(id));
+        }
+        return joinAll(futures, "Failed to create card thumbnail: {}");
+    }
+
+    private <T> ImmutableMap<Card.Id, T> joinAll(Map<Card.Id, CompletableFuture<T>> futures, String errorMessage) {
+        final var results = Maps.mutable.<Card.Id, T>ofInitialCapacity(futures.size());
+        futures.forEach((id, future) -> {
             try {
-                logger.debug("Loading art for card {}: {}", id, card.art());
-                art = ImageIO.read(card.art().toURL());
-            } catch (IOException e) {
-                throw new AppException("Failed to load card art: " + id, e);
+                results.put(id, future.join());
+            } catch (CompletionException e) {
+                logger.warn(errorMessage, id, e.getCause());
             }
+        });
+        return results.toImmutable();
+    }
+
+    private static <T> T join(CompletableFuture<T> future, String errorMessage) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof AppException appException) {
+                throw appException;
+            }
+            throw new AppException(errorMessage, e.getCause());
+        }
+    }
+
+    public Thumbnail toThumbnail(Card.Id id) {
+        final var thumbnailsDir = new File(new File(config.output(), "images"), "thumbnails");
+        if (!thumbnailsDir.exists()) {
+            thumbnailsDir.mkdirs();
+        }
+
+        // Each density is checked: a derivative which failed to be written is generated again.
+        Card card = null;
+        Supplier<BufferedImage> art = null;
+        for (final var density : THUMBNAIL_DENSITIES) {
+            final var thumbnailFile = toThumbnailFile(thumbnailsDir, id, density);
+            if (thumbnailFile.exists()) {
+                continue;
+            }
+            if (card == null) {
+                card = findById(id);
+                if (card.thumbnail() == null) {
+                    throw new AppException("Card thumbnail is not available: " + id);
+                }
+                // Card art is downloaded at most once, and only if a derivative is not cached.
+                final var thumbnailUri = card.thumbnail();
+                art = SingletonSupplier.of(() -> loadArt(id, thumbnailUri));
+            }
+            if (density != THUMBNAIL_DENSITIES[0] && THUMBNAIL_WIDTH * density > getArtWidth(id, card.thumbnail(), art)) {
+                // No need to upscale the source art: browsers would not get more details.
+                break;
+            }
+            final var thumbnail = renderArt(id, "thumbnail-%dx".formatted(density), art, card.thumbnail(), img -> {
+                final var scaled = new BufferedImage(THUMBNAIL_WIDTH * density, THUMBNAIL_HEIGHT * density, BufferedImage.TYPE_INT_RGB);
+                drawScaled(img, scaled, 0, 0, img.getWidth(), img.getHeight());
+                return encodeJpeg(scaled);
+            });
+            logger.debug("Saving thumbnail for card {} to file: {}", id, thumbnailFile);
+            writeAtomically(thumbnail, thumbnailFile);
+        }
+
+        URI src = null;
+        final var srcset = new StringBuilder(128);
+        for (final var density : THUMBNAIL_DENSITIES) {
+            final var thumbnailFile = toThumbnailFile(thumbnailsDir, id, density);
+            if (!thumbnailFile.exists()) {
+                continue;
+            }
+            final var uri = UriComponentsBuilder.fromUri(config.base())
+                    .pathSegment("images", "thumbnails", thumbnailFile.getName()).build().toUri();
+            if (src == null) {
+                src = uri;
+            }
+            if (!srcset.isEmpty()) {
+                srcset.append(", ");
+            }
+            srcset.append(uri.toASCIIString()).append(' ').append(THUMBNAIL_WIDTH * density).append('w');
+        }
+        return new Thumbnail(src, srcset.toString(), THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+    }
 
-            final var icon = new BufferedImage(128, 128, BufferedImage.TYPE_INT_ARGB);
-            final var g = icon.createGraphics();
+    /**
+     * Get the width of a card art: this width is cached, so that art is only downloaded to render a missing image.
+     */
+    private int getArtWidth(Card.Id id, URI artUri, Supplier<BufferedImage> art) {
+        final var cacheFile = toImageCacheFile(artUri, "width");
+        if (cacheFile.exists()) {
             try {
-                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
-                        RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-                g.setRenderingHint(RenderingHints.KEY_RENDERING,
-                        RenderingHints.VALUE_RENDER_QUALITY);
-                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                        RenderingHints.VALUE_ANTIALIAS_ON);
-                g.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION,
-                        RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
-                g.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING,
-                        RenderingHints.VALUE_COLOR_RENDER_QUALITY);
-                g.setRenderingHint(RenderingHints.KEY_DITHERING,
-                        RenderingHints.VALUE_DITHER_ENABLE);
-                g.drawImage(art, 0, 0, icon.getWidth(), icon.getHeight(),
-                        70, 40, icon.getWidth(), icon.getHeight(), null);
-            } finally {
-                g.dispose();
+                return Integer.parseInt(Files.readString(cacheFile.toPath(), StandardCharsets.UTF_8).trim());
+            } catch (IOException | NumberFormatException e) {
+                logger.debug("Unable to read cached art width: {}", cacheFile, e);
             }
+        }
+        final int width = art.get().getWidth();
+        logger.trace("Caching art width for card {}: {}", id, width);
+        writeAtomically(String.valueOf(width).getBytes(StandardCharsets.UTF_8), cacheFile);
+        return width;
+    }
 
+    private byte[] renderArt(Card.Id id, String variant, Supplier<BufferedImage> art, URI artUri,
+                             Function<BufferedImage, byte[]> renderer) {
+        final var cacheFile = toImageCacheFile(artUri, variant);
+        // An empty file is not a valid image: it is rendered again.
+        if (cacheFile.length() != 0) {
             try {
-                logger.debug("Saving icon art for card {} to file: {}", id, iconFile);
-                ImageIO.write(icon, "PNG", iconFile);
+                logger.trace("Loading {} for card {} from cache: {}", variant, id, cacheFile);
+                return Files.readAllBytes(cacheFile.toPath());
             } catch (IOException e) {
-                throw new AppException("Failed to write card icon " + id + " to file: " + iconFile, e);
+                logger.debug("Unable to read cached image: {}", cacheFile, e);
             }
         }
-        return UriComponentsBuilder.fromUri(config.base()).pathSegment("images", "icons", iconFile.getName()).build().toUri();
+        final var rendered = renderer.apply(art.get());
+        writeAtomically(rendered, cacheFile);
+        return rendered;
+    }
+
+    private File toImageCacheFile(URI artUri, String variant) {
+        // Art URIs from the card database embed a content hash: a new art always comes with a new URI,
+        // which makes this URI a good cache key for rendered images.
+        final var key = DigestUtils.md5DigestAsHex("%s#%s#%d".formatted(artUri, variant, IMAGE_CACHE_VERSION)
+                .getBytes(StandardCharsets.UTF_8));
+        return new File(new File(new File(config.cache(), "images"), key.substring(0, 2)), key);
+    }
+
+    private static File toThumbnailFile(File thumbnailsDir, Card.Id id, int density) {
+        return new File(thumbnailsDir, "%s-%dx.jpg".formatted(id, density));
+    }
+
+    private BufferedImage loadArt(Card.Id id, URI uri) {
+        try {
+            logger.debug("Loading art for card {}: {}", id, uri);
+            final var art = ImageIO.read(uri.toURL());
+            if (art == null) {
+                throw new AppException("Unsupported card art format: " + id);
+            }
+            return art;
+        } catch (IOException e) {
+            throw new AppException("Failed to load card art: " + id, e);
+        }
+    }
+
+    private static void drawScaled(BufferedImage src, BufferedImage dst, int sx1, int sy1, int sx2, int sy2) {
+        final var g = dst.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING,
+                    RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION,
+                    RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING,
+                    RenderingHints.VALUE_COLOR_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_DITHERING,
+                    RenderingHints.VALUE_DITHER_ENABLE);
+            g.drawImage(src, 0, 0, dst.getWidth(), dst.getHeight(),
+                    sx1, sy1, sx2, sy2, null);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image) {
+        final var writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        final var out = new ByteArrayOutputStream(8192);
+        try (final var imageOut = ImageIO.createImageOutputStream(out)) {
+            final var params = writer.getDefaultWriteParam();
+            params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            params.setCompressionQuality(THUMBNAIL_JPEG_QUALITY);
+            params.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(image, null, null), params);
+        } catch (IOException e) {
+            throw new AppException("Failed to encode JPEG image", e);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeAtomically(byte[] data, File file) {
+        final var dir = file.getParentFile();
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        try {
+            // Not using Files.createTempFile() which would restrict file permissions.
+            final var tempFile = new File(dir, "%s.%s.tmp".formatted(file.getName(), UUID.randomUUID())).toPath();
+            try {
+                Files.write(tempFile, data);
+                Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new AppException("Failed to write file: " + file, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        imageExecutor.shutdownNow();
     }
 
     private Card loadById(Card.Id id) {
@@ -169,6 +429,27 @@ public class CardDatabaseService {
         return cards;
     }
 
+    public List<Card> findAll() {
+        initIndex();
+        final var cards = new ArrayList<Card>(namesByFile.size());
+        for (final var cardFile : namesByFile.keySet()) {
+            try {
+                cards.add(readCardFile(cardFile));
+            } catch (IOException e) {
+                throw new AppException("Failed to read card file: " + cardFile, e);
+            }
+        }
+        return cards;
+    }
+
+    /**
+     * Get a number which is updated every time the card database is modified.
+     */
+    public long getVersion() {
+        initIndex();
+        return indexVersion.get();
+    }
+
     private Card readCardFile(File cardFile) throws IOException {
         try (final InputStream in = new FileInputStream(cardFile)) {
             logger.trace("Reading card file: {}", cardFile);
@@ -177,21 +458,103 @@ public class CardDatabaseService {
     }
 
     private void initIndex() {
-        if (!cardsByName.isEmpty()) {
+        if (indexed) {
             return;
         }
+        synchronized (cardsByName) {
+            if (indexed) {
+                return;
+            }
 
-        logger.debug("Initializing card database index");
-        final var cardFiles = new ArrayList<File>(256);
-        listFilesRecursively(getCardsDir(), cardFiles);
-        for (final var cardFile : cardFiles) {
-            final Card card;
-            try {
-                card = readCardFile(cardFile);
-            } catch (IOException e) {
-                throw new AppException("Failed to read card from file: " + cardFile, e);
+            logger.debug("Initializing card database index");
+            final var cardFiles = new ArrayList<File>(256);
+            listFilesRecursively(getCardsDir(), cardFiles);
+            for (final var cardFile : cardFiles) {
+                final Card card;
+                try {
+                    card = readCardFile(cardFile);
+                } catch (IOException e) {
+                    throw new AppException("Failed to read card from file: " + cardFile, e);
+                }
+                indexCard(card, cardFile);
             }
-            cardsByName.put(card.name(), cardFile);
+            indexed = true;
+        }
+    }
+
+    private void indexCard(Card card, File cardFile) {
+        final var previousName = namesByFile.put(cardFile, card.name());
+        if (previousName != null && !previousName.equals(card.name())) {
+            unindexCard(previousName, cardFile);
+        }
+        cardsByName.computeIfAbsent(card.name(), k -> ConcurrentHashMap.newKeySet()).add(cardFile);
+        indexVersion.incrementAndGet();
+    }
+
+    private void unindexCard(String name, File cardFile) {
+        cardsByName.computeIfPresent(name, (k, files) -> {
+            files.remove(cardFile);
+            return files.isEmpty() ? null : files;
+        });
+        indexVersion.incrementAndGet();
+    }
+
+    /**
+     * Update the index after a card file has been created or modified outside of this service.
+     */
+    void onCardFileChanged(File cardFile) {
+        invalidateCardFile(cardFile);
+        if (!indexed) {
+            // The index will be built from scratch on first use.
+            return;
+        }
+        final Card card;
+        try {
+            card = readCardFile(cardFile);
+        } catch (IOException e) {
+            // The file may still be written: a new notification will follow.
+            logger.debug("Unable to read updated card file: {}", cardFile, e);
+            return;
+        }
+        logger.debug("Updating card database index: {}", cardFile);
+        indexCard(card, cardFile);
+    }
+
+    /**
+     * Update the index after a card file has been deleted outside of this service.
+     */
+    void onCardFileDeleted(File cardFile) {
+        invalidateCardFile(cardFile);
+        final var name = namesByFile.remove(cardFile);
+        if (name != null) {
+            logger.debug("Removing card from database index: {}", cardFile);
+            unindexCard(name, cardFile);
+        }
+    }
+
+    /**
+     * Drop the index: it will be rebuilt on next use.
+     */
+    void reindex() {
+        synchronized (cardsByName) {
+            logger.debug("Resetting card database index");
+            indexed = false;
+            cardsByName.clear();
+            namesByFile.clear();
+            cardByIdCache.invalidateAll();
+            indexVersion.incrementAndGet();
+        }
+    }
+
+    private void invalidateCardFile(File cardFile) {
+        final var fileName = cardFile.getName();
+        if (!fileName.endsWith(".yaml")) {
+            return;
+        }
+        try {
+            cardByIdCache.invalidate(Card.Id.valueOf(fileName.substring(0, fileName.length() - ".yaml".length())));
+        } catch (RuntimeException ignore) {
+            // Not a card file.
         }
     }
 
@@ -227,7 +590,103 @@ public class CardDatabaseService {
         } catch (IOException e) {
             throw new AppException("Failed to save card: " + card.id(), e);
         }
-        cardsByName.put(card.name(), cardFile);
+        cardByIdCache.invalidate(card.id());
+        indexCard(card, cardFile);
+    }
+
+    public record SyncResult(int added, int updated, int removed, int unchanged) {
+    }
+
+    /**
+     * Replace the card database with a new catalog: only added or updated card files are written,
+     * and card files which are not part of the catalog are deleted.
+     */
+    public SyncResult sync(Collection<Card> cards) {
+        Assert.notNull(cards, "Cards must not be null");
+        if (cards.isEmpty()) {
+            throw new AppException("Refusing to replace card database with an empty catalog");
+        }
+        initIndex();
+
+        final var cardsDir = getCardsDir();
+        final var existingFiles = new ArrayList<File>(512);
+        listFilesRecursively(cardsDir, existingFiles);
+        final var removedFiles = new HashSet<>(existingFiles);
+        final var seenFiles = new HashSet<File>(cards.size());
+
+        final var writer = objectMapper.writerFor(Card.class).withDefaultPrettyPrinter();
+        final var changes = new LinkedHashMap<File, byte[]>();
+        final var changedCards = new HashMap<File, Card>();
+        int added = 0;
+        int unchanged = 0;
+        for (final var card : cards) {
+            final var cardFile = new File(new File(cardsDir, card.set().name()), card.id() + ".yaml");
+            if (!seenFiles.add(cardFile)) {
+                logger.debug("Ignoring duplicate card: {}", card.id());
+                continue;
+            }
+            final byte[] content;
+            try {
+                content = writer.writeValueAsBytes(card);
+            } catch (IOException e) {
+                throw new AppException("Failed to serialize card: " + card.id(), e);
+            }
+            if (!removedFiles.remove(cardFile)) {
+                added += 1;
+            } else if (Arrays.equals(content, readFile(cardFile))) {
+                unchanged += 1;
+                continue;
+            }
+            changes.put(cardFile, content);
+            changedCards.put(cardFile, card);
+        }
+        final var updated = changes.size() - added;
+
+        // Stage every file first, so that the database is left untouched if anything goes wrong.
+        final var stagedFiles = new LinkedHashMap<File, Path>(changes.size());
+        try {
+            for (final var e : changes.entrySet()) {
+                final var cardFile = e.getKey();
+                cardFile.getParentFile().mkdirs();
+                final var tempFile = new File(cardFile.getParentFile(), "%s.%s.tmp".formatted(cardFile.getName(), UUID.randomUUID())).toPath();
+                stagedFiles.put(cardFile, tempFile);
+                Files.write(tempFile, e.getValue());
+            }
+            for (final var e : stagedFiles.entrySet()) {
+                logger.debug("Saving card: {}", e.getKey());
+                Files.move(e.getValue(), e.getKey().toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            throw new AppException("Failed to save cards", e);
+        } finally {
+            for (final var tempFile : stagedFiles.values()) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignore) {
+                }
+            }
+        }
+        changedCards.forEach((cardFile, card) -> {
+            cardByIdCache.invalidate(card.id());
+            indexCard(card, cardFile);
+        });
+
+        for (final var cardFile : removedFiles) {
+            logger.debug("Deleting card: {}", cardFile);
+            if (!cardFile.delete() && cardFile.exists()) {
+                throw new AppException("Failed to delete card file: " + cardFile);
+            }
+            onCardFileDeleted(cardFile);
+        }
+        return new SyncResult(added, updated, removedFiles.size(), unchanged);
+    }
+
+    private static byte[] readFile(File file) {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            return null;
+        }
     }
 
     private static String trimToNull(String s) {
@@ -240,7 +699,7 @@ public class CardDatabaseService {
     }
 
     public void clear() {
-        cardsByName.clear();
+        reindex();
         final var cardsDir = getCardsDir();
         if (cardsDir.exists()) {
             logger.debug("Clearing cards database");
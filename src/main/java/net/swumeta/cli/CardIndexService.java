@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli;
+
+import net.swumeta.cli.model.Card;
+import net.swumeta.cli.model.Set;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Index card attributes as bitsets over a dense card numbering, in order to evaluate
+ * card filters with bitwise operations.
+ * <p>
+ * Queries are made of clauses such as <code>type=unit</code>, <code>aspect!=villainy</code>
+ * or <code>cost&lt;=3</code>, combined with <code>AND</code>, <code>OR</code>, <code>NOT</code>
+ * and parentheses. Supported attributes: <code>type</code>, <code>aspect</code>,
+ * <code>set</code>, <code>rarity</code>, <code>arena</code> and <code>cost</code>.
+ */
+@Service
+public class CardIndexService {
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("\\s*(\\(|\\)|<=|>=|!=|=|<|>|[^\\s()<>=!]+)");
+    private final Logger logger = LoggerFactory.getLogger(CardIndexService.class);
+    private final CardDatabaseService cardDatabaseService;
+    private volatile Index index;
+
+    CardIndexService(CardDatabaseService cardDatabaseService) {
+        this.cardDatabaseService = cardDatabaseService;
+    }
+
+    /**
+     * Set of cards, testing card membership with a single bit lookup.
+     */
+    public static final class Mask implements Predicate<Card.Id> {
+        private final BitSet bits;
+        private final int setCapacity;
+
+        private Mask(BitSet bits, int setCapacity) {
+            this.bits = bits;
+            this.setCapacity = setCapacity;
+        }
+
+        public boolean contains(Card.Id id) {
+            final int i = ordinal(id, setCapacity);
+            return i != -1 && bits.get(i);
+        }
+
+        @Override
+        public boolean test(Card.Id id) {
+            return contains(id);
+        }
+
+        public int size() {
+            return bits.cardinality();
+        }
+
+        public ImmutableList<Card.Id> toList() {
+            final var sets = Set.values();
+            final var ids = Lists.mutable.<Card.Id>ofInitialCapacity(bits.cardinality());
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                ids.add(Card.Id.valueOf("%s-%03d".formatted(sets[i / setCapacity].name(), i % setCapacity)));
+            }
+            return ids.toImmutable();
+        }
+    }
+
+    public Mask query(String query) {
+        Assert.hasText(query, "Query must not be empty");
+        final var idx = getIndex();
+        final var parser = new QueryParser(tokenize(query), idx);
+        final var bits = parser.parseExpression();
+        if (parser.hasNext()) {
+            throw new AppException("Unexpected token in card query: " + parser.next());
+        }
+        logger.trace("Cards matching query '{}': {}", query, bits.cardinality());
+        return new Mask(bits, idx.setCapacity);
+    }
+
+    /**
+     * Evaluate a card filter once for every card in the database.
+     */
+    public Mask filter(Predicate<Card> filter) {
+        Assert.notNull(filter, "Filter must not be null");
+        final var idx = getIndex();
+        final var bits = new BitSet(idx.all.length());
+        for (final var card : idx.cards) {
+            if (filter.test(card)) {
+                bits.set(ordinal(card.id(), idx.setCapacity));
+            }
+        }
+        return new Mask(bits, idx.setCapacity);
+    }
+
+    private static int ordinal(Card.Id id, int setCapacity) {
+        if (id.number() < 0 || id.number() >= setCapacity) {
+            return -1;
+        }
+        return id.set().ordinal() * setCapacity + id.number();
+    }
+
+    private Index getIndex() {
+        final var version = cardDatabaseService.getVersion();
+        var idx = index;
+        if (idx == null || idx.version != version) {
+            synchronized (this) {
+                idx = index;
+                if (idx == null || idx.version != version) {
+                    idx = buildIndex(version);
+                    index = idx;
+                }
+            }
+        }
+        return idx;
+    }
+
+    private Index buildIndex(long version) {
+        logger.debug("Building card attribute index");
+        final var cards = cardDatabaseService.findAll();
+        int maxNumber = 0;
+        int maxCost = 0;
+        for (final var card : cards) {
+            maxNumber = Math.max(maxNumber, card.number());
+            maxCost = Math.max(maxCost, card.cost());
+        }
+
+        final var idx = new Index(version, cards, maxNumber + 1, maxCost);
+        for (final var card : cards) {
+            final int i = ordinal(card.id(), idx.setCapacity);
+            idx.all.set(i);
+            idx.types.get(card.type()).set(i);
+            idx.sets.get(card.set()).set(i);
+            idx.rarities.get(card.rarity()).set(i);
+            if (card.arena() != null) {
+                idx.arenas.get(card.arena()).set(i);
+            }
+            for (final var aspect : card.aspects()) {
+                idx.aspects.get(aspect).set(i);
+            }
+            if (card.cost() >= 0) {
+                idx.costs[card.cost()].set(i);
+            }
+        }
+        return idx;
+    }
+
+    private static final class Index {
+        final long version;
+        final List<Card> cards;
+        final int setCapacity;
+        final BitSet all = new BitSet();
+        final Map<Card.Type, BitSet> types = newBitSets(Card.Type.class);
+        final Map<Card.Aspect, BitSet> aspects = newBitSets(Card.Aspect.class);
+        final Map<Set, BitSet> sets = newBitSets(Set.class);
+        final Map<Card.Rarity, BitSet> rarities = newBitSets(Card.Rarity.class);
+        final Map<Card.Arena, BitSet> arenas = newBitSets(Card.Arena.class);
+        final BitSet[] costs;
+
+        Index(long version, List<Card> cards, int setCapacity, int maxCost) {
+            this.version = version;
+            this.cards = cards;
+            this.setCapacity = setCapacity;
+            this.costs = new BitSet[maxCost + 1];
+            for (int i = 0; i < costs.length; i++) {
+                costs[i] = new BitSet();
+            }
+        }
+
+        private static <E extends Enum<E>> Map<E, BitSet> newBitSets(Class<E> type) {
+            final var bitSets = new EnumMap<E, BitSet>(type);
+            for (final var e : type.getEnumConstants()) {
+                bitSets.put(e, new BitSet());
+            }
+            return bitSets;
+        }
+    }
+
+    private static List<String> tokenize(String query) {
+        final var tokens = new ArrayList<String>();
+        final var matcher = TOKEN_PATTERN.matcher(query);
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            tokens.add(matcher.group(1));
+            end = matcher.end();
+        }
+        if (!query.substring(end).isBlank()) {
+            throw new AppException("Invalid card query: " + query);
+        }
+        return tokens;
+    }
+
+    private static final class QueryParser {
+        private final List<String> tokens;
+        private final Index index;
+        private int pos;
+
+        QueryParser(List<String> tokens, Index index) {
+            this.tokens = tokens;
+            this.index = index;
+        }
+
+        boolean hasNext() {
+            return pos < tokens.size();
+        }
+
+        String next() {
+            if (!hasNext()) {
+                throw new AppException("Unexpected end of card query");
+            }
+            return tokens.get(pos++);
+        }
+
+        private boolean accept(String keyword) {
+            if (hasNext() && tokens.get(pos).equalsIgnoreCase(keyword)) {
+                pos += 1;
+                return true;
+            }
+            return false;
+        }
+
+        BitSet parseExpression() {
+            final var bits = parseTerm();
+            while (accept("OR")) {
+                bits.or(parseTerm());
+            }
+            return bits;
+        }
+
+        private BitSet parseTerm() {
+            final var bits = parseFactor();
+            while (accept("AND")) {
+                bits.and(parseFactor());
+            }
+            return bits;
+        }
+
+        private BitSet parseFactor() {
+            if (accept("NOT")) {
+                final var bits = (BitSet) index.all.clone();
+                bits.andNot(parseFactor());
+                return bits;
+            }
+            if (accept("(")) {
+                final var bits = parseExpression();
+                if (!accept(")")) {
+                    throw new AppException("Missing closing parenthesis in card query");
+                }
+                return bits;
+            }
+            return parseClause();
+        }
+
+        private BitSet parseClause() {
+            final var attribute = next().toLowerCase(Locale.ROOT);
+            final var op = next();
+            final var value = next();
+            if ("cost".equals(attribute)) {
+                return parseCost(op, value);
+            }
+            final var attributeBits = switch (attribute) {
+                case "type" -> lookup(index.types, Card.Type.class, value);
+                case "aspect" -> lookup(index.aspects, Card.Aspect.class, value);
+                case "set" -> lookup(index.sets, Set.class, value);
+                case "rarity" -> lookup(index.rarities, Card.Rarity.class, value);
+                case "arena" -> lookup(index.arenas, Card.Arena.class, value);
+                default -> throw new AppException("Unsupported card attribute: " + attribute);
+            };
+            return switch (op) {
+                case "=" -> (BitSet) attributeBits.clone();
+                case "!=" -> {
+                    final var negated = (BitSet) index.all.clone();
+                    negated.andNot(attributeBits);
+                    yield negated;
+                }
+                default -> throw new AppException("Unsupported operator for card attribute " + attribute + ": " + op);
+            };
+        }
+
+        private BitSet parseCost(String op, String value) {
+            final int cost;
+            try {
+                cost = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new AppException("Invalid card cost: " + value);
+            }
+            final var bits = new BitSet();
+            for (int c = 0; c < index.costs.length; c++) {
+                final var match = switch (op) {
+                    case "=" -> c == cost;
+                    case "!=" -> c != cost;
+                    case "<" -> c < cost;
+                    case "<=" -> c <= cost;
+                    case ">" -> c > cost;
+                    case ">=" -> c >= cost;
+                    default -> throw new AppException("Unsupported operator for card cost: " + op);
+                };
+                if (match) {
+                    bits.or(index.costs[c]);
+                }
+            }
+            return bits;
+        }
+
+        private static <E extends Enum<E>> BitSet lookup(Map<E, BitSet> bitSets, Class<E> type, String value) {
+            try {
+                return bitSets.get(Enum.valueOf(type, value.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new AppException("Unsupported value for card " + type.getSimpleName().toLowerCase(Locale.ROOT) + ": " + value);
+            }
+        }
+    }
+}
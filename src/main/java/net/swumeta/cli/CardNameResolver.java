@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli;
+
+import net.swumeta.cli.model.Card;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.factory.primitive.IntLists;
+import org.eclipse.collections.api.factory.primitive.ObjectIntMaps;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Resolve card names which may not exactly match the card database,
+ * such as names with typos, curly apostrophes or accent variations.
+ * <p>
+ * Names are first normalized, then compared using trigrams:
+ * the confidence score of a match is the Dice coefficient of both trigram sets.
+ */
+@Service
+public class CardNameResolver {
+    private static final double MIN_CONFIDENCE = 0.6;
+    private static final Pattern DIACRITICS_PATTERN = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS_PATTERN = Pattern.compile("[^\\p{Alnum}]+");
+    private final Logger logger = LoggerFactory.getLogger(CardNameResolver.class);
+    private final CardDatabaseService cardDatabaseService;
+    private volatile Index index;
+
+    CardNameResolver(CardDatabaseService cardDatabaseService) {
+        this.cardDatabaseService = cardDatabaseService;
+    }
+
+    public record Match(Card.Id id, double confidence) {
+    }
+
+    /**
+     * Find the card which best matches a name and an optional title.
+     *
+     * @return <code>null</code> if no card is close enough
+     */
+    @Nullable
+    public Match resolve(String name, @Nullable String title) {
+        Assert.notNull(name, "Card name must not be null");
+        final var idx = getIndex();
+        final var normalizedTitle = title == null ? "" : normalize(title);
+        final var match = normalizedTitle.isEmpty()
+                ? idx.byName.find(normalize(name))
+                : idx.byFullName.find(normalize(name) + " " + normalizedTitle);
+        logger.trace("Resolved card name '{}' (title: {}): {}", name, title, match);
+        return match;
+    }
+
+    static String normalize(String s) {
+        final var decomposed = Normalizer.normalize(s, Normalizer.Form.NFKD);
+        final var withoutDiacritics = DIACRITICS_PATTERN.matcher(decomposed).replaceAll("");
+        // Apostrophes are removed, so that "Administrator's" and "Administrator’s" give the same key.
+        final var withoutApostrophes = withoutDiacritics.replace("'", "").replace("’", "").replace("‘", "");
+        return SEPARATORS_PATTERN.matcher(withoutApostrophes.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+    }
+
+    private Index getIndex() {
+        final var version = cardDatabaseService.getVersion();
+        var idx = index;
+        if (idx == null || idx.version != version) {
+            synchronized (this) {
+                idx = index;
+                if (idx == null || idx.version != version) {
+                    logger.debug("Building card name index");
+                    idx = new Index(version);
+                    for (final var card : cardDatabaseService.findAll()) {
+                        final var name = normalize(card.name());
+                        idx.byName.add(name, card.id());
+                        final var title = card.title() == null ? "" : normalize(card.title());
+                        idx.byFullName.add(title.isEmpty() ? name : name + " " + title, card.id());
+                    }
+                    index = idx;
+                }
+            }
+        }
+        return idx;
+    }
+
+    private static final class Index {
+        final long version;
+        final TrigramIndex byName = new TrigramIndex();
+        final TrigramIndex byFullName = new TrigramIndex();
+
+        Index(long version) {
+            this.version = version;
+        }
+    }
+
+    private static final class TrigramIndex {
+        private final MutableObjectIntMap<String> entriesByKey = ObjectIntMaps.mutable.empty();
+        private final MutableMap<String, MutableIntList> postings = Maps.mutable.empty();
+        private final List<Card.Id> ids = new ArrayList<>();
+        private final MutableIntList trigramCounts = IntLists.mutable.empty();
+
+        void add(String key, Card.Id id) {
+            final int existingEntry = entriesByKey.getIfAbsent(key, -1);
+            if (existingEntry != -1) {
+                // Keep a stable result when several cards share the same name.
+                if (id.compareTo(ids.get(existingEntry)) < 0) {
+                    ids.set(existingEntry, id);
+                }
+                return;
+            }
+            final int entry = ids.size();
+            entriesByKey.put(key, entry);
+            ids.add(id);
+            final var trigrams = trigrams(key);
+            trigramCounts.add(trigrams.size());
+            for (final var trigram : trigrams) {
+                postings.getIfAbsentPut(trigram, IntLists.mutable::empty).add(entry);
+            }
+        }
+
+        Match find(String key) {
+            final int exactEntry = entriesByKey.getIfAbsent(key, -1);
+            if (exactEntry != -1) {
+                return new Match(ids.get(exactEntry), 1);
+            }
+
+            final var trigrams = trigrams(key);
+            if (trigrams.isEmpty()) {
+                return null;
+            }
+            final var shared = new int[ids.size()];
+            for (final var trigram : trigrams) {
+                final var entries = postings.get(trigram);
+                if (entries != null) {
+                    entries.forEach(e -> shared[e] += 1);
+                }
+            }
+
+            int bestEntry = -1;
+            double bestScore = 0;
+            for (int e = 0; e < shared.length; e++) {
+                if (shared[e] == 0) {
+                    continue;
+                }
+                final double score = 2.0 * shared[e] / (trigrams.size() + trigramCounts.get(e));
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestEntry = e;
+                }
+            }
+            if (bestEntry == -1 || bestScore < MIN_CONFIDENCE) {
+                return null;
+            }
+            // An inexact match is never as good as an exact one.
+            return new Match(ids.get(bestEntry), Math.min(bestScore, 0.99));
+        }
+
+        private static Set<String> trigrams(String key) {
+            final var padded = "  " + key + " ";
+            final var trigrams = new HashSet<String>(padded.length());
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(padded.substring(i, i + 3));
+            }
+            return trigrams;
+        }
+    }
+}
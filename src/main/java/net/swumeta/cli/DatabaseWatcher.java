@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Watch the database directory in order to keep card and event indexes up-to-date,
+ * without rebuilding them when a file is updated during a long-running session.
+ * <p>
+ * The watcher is only started for long-running sessions (interactive shell, <code>serve</code>
+ * and <code>follow-event</code> commands), unless property <code>swu.watchDatabase</code> is set.
+ */
+@Component
+class DatabaseWatcher implements SmartLifecycle {
+    private static final Set<String> LONG_RUNNING_COMMANDS = Set.of("serve", "follow-event");
+    private final Logger logger = LoggerFactory.getLogger(DatabaseWatcher.class);
+    private final CardDatabaseService cardDatabaseService;
+    private final EventService eventService;
+    private final AppConfig config;
+    private final boolean autoStartup;
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    private volatile WatchService watchService;
+    private volatile Thread watcherThread;
+
+    @Autowired
+    DatabaseWatcher(CardDatabaseService cardDatabaseService, EventService eventService, AppConfig config,
+                    ApplicationArguments args, @Value("${swu.watchDatabase:#{null}}") Boolean watchDatabase) {
+        this.cardDatabaseService = cardDatabaseService;
+        this.eventService = eventService;
+        this.config = config;
+        this.autoStartup = watchDatabase != null ? watchDatabase : isLongRunningSession(args.getSourceArgs());
+    }
+
+    /**
+     * Create a watcher which is only started on demand.
+     */
+    DatabaseWatcher(CardDatabaseService cardDatabaseService, EventService eventService, AppConfig config) {
+        this.cardDatabaseService = cardDatabaseService;
+        this.eventService = eventService;
+        this.config = config;
+        this.autoStartup = false;
+    }
+
+    static boolean isLongRunningSession(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            final var arg = args[i];
+            if (arg.startsWith("-")) {
+                // An option without '=' takes the next argument as its value (such as "--swu.database path").
+                if (!arg.contains("=") && i + 1 < args.length && !args[i + 1].startsWith("-")) {
+                    i += 1;
+                }
+                continue;
+            }
+            // The first argument which is neither an option nor an option value is the command to run.
+            return LONG_RUNNING_COMMANDS.contains(arg);
+        }
+        // No command to run: this is an interactive shell session.
+        return true;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return autoStartup;
+    }
+
+    @Override
+    public void start() {
+        if (config.database() == null || !config.database().isDirectory()) {
+            logger.debug("Database directory not found: file changes will not be watched");
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            // The database directory itself is watched, so that cards and events directories
+            // are registered when they are created (or deleted and created again) later on.
+            register(config.database().toPath());
+            registerRecursively(getCardsDir());
+            registerRecursively(getEventsDir());
+        } catch (IOException e) {
+            logger.warn("Unable to watch database directory: {}", config.database(), e);
+            closeWatchService();
+            return;
+        }
+
+        watcherThread = new Thread(this::processEvents, "swumeta-database-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        logger.debug("Watching database directory for changes: {}", config.database());
+    }
+
+    @Override
+    public void stop() {
+        closeWatchService();
+        final var t = watcherThread;
+        watcherThread = null;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return watcherThread != null;
+    }
+
+    private void processEvents() {
+        final var ws = watchService;
+        while (ws != null) {
+            final WatchKey key;
+            try {
+                key = ws.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+            final var dir = watchedDirs.get(key);
+            if (dir != null) {
+                for (final var event : key.pollEvents()) {
+                    try {
+                        onEvent(dir, event);
+                    } catch (RuntimeException e) {
+                        logger.warn("Failed to process database change in directory: {}", dir, e);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                watchedDirs.remove(key);
+            }
+        }
+        logger.debug("Stopped watching database directory");
+    }
+
+    private void onEvent(Path dir, WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            logger.debug("Too many changes in database directory: rebuilding indexes");
+            cardDatabaseService.reindex();
+            eventService.reindex();
+            return;
+        }
+
+        final var path = dir.resolve((Path) event.context());
+        if (dir.equals(config.database().toPath()) && !isDataDirectory(path.toFile())) {
+            // Only cards and events directories are watched from the database directory.
+            return;
+        }
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+            try {
+                registerRecursively(path.toFile());
+            } catch (IOException e) {
+                logger.warn("Unable to watch directory: {}", path, e);
+            }
+            // Files may have been added before the directory was registered.
+            try (final Stream<Path> files = Files.walk(path)) {
+                files.filter(Files::isRegularFile).forEach(f -> onFileChanged(f.toFile()));
+            } catch (IOException e) {
+                logger.warn("Unable to list directory: {}", path, e);
+            }
+            return;
+        }
+        if (!path.getFileName().toString().endsWith(".yaml")) {
+            return;
+        }
+        if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+            onFileDeleted(path.toFile());
+        } else {
+            onFileChanged(path.toFile());
+        }
+    }
+
+    private void onFileChanged(File file) {
+        if (!file.getName().endsWith(".yaml")) {
+            return;
+        }
+        if (isInDirectory(file, getCardsDir())) {
+            cardDatabaseService.onCardFileChanged(file);
+        } else if (isInDirectory(file, getEventsDir())) {
+            eventService.onEventFileChanged(file);
+        }
+    }
+
+    private void onFileDeleted(File file) {
+        if (isInDirectory(file, getCardsDir())) {
+            cardDatabaseService.onCardFileDeleted(file);
+        } else if (isInDirectory(file, getEventsDir())) {
+            eventService.onEventFileDeleted(file);
+        }
+    }
+
+    private void registerRecursively(File root) throws IOException {
+        if (!root.isDirectory()) {
+            return;
+        }
+        try (final Stream<Path> dirs = Files.walk(root.toPath())) {
+            for (final var dir : dirs.filter(Files::isDirectory).toList()) {
+                register(dir);
+            }
+        }
+    }
+
+    private void register(Path dir) throws IOException {
+        logger.trace("Watching directory: {}", dir);
+        final var key = dir.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        watchedDirs.put(key, dir);
+    }
+
+    private boolean isDataDirectory(File file) {
+        return file.equals(getCardsDir()) || file.equals(getEventsDir());
+    }
+
+    private void closeWatchService() {
+        final var ws = watchService;
+        watchService = null;
+        watchedDirs.clear();
+        if (ws != null) {
+            try {
+                ws.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close watch service", e);
+            }
+        }
+    }
+
+    private static boolean isInDirectory(File file, File dir) {
+        return file.toPath().startsWith(dir.toPath());
+    }
+
+    private File getCardsDir() {
+        return new File(config.database(), "cards");
+    }
+
+    private File getEventsDir() {
+        return new File(config.database(), "events");
+    }
+}
@@ -32,6 +32,7 @@ import org.jsoup.Jsoup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import org.springframework.util.DigestUtils;
@@ -46,30 +47,38 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 @Service
 public class DeckService {
-    private static final int CURRENT_VERSION = 2;
+    private static final int CURRENT_VERSION = 3;
     private static final Pattern SCORE_PATTERN = Pattern.compile("(\\d+)-(\\d+)-(\\d+)");
     private static final Pattern SCORE_PATTERN2 = Pattern.compile("(\\d+)-(\\d+)");
+    private static final double CARD_NAME_REVIEW_CONFIDENCE = 0.85;
     private static final Map<Card.Id, String> CARD_NAME_ALIASES = Map.of(
             Card.Id.valueOf("SOR-022"), "ECL"
     );
     private final Logger logger = LoggerFactory.getLogger(DeckService.class);
     private final CardDatabaseService cardDatabaseService;
+    private final CardNameResolver cardNameResolver;
     private final RestClient client;
     private final AppConfig config;
     private final ObjectMapper objectMapper;
     private final ObjectMapper yamlObjectMapper;
     private final LoadingCache<URI, Deck> deckCache = Caffeine.newBuilder().weakKeys().weakValues().build(this::doLoad);
     private final LoadingCache<URI, DeckArchetype> deckArchetypeCache = Caffeine.newBuilder().weakKeys().weakValues().build(this::createArchetype);
+    private final List<Consumer<Collection<URI>>> deleteListeners = new CopyOnWriteArrayList<>();
 
-    DeckService(CardDatabaseService cardDatabaseService, RestClient client, AppConfig config) {
+    DeckService(CardDatabaseService cardDatabaseService, CardNameResolver cardNameResolver, RestClient client, AppConfig config) {
         this.cardDatabaseService = cardDatabaseService;
+        this.cardNameResolver = cardNameResolver;
         this.client = client;
         this.config = config;
         this.objectMapper = new ObjectMapper();
@@ -84,10 +93,12 @@ public class DeckService {
         if (decks == null) {
             return;
         }
+        final var deletedDecks = new HashSet<URI>();
         for (final var deckUri : decks) {
             if (deckUri == null) {
                 continue;
             }
+            deletedDecks.add(deckUri);
             final var deckFile = toCachedFile(deckUri);
             if (deckFile.exists()) {
                 deckFile.delete();
@@ -97,6 +108,69 @@ public class DeckService {
                 skipDeckFile.delete();
             }
         }
+        // Cache keys are compared by identity (weak keys): invalidating a key requires the same URI instance.
+        deckCache.asMap().keySet().removeIf(deletedDecks::contains);
+        deckArchetypeCache.asMap().keySet().removeIf(deletedDecks::contains);
+        if (!deletedDecks.isEmpty()) {
+            deleteListeners.forEach(listener -> listener.accept(deletedDecks));
+        }
+    }
+
+    /**
+     * Register a listener notified with deck URLs deleted from the cache,
+     * so that values computed from these decks can be invalidated.
+     */
+    void addDeleteListener(Consumer<Collection<URI>> listener) {
+        deleteListeners.add(listener);
+    }
+
+    /**
+     * Get a digest of the cached state of these decks: this digest changes when a deck is cached again,
+     * deleted from the cache or marked as skipped, and when the cache format changes.
+     */
+    public String getCacheDigest(Iterable<URI> decks) {
+        final var buf = new StringBuilder(1024).append(CURRENT_VERSION);
+        for (final var deckUri : decks) {
+            // Test decks are never cached: their source file is used instead.
+            final var deckFile = "testfile".equals(deckUri.getScheme())
+                    ? new File(UriComponentsBuilder.fromUri(deckUri).scheme("file").build().toUri())
+                    : toCachedFile(deckUri);
+            buf.append('\n').append(deckUri.toASCIIString())
+                    .append(' ').append(deckFile.lastModified())
+                    .append(' ').append(deckFile.length());
+            if (new File(deckFile + ".skip").exists()) {
+                buf.append(" skip");
+            }
+        }
+        return md5(buf.toString());
+    }
+
+    /**
+     * Get a deck from the cache, without fetching it.
+     *
+     * @return <code>null</code> if this deck is not cached
+     */
+    @Nullable
+    public Deck findCached(URI uri) {
+        Assert.notNull(uri, "Deck URI must not be null");
+        return readCachedDeck(uri, toCachedFile(uri));
+    }
+
+    @Nullable
+    private Deck readCachedDeck(URI uri, File deckFile) {
+        if (!deckFile.exists()) {
+            return null;
+        }
+        try {
+            final var versionedDeck = yamlObjectMapper.readValue(deckFile, VersionedDeck.class);
+            if (CURRENT_VERSION == versionedDeck.version) {
+                logger.debug("Loading deck from cache: {}", uri);
+                return yamlObjectMapper.readerFor(Deck.class).readValue(deckFile);
+            }
+        } catch (IOException e) {
+            logger.debug("Unable to read cached deck file: {}", deckFile, e);
+        }
+        return null;
     }
 
     private File toCachedFile(URI uri) {
@@ -117,18 +191,7 @@ public class DeckService {
             throw new AppException("Skipping melee.gg deck: " + uri);
         }
 
-        Deck deck = null;
-        if (deckFile.exists()) {
-            try {
-                final var versionedDeck = yamlObjectMapper.readValue(deckFile, VersionedDeck.class);
-                if (CURRENT_VERSION == versionedDeck.version) {
-                    logger.debug("Loading deck from cache: {}", uri);
-                    deck = yamlObjectMapper.readerFor(Deck.class).readValue(deckFile);
-                }
-            } catch (IOException e) {
-                logger.debug("Unable to read cached deck file: {}", deckFile, e);
-            }
-        }
+        Deck deck = readCachedDeck(uri, deckFile);
         if (deck != null) {
             return deck;
         }
@@ -377,19 +440,16 @@ public class DeckService {
                 final var quantity = Integer.parseInt(parts[0]);
                 final var cardTitle = parts[1];
                 final var cardSubtitle = parts.length > 2 ? parts[2] : null;
-                final var cards = cardDatabaseService.findByName(cardTitle, cardSubtitle);
-                if (cards.isEmpty()) {
-                    logger.debug("Unable to find card: {}", line);
-                } else {
-                    final var card = cards.iterator().next();
+                final var cardId = findCard(cardTitle, cardSubtitle, line);
+                if (cardId != null) {
                     if (inSectionLeaders) {
-                        leader = card.id();
+                        leader = cardId;
                     } else if (inSectionBase) {
-                        base = card.id();
+                        base = cardId;
                     } else if (inSectionDeck) {
-                        main.addOccurrences(card.id(), quantity);
+                        main.addOccurrences(cardId, quantity);
                     } else if (inSectionSideboard) {
-                        sideboard.addOccurrences(card.id(), quantity);
+                        sideboard.addOccurrences(cardId, quantity);
                     }
                 }
             }
@@ -438,6 +498,26 @@ public class DeckService {
         );
     }
 
+    private Card.Id findCard(String name, String title, String line) {
+        final var cards = cardDatabaseService.findByName(name, title);
+        if (!cards.isEmpty()) {
+            return cards.iterator().next().id();
+        }
+        final var match = cardNameResolver.resolve(name, title);
+        if (match == null) {
+            logger.debug("Unable to find card: {}", line);
+            return null;
+        }
+        if (match.confidence() < CARD_NAME_REVIEW_CONFIDENCE) {
+            // This card may be missing from the database (such as a card from a new set):
+            // the deck is left incomplete rather than cached with a wrong card.
+            logger.warn("Ignoring low-confidence card match for '{}': {} (confidence: {})", line, match.id(), "%.2f".formatted(match.confidence()));
+            return null;
+        }
+        logger.debug("Fuzzy card match for '{}': {} (confidence: {})", line, match.id(), "%.2f".formatted(match.confidence()));
+        return match.id();
+    }
+
     private Deck loadSwudbDeck(URI uri) {
         logger.info("Loading deck from swudb.com: {}", uri);
         final var deckId = UriComponentsBuilder.fromUri(uri).build().getPathSegments().getLast();
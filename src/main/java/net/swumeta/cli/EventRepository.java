@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import net.swumeta.cli.model.Event;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.map.ImmutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keep events from the database in memory.
+ * <p>
+ * Event files are parsed in parallel the first time they are needed, then they
+ * are parsed again only when their modification time or their size change.
+ * Event dates are also kept in a header index persisted in the cache directory,
+ * so that looking up events by date only parses files inside the date window.
+ */
+@Component
+class EventRepository {
+    private static final int HEADER_INDEX_VERSION = 1;
+    private final Logger logger = LoggerFactory.getLogger(EventRepository.class);
+    private final AppConfig config;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper jsonObjectMapper;
+    private final Map<File, Entry> entries = new ConcurrentHashMap<>(64);
+    private final Map<File, Header> headers = new ConcurrentHashMap<>(64);
+    private volatile Snapshot snapshot;
+    private boolean headersLoaded;
+    private volatile boolean headersChanged;
+
+    EventRepository(AppConfig config) {
+        this.config = config;
+        this.objectMapper = new ObjectMapper(new YAMLFactory());
+        objectMapper.findAndRegisterModules();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.jsonObjectMapper = new ObjectMapper();
+        jsonObjectMapper.registerModule(new JavaTimeModule());
+        jsonObjectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private record Entry(File file, long lastModified, long size, Event event) {
+    }
+
+    private record Header(long lastModified, long size, LocalDate date) {
+    }
+
+    private record HeaderIndex(int version, Map<String, Header> headers) {
+    }
+
+    private record Snapshot(
+            ImmutableList<Event> events,
+            ImmutableMap<URI, File> filesByMelee,
+            NavigableMap<LocalDate, List<Event>> eventsByDate
+    ) {
+    }
+
+    ImmutableList<Event> findAll() {
+        return refresh().events;
+    }
+
+    /**
+     * Find events between two dates (inclusive), sorted by date then by name.
+     * Unlike other lookup methods, only files which are known to be in this date window
+     * (or which have changed since they were last indexed) are parsed.
+     */
+    synchronized ImmutableList<Event> findByDate(LocalDate from, LocalDate to) {
+        final var current = snapshot;
+        final var eventFiles = listEventFiles();
+        if (current != null && isUpToDate(eventFiles)) {
+            final var events = Lists.mutable.<Event>empty();
+            current.eventsByDate.subMap(from, true, to, true).values().forEach(events::addAll);
+            // Events sharing a date are sorted the same way, whether the snapshot is up-to-date or not.
+            return events.sortThis(Comparator.naturalOrder()).toImmutable();
+        }
+
+        loadHeaders();
+        final var candidateFiles = eventFiles.stream().filter(f -> {
+            final var header = headers.get(f);
+            if (header == null || header.lastModified != f.lastModified() || header.size != f.length()) {
+                // The event date is unknown: the file has to be parsed.
+                return true;
+            }
+            return !header.date.isBefore(from) && !header.date.isAfter(to);
+        }).toList();
+        logger.debug("Event files to check between {} and {}: {}/{}", from, to, candidateFiles.size(), eventFiles.size());
+
+        final var events = Lists.mutable.<Event>empty();
+        candidateFiles.parallelStream().map(this::getEntry).toList().forEach(e -> {
+            if (!e.event.date().isBefore(from) && !e.event.date().isAfter(to)) {
+                events.add(e.event);
+            }
+        });
+        saveHeaders();
+        return events.sortThis(Comparator.naturalOrder()).toImmutable();
+    }
+
+    @Nullable
+    File findFileByMelee(URI melee) {
+        return refresh().filesByMelee.get(melee);
+    }
+
+    void save(File eventFile, Event event) {
+        try {
+            logger.info("Saving event '{}' to file: {}", event, eventFile);
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(eventFile, event);
+        } catch (IOException e) {
+            throw new AppException("Failed to save event to file: " + eventFile, e);
+        }
+        synchronized (this) {
+            put(new Entry(eventFile, eventFile.lastModified(), eventFile.length(), event));
+            saveHeaders();
+        }
+    }
+
+    /**
+     * Forget an event file: it will be parsed again on next access, if it still exists.
+     */
+    synchronized void evict(File eventFile) {
+        if (entries.remove(eventFile) != null) {
+            snapshot = null;
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        snapshot = null;
+    }
+
+    private synchronized Snapshot refresh() {
+        final var eventFiles = listEventFiles();
+        if (snapshot != null && isUpToDate(eventFiles)) {
+            return snapshot;
+        }
+
+        loadHeaders();
+        final var removedFiles = new HashSet<>(entries.keySet());
+        eventFiles.forEach(removedFiles::remove);
+        removedFiles.forEach(entries::remove);
+        eventFiles.parallelStream().forEach(this::getEntry);
+        saveHeaders();
+
+        final var sortedEntries = new TreeMap<File, Entry>(entries);
+        final var events = Lists.mutable.<Event>ofInitialCapacity(sortedEntries.size());
+        final var filesByMelee = Maps.mutable.<URI, File>empty();
+        final var eventsByDate = new TreeMap<LocalDate, List<Event>>();
+        for (final var entry : sortedEntries.values()) {
+            final var event = entry.event;
+            events.add(event);
+            if (event.melee() != null) {
+                filesByMelee.putIfAbsent(event.melee(), entry.file);
+            }
+            eventsByDate.computeIfAbsent(event.date(), k -> new ArrayList<>(1)).add(event);
+        }
+        snapshot = new Snapshot(events.toImmutable(), filesByMelee.toImmutable(), eventsByDate);
+        return snapshot;
+    }
+
+    private boolean isUpToDate(List<File> eventFiles) {
+        if (eventFiles.size() != entries.size()) {
+            return false;
+        }
+        for (final var f : eventFiles) {
+            final var entry = entries.get(f);
+            if (entry == null || entry.lastModified != f.lastModified() || entry.size != f.length()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Entry getEntry(File file) {
+        final var entry = entries.get(file);
+        if (entry != null && entry.lastModified == file.lastModified() && entry.size == file.length()) {
+            return entry;
+        }
+        final var newEntry = load(file);
+        put(newEntry);
+        return newEntry;
+    }
+
+    private void put(Entry entry) {
+        entries.put(entry.file, entry);
+        final var header = new Header(entry.lastModified, entry.size, entry.event.date());
+        if (!header.equals(headers.put(entry.file, header))) {
+            headersChanged = true;
+        }
+        snapshot = null;
+    }
+
+    private Entry load(File file) {
+        // File attributes are read first: a concurrent update would be detected on next refresh.
+        final long lastModified = file.lastModified();
+        final long size = file.length();
+        try {
+            logger.debug("Loading event from file: {}", file.getAbsolutePath());
+            return new Entry(file, lastModified, size, objectMapper.readerFor(Event.class).readValue(file));
+        } catch (IOException e) {
+            throw new AppException("Failed to load event from file: " + file, e);
+        }
+    }
+
+    private File getHeaderIndexFile() {
+        return new File(config.cache(), "event-headers.json");
+    }
+
+    private void loadHeaders() {
+        if (headersLoaded) {
+            return;
+        }
+        headersLoaded = true;
+        final var indexFile = getHeaderIndexFile();
+        if (!indexFile.exists()) {
+            return;
+        }
+        try {
+            final HeaderIndex index = jsonObjectMapper.readValue(indexFile, HeaderIndex.class);
+            if (index.version != HEADER_INDEX_VERSION || index.headers == null) {
+                logger.debug("Ignoring outdated event header index: {}", indexFile);
+                return;
+            }
+            index.headers.forEach((path, header) -> headers.putIfAbsent(new File(path), header));
+            logger.debug("Loaded event header index: {} events", index.headers.size());
+        } catch (IOException e) {
+            logger.warn("Failed to read event header index: {}", indexFile, e);
+        }
+    }
+
+    private void saveHeaders() {
+        if (!headersChanged) {
+            return;
+        }
+        final var indexFile = getHeaderIndexFile();
+        final var sortedHeaders = new TreeMap<String, Header>();
+        headers.forEach((file, header) -> {
+            if (file.exists()) {
+                sortedHeaders.put(file.getPath(), header);
+            }
+        });
+        indexFile.getParentFile().mkdirs();
+        final var tempFile = new File(indexFile.getParentFile(), indexFile.getName() + "." + UUID.randomUUID() + ".tmp").toPath();
+        try {
+            try {
+                jsonObjectMapper.writeValue(tempFile.toFile(), new HeaderIndex(HEADER_INDEX_VERSION, sortedHeaders));
+                Files.move(tempFile, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            headersChanged = false;
+        } catch (IOException e) {
+            logger.warn("Failed to save event header index: {}", indexFile, e);
+        }
+    }
+
+    private List<File> listEventFiles() {
+        final var eventFiles = new ArrayList<File>(64);
+        listFilesRecursively(new File(config.database(), "events"), eventFiles);
+        return eventFiles;
+    }
+
+    private static void listFilesRecursively(File directory, List<File> filesList) {
+        final var files = directory.listFiles();
+        if (files != null) {
+            for (final var file : files) {
+                if (file.isFile() && file.getName().endsWith(".yaml")) {
+                    filesList.add(file);
+                } else if (file.isDirectory()) {
+                    listFilesRecursively(file, filesList);
+                }
+            }
+        }
+    }
+}
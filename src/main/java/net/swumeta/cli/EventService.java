@@ -17,13 +17,11 @@
 package net.swumeta.cli;
 
 import com.fasterxml.jackson.annotation.JsonAlias;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import net.swumeta.cli.model.Deck;
 import net.swumeta.cli.model.Event;
 import org.eclipse.collections.api.list.ImmutableList;
-import org.eclipse.collections.impl.factory.Lists;
 import org.jsoup.Jsoup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,30 +33,38 @@ import org.springframework.web.client.RestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.File;
-import java.io.IOException;
 import java.net.URI;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 @Service
 public class EventService {
-    private static final Predicate<Event> NULL_FILTER = e -> true;
+    private static final int STANDINGS_PAGE_SIZE = 100;
     private final Logger logger = LoggerFactory.getLogger(EventService.class);
     private final DeckService deckService;
-    private final AppConfig config;
     private final RestClient client;
-    private final ObjectMapper objectMapper;
+    private final EventRepository eventRepository;
+    private final SyncJournal syncJournal;
+    // Events are compared by identity (weak keys): a modified event file gives a new event instance.
+    private final Cache<Event, Boolean> eventCompleteCache = Caffeine.newBuilder().weakKeys().build();
 
-    EventService(DeckService deckService, AppConfig config, RestClient client) {
+    EventService(DeckService deckService, EventRepository eventRepository, SyncJournal syncJournal, RestClient client) {
         this.deckService = deckService;
-        this.config = config;
+        this.eventRepository = eventRepository;
+        this.syncJournal = syncJournal;
         this.client = client;
-        this.objectMapper = new ObjectMapper(new YAMLFactory());
-        objectMapper.findAndRegisterModules();
-        objectMapper.registerModule(new JavaTimeModule());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        deckService.addDeleteListener(this::onDecksDeleted);
     }
 
     public ImmutableList<Event> list() {
@@ -66,58 +72,129 @@ public class EventService {
     }
 
     public ImmutableList<Event> list(Predicate<Event> filter) {
-        final var f = filter == null ? NULL_FILTER : filter;
-        final var events = Lists.immutable.fromStream(getEventFiles().stream().map(this::load).filter(f));
+        final var events = filter == null ? eventRepository.findAll() : eventRepository.findAll().select(filter::test);
         if (logger.isTraceEnabled()) {
             logger.trace("Found events: {}", events.stream().map(Event::name).toList());
         }
-        return events.toImmutable();
+        return events;
     }
 
-    private ImmutableList<File> getEventFiles() {
-        final var eventsDir = new File(config.database(), "events");
-        logger.trace("Listing event files in directory: {}", eventsDir);
-        final var eventFiles = new ArrayList<File>(32);
-        listFilesRecursively(eventsDir, eventFiles);
-        return Lists.immutable.ofAll(eventFiles);
+    /**
+     * List events between two dates (inclusive): event files outside this date window are not parsed.
+     */
+    public ImmutableList<Event> list(LocalDate from, LocalDate to, Predicate<Event> filter) {
+        Assert.notNull(from, "Start date must not be null");
+        Assert.notNull(to, "End date must not be null");
+        final var events = eventRepository.findByDate(from, to);
+        return filter == null ? events : events.select(filter::test);
     }
 
+    /**
+     * Update the index after an event file has been created or modified outside of this service.
+     */
+    void onEventFileChanged(File eventFile) {
+        // The event file is parsed again on next access.
+        eventRepository.evict(eventFile);
+    }
+
+    /**
+     * Update the index after an event file has been deleted outside of this service.
+     */
+    void onEventFileDeleted(File eventFile) {
+        eventRepository.evict(eventFile);
+    }
+
+    /**
+     * Drop the index: it will be rebuilt on next use.
+     */
+    void reindex() {
+        logger.debug("Resetting event index");
+        eventRepository.clear();
+    }
+
+    /**
+     * Check whether an event has enough deck data to be included in the metagame:
+     * top 8 decks must be available, and at least 80% of the field must be known.
+     * The result is kept until the event is reloaded or one of its decks is deleted from the cache.
+     */
     public boolean isEventComplete(Event e) {
+        return getEventCompleteness(e).complete();
+    }
+
+    /**
+     * @param complete   whether this event has enough deck data to be included in the metagame
+     * @param definitive <code>false</code> if a deck failed to load: this result may change on next check
+     */
+    public record EventCompleteness(boolean complete, boolean definitive) {
+    }
+
+    /**
+     * Check whether an event is complete, telling whether this result may change without updating the event or its decks.
+     */
+    public EventCompleteness getEventCompleteness(Event e) {
+        final var cached = eventCompleteCache.getIfPresent(e);
+        if (cached != null) {
+            return new EventCompleteness(cached, true);
+        }
+        final var result = computeEventComplete(e);
+        // A deck which failed to load may be available later: this result is computed again on next call.
+        if (result.definitive()) {
+            eventCompleteCache.put(e, result.complete());
+        }
+        return result;
+    }
+
+    private EventCompleteness computeEventComplete(Event e) {
         if (e.players() == 0) {
-            return false;
+            return new EventCompleteness(false, true);
         }
+        boolean definitive = true;
         boolean top8Complete = true;
         int deckWithContentCount = 0;
         for (final var entry : e.decks()) {
-            if (top8Complete && entry.rank() < 8) {
-                if (entry.pending() || entry.url() == null) {
+            final var checkTop8 = top8Complete && entry.rank() < 8;
+            final var hasContent = entry.leader() != null && entry.base() != null;
+
+            // Each deck is loaded at most once, for both checks.
+            Deck deck = null;
+            if (entry.url() != null && ((checkTop8 && !entry.pending()) || !hasContent)) {
+                try {
+                    deck = deckService.load(entry.url());
+                } catch (AppException ex) {
+                    logger.debug("Unable to load deck while checking event completeness: {}", entry.url(), ex);
+                    definitive = false;
+                }
+            }
+
+            if (checkTop8) {
+                if (entry.pending() || deck == null) {
                     top8Complete = false;
                 } else {
-                    try {
-                        final var deck = deckService.load(entry.url());
-                        if (!deck.isValid()) {
-                            top8Complete = false;
-                        }
-                        deckWithContentCount += 1;
-                    } catch (AppException ex) {
+                    if (!deck.isValid()) {
                         top8Complete = false;
                     }
+                    deckWithContentCount += 1;
                 }
             }
-            if (entry.leader() != null && entry.base() != null) {
+            if (hasContent) {
+                deckWithContentCount += 1;
+            } else if (deck != null && deck.isValid()) {
                 deckWithContentCount += 1;
-            } else if (entry.url() != null) {
-                try {
-                    final var deck = deckService.load(entry.url());
-                    if (deck.isValid()) {
-                        deckWithContentCount += 1;
-                    }
-                } catch (AppException ignore) {
-                }
             }
         }
         final var enoughData = deckWithContentCount / (float) e.players() >= 0.8f;
-        return enoughData && top8Complete;
+        return new EventCompleteness(enoughData && top8Complete, definitive);
+    }
+
+    private void onDecksDeleted(Collection<URI> deletedDecks) {
+        eventCompleteCache.asMap().keySet().removeIf(e -> {
+            for (final var entry : e.decks()) {
+                if (entry.url() != null && deletedDecks.contains(entry.url())) {
+                    return true;
+                }
+            }
+            return false;
+        });
     }
 
     public Event sync(Event event) {
@@ -146,150 +223,285 @@ public class EventService {
             }
         }
 
+        // The round selector is used as a cheap probe: standings are only crawled
+        // when melee.gg state has changed since the event was last synchronized.
         final var standingsElem = meleeDoc.getElementById("standings-round-selector-container");
-        if (standingsElem != null) {
-            final var roundStandingsElems = standingsElem.getElementsByAttributeValue("data-is-completed", "True");
-            if (roundStandingsElems != null && !roundStandingsElems.isEmpty()) {
-                final var lastRoundElem = roundStandingsElems.last();
-                var roundId = Integer.parseInt(lastRoundElem.attr("data-id"));
-                int depth = 1;
-                logger.trace("Found round id: {}", roundId);
-
-                final int pageSize = 25;
-                int rank = 1;
-                var fetchDone = false;
-                while (!fetchDone) {
-                    for (int page = 0; ; page += 1) {
-                        final var body = new LinkedMultiValueMap<String, String>();
-                        body.add("columns[0][data]", "Rank");
-                        body.add("columns[0][name]", "Rank");
-                        body.add("columns[0][searchable]", "true");
-                        body.add("columns[0][orderable]", "true");
-                        body.add("columns[0][search][value]", "");
-                        body.add("columns[0][search][regex]", "false");
-                        body.add("columns[1][data]", "Decklists");
-                        body.add("columns[1][name]", "Decklists");
-                        body.add("columns[1][searchable]", "false");
-                        body.add("columns[1][orderable]", "false");
-                        body.add("columns[1][search][value]", "");
-                        body.add("columns[1][search][regex]", "false");
-                        body.add("order[0][column]", "0");
-                        body.add("order[0][dir]", "asc");
-                        body.add("start", String.valueOf(page * pageSize));
-                        body.add("length", String.valueOf(pageSize));
-                        body.add("search[value]", "");
-                        body.add("search[regex]", "false");
-                        body.add("roundId", String.valueOf(roundId));
-
-                        final var resp = client.post()
-                                .uri("https://melee.gg/Standing/GetRoundStandings")
-                                .accept(MediaType.APPLICATION_JSON)
-                                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                                .body(body)
-                                .retrieve().body(JsonRoot.class);
-
-                        if (resp.recordsTotal == 0 || resp.data.isEmpty()) {
-                            if (depth > 3 || page != 0) {
-                                fetchDone = true;
-                                break;
-                            }
-                            depth += 1;
-                            final int previousIndex = roundStandingsElems.size() - depth;
-                            if (previousIndex < 0) {
-                                fetchDone = true;
-                                break;
-                            }
-                            final var previousElem = roundStandingsElems.get(previousIndex);
-                            roundId = Integer.parseInt(previousElem.attr("data-id"));
-                            logger.warn("Using previous round id: {}", roundId);
-                            deckUris.clear();
-                            break;
-                        }
-
-                        for (final var player : resp.data) {
-                            if ("0-0-0".equals(player.MatchRecord)) {
-                                logger.warn("Skipping decklist at rank {} for round {} since match record is 0-0-0", player.Rank, roundId);
-                                continue;
-                            }
-                            final var playerId = player.team.players.get(0).id;
-                            final var deckUri = getPlayerDeckUri(playerId);
-                            if (deckUri == null) {
-                                logger.warn("Missing decklist at rank {} for round {}", player.Rank, roundId);
-                            }
-                            logger.trace("Adding deck URI at rank {}: {}", player.Rank, deckUri);
-                            deckUris.add(new Event.DeckEntry(rank++, false, deckUri, null, null, null));
-                        }
-                    }
+        final var roundStandingsElems = standingsElem == null ? null
+                : standingsElem.getElementsByAttributeValue("data-is-completed", "True");
+        final int lastRoundId = roundStandingsElems == null || roundStandingsElems.isEmpty() ? 0
+                : Integer.parseInt(roundStandingsElems.last().attr("data-id"));
+        final int eventPlayers = players == 0 ? event.players() : players;
+        final var previousJournalEntry = syncJournal.get(event.melee());
+        if (lastRoundId != 0 && isUnchanged(event, previousJournalEntry, lastRoundId, eventPlayers)) {
+            logger.info("Skipping event since it has not changed on melee.gg: {}", event);
+            return event;
+        }
+
+        int recordsTotal = 0;
+        boolean complete = true;
+        final var matchRecords = new HashMap<URI, String>();
+        if (lastRoundId != 0) {
+            var roundId = lastRoundId;
+            int depth = 1;
+            logger.trace("Found round id: {}", roundId);
+
+            final var lastRoundStandings = getRoundStandings(roundId);
+            recordsTotal = lastRoundStandings.recordsTotal;
+            var standings = lastRoundStandings.data;
+            while (standings.isEmpty() && depth <= 3) {
+                depth += 1;
+                final int previousIndex = roundStandingsElems.size() - depth;
+                if (previousIndex < 0) {
+                    break;
+                }
+                final var previousElem = roundStandingsElems.get(previousIndex);
+                roundId = Integer.parseInt(previousElem.attr("data-id"));
+                logger.warn("Using previous round id: {}", roundId);
+                standings = getRoundStandings(roundId).data;
+            }
+
+            final var rankedPlayers = new ArrayList<JsonPlayer>(standings.size());
+            for (final var player : standings) {
+                if ("0-0-0".equals(player.MatchRecord)) {
+                    logger.warn("Skipping decklist at rank {} for round {} since match record is 0-0-0", player.Rank, roundId);
+                    continue;
                 }
+                rankedPlayers.add(player);
+            }
+            final var playerDeckUris = getPlayerDeckUris(rankedPlayers);
+            int rank = 1;
+            for (int i = 0; i < rankedPlayers.size(); i++) {
+                final var player = rankedPlayers.get(i);
+                final var deckUri = playerDeckUris[i];
+                if (deckUri == null) {
+                    logger.warn("Missing decklist at rank {} for round {}", player.Rank, roundId);
+                    complete = false;
+                }
+                logger.trace("Adding deck URI at rank {}: {}", player.Rank, deckUri);
+                if (deckUri != null) {
+                    matchRecords.put(deckUri, player.MatchRecord);
+                }
+                deckUris.add(new Event.DeckEntry(rank++, false, deckUri, null, null, null));
             }
         }
 
         final var newEvent = new Event(
-                event.name(), false, event.type(), players == 0 ? event.players() : players, event.date(), event.location(), event.hidden(), event.format(),
+                event.name(), false, event.type(), eventPlayers, event.date(), event.location(), event.hidden(), event.format(),
                 event.melee(), event.contributors(), event.links(), deckUris
         );
+        final var journalEntry = new SyncJournal.Entry(lastRoundId, recordsTotal, eventPlayers,
+                SyncJournal.hash(deckUris), complete && !deckUris.isEmpty(), matchRecords);
+
+        // Cached decks include match results: decks are invalidated even if the event file is unchanged,
+        // since a new round may keep every player at the same rank.
+        // Without a journal entry, previous match records are read from cached decks.
+        final var oldMatchRecords = previousJournalEntry == null
+                ? getCachedMatchRecords(event.decks()) : previousJournalEntry.matchRecords();
+        final var changedDecks = getChangedDecks(event.decks(), newEvent.decks(), oldMatchRecords, matchRecords);
+        if (!changedDecks.isEmpty()) {
+            logger.info("Deleting cache for {} decks in event: {}", changedDecks.size(), newEvent);
+            deckService.delete(changedDecks);
+        }
 
         if (newEvent.equals(event)) {
             logger.debug("Event is already up-to-date: {}", newEvent);
-            return event;
-        }
-
-        logger.info("Deleting cache for event: {}", newEvent);
-        deckService.delete(event.decks().stream().map(Event.DeckEntry::url).toList());
-
-        File eventFile = null;
-        for (final var fileCandidate : getEventFiles()) {
-            final var eventCandidate = load(fileCandidate);
-            if (eventCandidate.melee() != null && eventCandidate.melee().equals(event.melee())) {
-                eventFile = fileCandidate;
-                break;
+            if (lastRoundId != 0) {
+                syncJournal.put(event.melee(), journalEntry);
             }
+            // A new instance tells callers that match results have been updated.
+            return changedDecks.isEmpty() ? event : newEvent;
         }
+
+        final var eventFile = eventRepository.findFileByMelee(event.melee());
         if (eventFile == null) {
             throw new AppException("Unable to find file for event: " + event);
         }
-        try {
-            logger.info("Saving event '{}' to file: {}", event, eventFile);
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(eventFile, newEvent);
-        } catch (IOException e) {
-            throw new AppException("Failed to save event to file: " + eventFile, e);
+        eventRepository.save(eventFile, newEvent);
+        if (lastRoundId != 0) {
+            syncJournal.put(event.melee(), journalEntry);
         }
 
         return newEvent;
     }
 
-    private URI getPlayerDeckUri(String playerId) {
-        final var playerDetailsUri = UriComponentsBuilder.fromUriString("https://melee.gg/Player/GetPlayerDetails")
-                .queryParam("id", playerId).build().toUri();
-        final var playerDetails = client.get().uri(playerDetailsUri).retrieve().body(JsonPlayerDetails.class);
-        if (playerDetails.decklists == null || playerDetails.decklists.isEmpty()) {
-            return null;
+    private Map<URI, String> getCachedMatchRecords(List<Event.DeckEntry> decks) {
+        final var matchRecords = new HashMap<URI, String>(decks.size());
+        for (final var entry : decks) {
+            if (entry.url() == null) {
+                continue;
+            }
+            final var deck = deckService.findCached(entry.url());
+            if (deck != null && deck.matchRecord() != null) {
+                matchRecords.put(entry.url(), deck.matchRecord());
+            }
         }
-        final var deckId = playerDetails.decklists.get(0).id;
-        return UriComponentsBuilder.fromUriString("https://melee.gg/Decklist/View/").path(deckId).build().toUri();
+        return matchRecords;
     }
 
-    private Event load(File file) {
-        try {
-            logger.debug("Loading event from file: {}", file.getAbsolutePath());
-            return objectMapper.readerFor(Event.class).readValue(file);
-        } catch (IOException e) {
-            throw new AppException("Failed to load event from file: " + file, e);
+    /**
+     * Get deck URLs which need to be fetched again after an event update:
+     * decks which were added, removed, or whose rank, pending status or match record changed.
+     * A deck keeping its standing and match record has no new match result, and is left untouched.
+     * When the previous match record of a deck is unknown, only its standing is compared.
+     */
+    static Set<URI> getChangedDecks(List<Event.DeckEntry> oldDecks, List<Event.DeckEntry> newDecks,
+                                    Map<URI, String> oldMatchRecords, Map<URI, String> newMatchRecords) {
+        final var oldDecksByUrl = new HashMap<URI, Event.DeckEntry>(oldDecks.size());
+        for (final var deck : oldDecks) {
+            if (deck.url() != null) {
+                oldDecksByUrl.put(deck.url(), deck);
+            }
+        }
+        final var changedDecks = new LinkedHashSet<URI>();
+        for (final var deck : newDecks) {
+            if (deck.url() == null) {
+                continue;
+            }
+            final var oldDeck = oldDecksByUrl.remove(deck.url());
+            final var oldMatchRecord = oldMatchRecords.get(deck.url());
+            if (oldDeck == null || oldDeck.rank() != deck.rank() || oldDeck.pending() != deck.pending()
+                    || (oldMatchRecord != null && !oldMatchRecord.equals(newMatchRecords.get(deck.url())))) {
+                changedDecks.add(deck.url());
+            }
         }
+        // Decks which are no longer part of this event.
+        changedDecks.addAll(oldDecksByUrl.keySet());
+        return changedDecks;
     }
 
+    private boolean isUnchanged(Event event, SyncJournal.Entry journalEntry, int lastRoundId, int players) {
+        if (journalEntry == null || !journalEntry.complete()
+                || journalEntry.roundId() != lastRoundId || journalEntry.players() != players
+                || event.players() != players || !journalEntry.standingsHash().equals(SyncJournal.hash(event.decks()))) {
+            return false;
+        }
+        // A single row is enough to check that the standings size has not changed.
+        final var firstRow = getRoundStandingsPage(lastRoundId, 0, 1);
+        return firstRow.recordsTotal == journalEntry.recordsTotal();
+    }
+
+    private JsonRoot getRoundStandings(int roundId) {
+        final var firstPage = getRoundStandingsPage(roundId, 0, STANDINGS_PAGE_SIZE);
+        if (firstPage.recordsTotal == 0 || firstPage.data == null || firstPage.data.isEmpty()) {
+            return new JsonRoot(List.of(), firstPage.recordsTotal);
+        }
+        // The server may return less rows than requested: the size of the first page is used for other pages.
+        final int pageSize = Math.min(STANDINGS_PAGE_SIZE, firstPage.data.size());
+        final int pageCount = firstPage.data.size() >= firstPage.recordsTotal
+                ? 1 : (firstPage.recordsTotal + pageSize - 1) / pageSize;
+        logger.debug("Fetching {} standings pages for round {} ({} players)", pageCount, roundId, firstPage.recordsTotal);
+
+        final var standings = new ArrayList<JsonPlayer>(firstPage.recordsTotal);
+        standings.addAll(firstPage.data);
+        if (pageCount == 1) {
+            return new JsonRoot(standings, firstPage.recordsTotal);
+        }
 
-    private static void listFilesRecursively(File directory, List<File> filesList) {
-        final var files = directory.listFiles();
-        if (files != null) {
-            for (final var file : files) {
-                if (file.isFile() && file.getName().endsWith(".yaml")) {
-                    filesList.add(file);
-                } else if (file.isDirectory()) {
-                    listFilesRecursively(file, filesList);
+        // Remaining pages are fetched concurrently, within the host rate limit.
+        try (final var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final var tasks = new ArrayList<Future<JsonRoot>>(pageCount - 1);
+            for (int page = 1; page < pageCount; page++) {
+                final int start = page * pageSize;
+                tasks.add(executor.submit(() -> getRoundStandingsPage(roundId, start, pageSize)));
+            }
+            for (final var task : tasks) {
+                final var resp = getTaskResult(task, "Failed to get round standings");
+                if (resp.data == null || resp.data.isEmpty()) {
+                    // Standings are shorter than announced: following pages are empty too.
+                    break;
                 }
+                standings.addAll(resp.data);
             }
         }
+        return new JsonRoot(standings, firstPage.recordsTotal);
+    }
+
+    private JsonRoot getRoundStandingsPage(int roundId, int start, int length) {
+        final var body = new LinkedMultiValueMap<String, String>();
+        body.add("columns[0][data]", "Rank");
+        body.add("columns[0][name]", "Rank");
+        body.add("columns[0][searchable]", "true");
+        body.add("columns[0][orderable]", "true");
+        body.add("columns[0][search][value]", "");
+        body.add("columns[0][search][regex]", "false");
+        body.add("columns[1][data]", "Decklists");
+        body.add("columns[1][name]", "Decklists");
+        body.add("columns[1][searchable]", "false");
+        body.add("columns[1][orderable]", "false");
+        body.add("columns[1][search][value]", "");
+        body.add("columns[1][search][regex]", "false");
+        body.add("order[0][column]", "0");
+        body.add("order[0][dir]", "asc");
+        body.add("start", String.valueOf(start));
+        body.add("length", String.valueOf(length));
+        body.add("search[value]", "");
+        body.add("search[regex]", "false");
+        body.add("roundId", String.valueOf(roundId));
+
+        return client.post()
+                .uri("https://melee.gg/Standing/GetRoundStandings")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(body)
+                .retrieve().body(JsonRoot.class);
+    }
+
+    private static <T> T getTaskResult(Future<T> task, String errorMessage) {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new AppException(errorMessage, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(errorMessage, e);
+        }
+    }
+
+    private URI[] getPlayerDeckUris(List<JsonPlayer> players) {
+        // Standings usually include decklist ids: player details are only fetched for players without one.
+        final var deckUris = new URI[players.size()];
+        final var missingDecklists = new ArrayList<Integer>();
+        for (int i = 0; i < players.size(); i++) {
+            final var decklists = players.get(i).Decklists;
+            if (decklists != null && !decklists.isEmpty() && decklists.get(0).DecklistId != null) {
+                deckUris[i] = toDeckUri(decklists.get(0).DecklistId);
+            } else {
+                missingDecklists.add(i);
+            }
+        }
+        if (missingDecklists.isEmpty()) {
+            return deckUris;
+        }
+
+        logger.debug("Fetching player details for {} players without decklist in standings", missingDecklists.size());
+        try (final var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final var tasks = new ArrayList<Future<URI>>(missingDecklists.size());
+            for (final int i : missingDecklists) {
+                final var playerId = players.get(i).team.players.get(0).id;
+                tasks.add(executor.submit(() -> getPlayerDeckUri(playerId)));
+            }
+            for (int j = 0; j < tasks.size(); j++) {
+                deckUris[missingDecklists.get(j)] = getTaskResult(tasks.get(j), "Failed to get player details");
+            }
+        }
+        return deckUris;
+    }
+
+    private static URI toDeckUri(String deckId) {
+        return UriComponentsBuilder.fromUriString("https://melee.gg/Decklist/View/").path(deckId).build().toUri();
+    }
+
+    private URI getPlayerDeckUri(String playerId) {
+        final var playerDetailsUri = UriComponentsBuilder.fromUriString("https://melee.gg/Player/GetPlayerDetails")
+                .queryParam("id", playerId).build().toUri();
+        final var playerDetails = client.get().uri(playerDetailsUri).retrieve().body(JsonPlayerDetails.class);
+        if (playerDetails.decklists == null || playerDetails.decklists.isEmpty()) {
+            return null;
+        }
+        return toDeckUri(playerDetails.decklists.get(0).id);
     }
 
     private record JsonRoot(
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Space out requests sent to the same host, whatever the number of threads sending requests.
+ * <p>
+ * Only hosts from a single domain (and its subdomains) are rate limited:
+ * requests to other hosts, such as image CDNs, are sent right away.
+ */
+class HostRateLimiter implements ClientHttpRequestInterceptor {
+    private final long intervalNanos;
+    private final String domain;
+    private final LongSupplier nanoTime;
+    private final ConcurrentMap<String, AtomicLong> nextSlots = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxRequestsPerSecond maximum number of requests per second for each host,
+     *                             or a non-positive value to disable rate limiting
+     * @param domain               domain of rate limited hosts
+     */
+    HostRateLimiter(double maxRequestsPerSecond, String domain) {
+        this(maxRequestsPerSecond, domain, System::nanoTime);
+    }
+
+    HostRateLimiter(double maxRequestsPerSecond, String domain, LongSupplier nanoTime) {
+        this.intervalNanos = maxRequestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond) : 0;
+        this.domain = domain.toLowerCase(Locale.ROOT);
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        final var host = request.getURI().getHost();
+        if (intervalNanos > 0 && host != null && isRateLimited(host)) {
+            acquire(host);
+        }
+        return execution.execute(request, body);
+    }
+
+    boolean isRateLimited(String host) {
+        final var h = host.toLowerCase(Locale.ROOT);
+        return h.equals(domain) || h.endsWith("." + domain);
+    }
+
+    /**
+     * Reserve the next request slot for a host.
+     *
+     * @return the time to wait before sending the request, in nanoseconds
+     */
+    long reserve(String host) {
+        final var nextSlot = nextSlots.computeIfAbsent(host, k -> new AtomicLong(nanoTime.getAsLong()));
+        long now;
+        long slot;
+        do {
+            now = nanoTime.getAsLong();
+            final var next = nextSlot.get();
+            slot = Math.max(now, next);
+            if (nextSlot.compareAndSet(next, slot + intervalNanos)) {
+                break;
+            }
+        } while (true);
+        return slot - now;
+    }
+
+    private void acquire(String host) throws InterruptedIOException {
+        final var waitNanos = reserve(host);
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for request slot to " + host);
+            }
+        }
+    }
+}
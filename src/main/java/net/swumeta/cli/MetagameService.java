@@ -16,9 +16,10 @@
 
 package net.swumeta.cli;
 
-import net.swumeta.cli.model.Deck;
-import net.swumeta.cli.model.DeckArchetype;
 import net.swumeta.cli.model.Event;
+import net.swumeta.cli.statistics.EventSnapshotService;
+import net.swumeta.cli.statistics.MetagameSnapshot;
+import net.swumeta.cli.statistics.MetagameTimeline;
 import org.eclipse.collections.api.factory.Lists;
 import org.eclipse.collections.api.factory.Sets;
 import org.eclipse.collections.api.list.ImmutableList;
@@ -30,7 +31,6 @@ import org.springframework.stereotype.Service;
 import java.net.URI;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Objects;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -41,25 +41,36 @@ public class MetagameService {
     );
     private final Logger logger = LoggerFactory.getLogger(MetagameService.class);
     private final EventService eventService;
-    private final DeckService deckService;
+    private final EventSnapshotService eventSnapshotService;
     private final AppConfig config;
 
-    public MetagameService(EventService eventService, DeckService deckService, AppConfig config) {
+    public MetagameService(EventService eventService, EventSnapshotService eventSnapshotService, AppConfig config) {
         this.eventService = eventService;
-        this.deckService = deckService;
+        this.eventSnapshotService = eventSnapshotService;
         this.config = config;
     }
 
+    /**
+     * @param statistics metagame statistics merged from event snapshots
+     * @param timeline   statistics of metagame events within the timeline window indexed by event date,
+     *                   including events before the metagame window
+     */
     public record Metagame(LocalDate date, ImmutableList<Event> events, ImmutableList<URI> decks,
-                           ImmutableList<DeckArchetype> archetypes) {
+                           MetagameSnapshot statistics, MetagameTimeline timeline) {
     }
 
     public Metagame getMetagame() {
         logger.debug("Listing events for the metagame");
-        final Predicate<Event> eventFilter = config.metagameMonths() < 1 ? null : new EventFilter(config.metagameMonths(), config.metagameLimit());
+        final ImmutableList<Event> candidateEvents;
+        if (config.metagameMonths() < 1) {
+            candidateEvents = eventService.list();
+        } else {
+            final var eventFilter = new EventFilter(config.metagameMonths(), config.metagameLimit());
+            candidateEvents = eventService.list(eventFilter.limitDate, eventFilter.now, eventFilter);
+        }
 
         final var events = Lists.immutable.fromStream(
-                eventService.list(eventFilter).stream().filter(eventService::isEventComplete)
+                candidateEvents.stream().filter(eventSnapshotService::isEventComplete)
         );
         if (events.isEmpty()) {
             throw new AppException("No events found");
@@ -73,27 +84,6 @@ public class MetagameService {
                         .map(Event.DeckEntry::url)
         );
 
-        final var archetypes = Lists.immutable.fromStream(
-                events.stream().filter(e -> e.players() > 0)
-                        .flatMap(e -> e.decks().stream())
-                        .map(e -> {
-                            if (e.url() != null) {
-                                Deck deck = null;
-                                try {
-                                    deck = deckService.load(e.url());
-                                } catch (AppException ignore) {
-                                }
-                                if (deck != null) {
-                                    return deckService.getArchetype(deck);
-                                }
-                            }
-                            if (e.leader() != null && e.base() != null) {
-                                return DeckArchetype.valueOf(e.leader(), e.base());
-                            }
-                            return null;
-                        }).filter(Objects::nonNull)
-        );
-
         logger.debug("Number of events part of the metagame: {}", events.size());
         logger.debug("Number of decks part of the metagame: {}", deckUris.size());
         if (logger.isTraceEnabled()) {
@@ -111,7 +101,17 @@ public class MetagameService {
             }
         }
 
-        return new Metagame(lastDate, events, deckUris, archetypes);
+        // Trends are not limited to the metagame window: the timeline covers a longer history window.
+        final var now = LocalDate.now();
+        final Predicate<Event> timelineFilter = e -> isMetagameEvent(e, now);
+        final var timelineCandidates = config.timelineMonths() < 1
+                ? eventService.list(timelineFilter)
+                : eventService.list(now.minusMonths(config.timelineMonths()), now, timelineFilter);
+        final var timelineEvents = timelineCandidates.select(eventSnapshotService::isEventComplete);
+        logger.debug("Number of events part of the metagame timeline: {}", timelineEvents.size());
+
+        return new Metagame(lastDate, events, deckUris, eventSnapshotService.getMetagameSnapshot(events),
+                eventSnapshotService.getTimeline(timelineEvents));
     }
 
     private static class EventFilter implements Predicate<Event> {
@@ -129,15 +129,19 @@ public class MetagameService {
 
         @Override
         public boolean test(Event event) {
-            return !event.hidden()
-                    && VALID_EVENT_TYPES.contains(event.type())
-                    && hasDecks(event)
-                    && event.players() >= 32
-                    && (event.date().isBefore(now) || event.date().isEqual(now))
+            return isMetagameEvent(event, now)
                     && (event.date().isAfter(limitDate) || event.date().isEqual(limitDate));
         }
     }
 
+    private static boolean isMetagameEvent(Event event, LocalDate now) {
+        return !event.hidden()
+                && VALID_EVENT_TYPES.contains(event.type())
+                && hasDecks(event)
+                && event.players() >= 32
+                && (event.date().isBefore(now) || event.date().isEqual(now));
+    }
+
     private static boolean hasDecks(Event e) {
         for (final var deck : e.decks()) {
             if (deck.rank() < 9 && (deck.pending() || deck.url() == null)) {
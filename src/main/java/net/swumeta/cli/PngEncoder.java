@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli;
+
+import org.eclipse.collections.impl.map.mutable.primitive.IntIntHashMap;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * PNG encoder trading CPU time for smaller files: palette reduction when possible,
+ * adaptive filtering for each scanline and maximum deflate level.
+ */
+final class PngEncoder {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int MAX_PALETTE_SIZE = 256;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_INDEXED = 3;
+    private static final int COLOR_TYPE_RGBA = 6;
+    private static final int FILTER_NONE = 0;
+    private static final int FILTER_SUB = 1;
+    private static final int FILTER_UP = 2;
+    private static final int FILTER_AVERAGE = 3;
+    private static final int FILTER_PAETH = 4;
+
+    private PngEncoder() {
+    }
+
+    static byte[] encode(BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+
+        final var out = new ByteArrayOutputStream(argb.length);
+        out.writeBytes(SIGNATURE);
+
+        final byte[][] rows;
+        final int bytesPerPixel;
+        final var palette = createPalette(argb);
+        if (palette != null) {
+            final int bitDepth = palette.bitDepth();
+            writeHeader(out, width, height, bitDepth, COLOR_TYPE_INDEXED);
+
+            final var plte = new byte[palette.colors.length * 3];
+            int lastTransparentIndex = -1;
+            for (int i = 0; i < palette.colors.length; i++) {
+                final int color = palette.colors[i];
+                plte[i * 3] = (byte) (color >>> 16);
+                plte[i * 3 + 1] = (byte) (color >>> 8);
+                plte[i * 3 + 2] = (byte) color;
+                if ((color >>> 24) != 0xff) {
+                    lastTransparentIndex = i;
+                }
+            }
+            writeChunk(out, "PLTE", plte);
+            if (lastTransparentIndex != -1) {
+                // Translucent colors come first in the palette: the tRNS chunk only covers these entries.
+                final var trns = new byte[lastTransparentIndex + 1];
+                for (int i = 0; i < trns.length; i++) {
+                    trns[i] = (byte) (palette.colors[i] >>> 24);
+                }
+                writeChunk(out, "tRNS", trns);
+            }
+
+            rows = new byte[height][(width * bitDepth + 7) / 8];
+            final int pixelsPerByte = 8 / bitDepth;
+            for (int y = 0; y < height; y++) {
+                final var row = rows[y];
+                for (int x = 0; x < width; x++) {
+                    final int index = palette.indexes.get(argb[y * width + x]);
+                    final int shift = 8 - bitDepth * (x % pixelsPerByte + 1);
+                    row[x / pixelsPerByte] |= (byte) (index << shift);
+                }
+            }
+            bytesPerPixel = 1;
+        } else {
+            boolean alpha = false;
+            for (final int pixel : argb) {
+                if ((pixel >>> 24) != 0xff) {
+                    alpha = true;
+                    break;
+                }
+            }
+            bytesPerPixel = alpha ? 4 : 3;
+            writeHeader(out, width, height, 8, alpha ? COLOR_TYPE_RGBA : COLOR_TYPE_RGB);
+
+            rows = new byte[height][width * bytesPerPixel];
+            for (int y = 0; y < height; y++) {
+                final var row = rows[y];
+                for (int x = 0; x < width; x++) {
+                    final int pixel = argb[y * width + x];
+                    final int i = x * bytesPerPixel;
+                    row[i] = (byte) (pixel >>> 16);
+                    row[i + 1] = (byte) (pixel >>> 8);
+                    row[i + 2] = (byte) pixel;
+                    if (alpha) {
+                        row[i + 3] = (byte) (pixel >>> 24);
+                    }
+                }
+            }
+        }
+
+        byte[] imageData = null;
+        for (final boolean adaptive : new boolean[]{true, false}) {
+            final var filtered = filter(rows, bytesPerPixel, adaptive);
+            for (final int strategy : new int[]{Deflater.DEFAULT_STRATEGY, Deflater.FILTERED}) {
+                final var compressed = deflate(filtered, strategy);
+                if (imageData == null || compressed.length < imageData.length) {
+                    imageData = compressed;
+                }
+            }
+        }
+        writeChunk(out, "IDAT", imageData);
+        writeChunk(out, "IEND", new byte[0]);
+        return out.toByteArray();
+    }
+
+    private record Palette(int[] colors, IntIntHashMap indexes) {
+        int bitDepth() {
+            if (colors.length <= 2) {
+                return 1;
+            }
+            if (colors.length <= 4) {
+                return 2;
+            }
+            if (colors.length <= 16) {
+                return 4;
+            }
+            return 8;
+        }
+    }
+
+    private static Palette createPalette(int[] argb) {
+        final var indexes = new IntIntHashMap(MAX_PALETTE_SIZE);
+        for (final int pixel : argb) {
+            // Fully transparent pixels are all equivalent, whatever their color.
+            final int color = (pixel >>> 24) == 0 ? 0 : pixel;
+            if (!indexes.containsKey(color)) {
+                if (indexes.size() == MAX_PALETTE_SIZE) {
+                    return null;
+                }
+                indexes.put(color, indexes.size());
+            }
+        }
+
+        // Sort colors so that translucent colors come first, then reassign indexes.
+        final var colors = indexes.keysView().toSortedArray();
+        final var sortedColors = new int[colors.length];
+        int i = 0;
+        for (final int color : colors) {
+            if ((color >>> 24) != 0xff) {
+                sortedColors[i++] = color;
+            }
+        }
+        for (final int color : colors) {
+            if ((color >>> 24) == 0xff) {
+                sortedColors[i++] = color;
+            }
+        }
+        indexes.clear();
+        for (int j = 0; j < sortedColors.length; j++) {
+            indexes.put(sortedColors[j], j);
+        }
+        for (final int pixel : argb) {
+            if ((pixel >>> 24) == 0 && pixel != 0) {
+                indexes.put(pixel, indexes.get(0));
+            }
+        }
+        return new Palette(sortedColors, indexes);
+    }
+
+    private static byte[] filter(byte[][] rows, int bytesPerPixel, boolean adaptive) {
+        if (rows.length == 0) {
+            return new byte[0];
+        }
+        final int rowLength = rows[0].length;
+        final var out = new byte[rows.length * (rowLength + 1)];
+        final var candidate = new byte[rowLength];
+        final var best = new byte[rowLength];
+        final var emptyRow = new byte[rowLength];
+        for (int y = 0; y < rows.length; y++) {
+            final var row = rows[y];
+            final var previous = y == 0 ? emptyRow : rows[y - 1];
+            int bestFilter = FILTER_NONE;
+            System.arraycopy(row, 0, best, 0, rowLength);
+            if (adaptive) {
+                long bestScore = score(row);
+                for (int filter = FILTER_SUB; filter <= FILTER_PAETH; filter++) {
+                    applyFilter(filter, row, previous, bytesPerPixel, candidate);
+                    final long score = score(candidate);
+                    if (score < bestScore) {
+                        bestScore = score;
+                        bestFilter = filter;
+                        System.arraycopy(candidate, 0, best, 0, rowLength);
+                    }
+                }
+            }
+            final int offset = y * (rowLength + 1);
+            out[offset] = (byte) bestFilter;
+            System.arraycopy(best, 0, out, offset + 1, rowLength);
+        }
+        return out;
+    }
+
+    private static void applyFilter(int filter, byte[] row, byte[] previous, int bytesPerPixel, byte[] out) {
+        for (int i = 0; i < row.length; i++) {
+            final int x = row[i] & 0xff;
+            final int a = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xff : 0;
+            final int b = previous[i] & 0xff;
+            final int c = i >= bytesPerPixel ? previous[i - bytesPerPixel] & 0xff : 0;
+            out[i] = (byte) switch (filter) {
+                case FILTER_SUB -> x - a;
+                case FILTER_UP -> x - b;
+                case FILTER_AVERAGE -> x - ((a + b) >>> 1);
+                case FILTER_PAETH -> x - paeth(a, b, c);
+                default -> x;
+            };
+        }
+    }
+
+    private static int paeth(int a, int b, int c) {
+        final int p = a + b - c;
+        final int pa = Math.abs(p - a);
+        final int pb = Math.abs(p - b);
+        final int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private static long score(byte[] row) {
+        long sum = 0;
+        for (final byte value : row) {
+            sum += Math.abs((int) value);
+        }
+        return sum;
+    }
+
+    private static byte[] deflate(byte[] data, int strategy) {
+        final var deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setStrategy(strategy);
+            deflater.setInput(data);
+            deflater.finish();
+            final var out = new ByteArrayOutputStream(data.length / 2 + 64);
+            final var buf = new byte[8192];
+            while (!deflater.finished()) {
+                final int len = deflater.deflate(buf);
+                out.write(buf, 0, len);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeHeader(ByteArrayOutputStream out, int width, int height, int bitDepth, int colorType) {
+        final var ihdr = new byte[13];
+        writeInt(ihdr, 0, width);
+        writeInt(ihdr, 4, height);
+        ihdr[8] = (byte) bitDepth;
+        ihdr[9] = (byte) colorType;
+        // Compression, filter and interlace methods are left to their defaults.
+        writeChunk(out, "IHDR", ihdr);
+    }
+
+    private static void writeChunk(ByteArrayOutputStream out, String type, byte[] data) {
+        final var typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        final var header = new byte[4];
+        writeInt(header, 0, data.length);
+        out.writeBytes(header);
+        out.writeBytes(typeBytes);
+        out.writeBytes(data);
+
+        final var crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        final var crcBytes = new byte[4];
+        writeInt(crcBytes, 0, (int) crc.getValue());
+        out.writeBytes(crcBytes);
+    }
+
+    private static void writeInt(byte[] buf, int offset, int value) {
+        buf[offset] = (byte) (value >>> 24);
+        buf[offset + 1] = (byte) (value >>> 16);
+        buf[offset + 2] = (byte) (value >>> 8);
+        buf[offset + 3] = (byte) value;
+    }
+}
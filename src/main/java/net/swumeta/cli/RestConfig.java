@@ -26,12 +26,16 @@ import org.springframework.web.client.RestClientException;
 
 @Configuration(proxyBeanMethods = false)
 class RestConfig {
+    private static final String MELEE_DOMAIN = "melee.gg";
+
     @Bean
-    RestClient restClient(RestClient.Builder rcb) {
+    RestClient restClient(RestClient.Builder rcb, AppConfig config) {
         return rcb.clone()
                 // Need to set the user agent as curl otherwise melee.gg will forbid requests.
                 .defaultHeader(HttpHeaders.USER_AGENT, "curl/8.5.0")
                 .defaultHeader(HttpHeaders.ACCEPT_LANGUAGE, "en")
+                // Only melee.gg is rate limited: card images and other sites are not throttled.
+                .requestInterceptor(new HostRateLimiter(config.maxRequestsPerSecond(), MELEE_DOMAIN))
                 .build();
     }
 
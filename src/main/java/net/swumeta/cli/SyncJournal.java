@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.swumeta.cli.model.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remember the melee.gg state of each event when it was last synchronized,
+ * so that events which have not changed since can be skipped.
+ * <p>
+ * The journal is persisted in the cache directory: deleting this file forces
+ * a full synchronization of all events.
+ */
+@Component
+class SyncJournal {
+    private static final int JOURNAL_VERSION = 2;
+    private final Logger logger = LoggerFactory.getLogger(SyncJournal.class);
+    private final AppConfig config;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>(64);
+    private boolean loaded;
+
+    SyncJournal(AppConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Event state on melee.gg.
+     *
+     * @param roundId        id of the last completed round
+     * @param recordsTotal   number of rows in the standings of this round
+     * @param players        number of enrolled players
+     * @param standingsHash  hash of the deck entries built from the standings
+     * @param complete       whether every ranked player had a decklist
+     * @param matchRecords   match record of each ranked player in the standings, by deck URL
+     */
+    record Entry(int roundId, int recordsTotal, int players, String standingsHash, boolean complete,
+                 Map<URI, String> matchRecords) {
+    }
+
+    private record Journal(int version, Map<String, Entry> events) {
+    }
+
+    @Nullable
+    Entry get(URI melee) {
+        load();
+        return entries.get(melee.toString());
+    }
+
+    void put(URI melee, Entry entry) {
+        load();
+        if (!entry.equals(entries.put(melee.toString(), entry))) {
+            save();
+        }
+    }
+
+    static String hash(List<Event.DeckEntry> decks) {
+        final var buf = new StringBuilder(decks.size() * 48);
+        for (final var deck : decks) {
+            buf.append(deck.rank()).append(' ').append(deck.url()).append('\n');
+        }
+        return DigestUtils.md5DigestAsHex(buf.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private File getJournalFile() {
+        return new File(config.cache(), "sync-journal.json");
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        final var journalFile = getJournalFile();
+        if (!journalFile.exists()) {
+            return;
+        }
+        try {
+            final Journal journal = objectMapper.readValue(journalFile, Journal.class);
+            if (journal.version != JOURNAL_VERSION || journal.events == null) {
+                logger.debug("Ignoring outdated sync journal: {}", journalFile);
+                return;
+            }
+            journal.events.forEach(entries::putIfAbsent);
+            logger.debug("Loaded sync journal: {} events", journal.events.size());
+        } catch (IOException e) {
+            logger.warn("Failed to read sync journal: {}", journalFile, e);
+        }
+    }
+
+    private synchronized void save() {
+        final var journalFile = getJournalFile();
+        journalFile.getParentFile().mkdirs();
+        final var tempFile = new File(journalFile.getParentFile(), journalFile.getName() + "." + UUID.randomUUID() + ".tmp").toPath();
+        try {
+            try {
+                objectMapper.writeValue(tempFile.toFile(), new Journal(JOURNAL_VERSION, new TreeMap<>(entries)));
+                Files.move(tempFile, journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to save sync journal: {}", journalFile, e);
+        }
+    }
+}
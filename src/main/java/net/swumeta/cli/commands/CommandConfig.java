@@ -20,6 +20,9 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.shell.command.CommandRegistration;
 
+import java.net.URI;
+import java.time.Duration;
+
 @Configuration(proxyBeanMethods = false)
 class CommandConfig {
     @Bean
@@ -60,12 +63,21 @@ class CommandConfig {
         return CommandRegistration.builder()
                 .command("find-cards")
                 .description("Find cards")
-                .withOption().longNames("name").shortNames('n').description("Card name").required().and()
+                .withOption().longNames("name").shortNames('n').description("Card name").required(false).and()
                 .withOption().longNames("title").shortNames('t').description("Card title, if any").required(false).and()
+                .withOption().longNames("query").shortNames('q').description("Card query, such as: type=unit AND aspect=cunning AND cost<=3").required(false).and()
+                .withOption().longNames("batch").shortNames('b').description("File with one card name per line (name|title), or - to read from the standard input").required(false).and()
+                .withOption().longNames("format").shortNames('f').description("Batch output format: csv or jsonl").defaultValue("csv").and()
                 .withTarget().consumer(ctx -> {
+                    final var batch = (String) ctx.getOptionValue("batch");
+                    if (batch != null) {
+                        cmd.runBatch(batch, (String) ctx.getOptionValue("format"));
+                        return;
+                    }
                     final var title = (String) ctx.getOptionValue("name");
                     final var subtitle = (String) ctx.getOptionValue("title");
-                    cmd.run(title, subtitle);
+                    final var query = (String) ctx.getOptionValue("query");
+                    cmd.run(title, subtitle, query);
                 })
                 .and().build();
     }
@@ -75,8 +87,29 @@ class CommandConfig {
         return CommandRegistration.builder()
                 .command("sync-events")
                 .description("Sync events")
+                .withOption().longNames("parallelism").shortNames('p').type(Integer.class).description("Maximum number of events to sync at the same time").defaultValue("4").and()
                 .withTarget().consumer(ctx -> {
-                    cmd.run();
+                    final var parallelism = (Integer) ctx.getOptionValue("parallelism");
+                    cmd.run(parallelism);
+                })
+                .and().build();
+    }
+
+    @Bean
+    CommandRegistration followEvent(FollowEventCommand cmd) {
+        return CommandRegistration.builder()
+                .command("follow-event")
+                .description("Follow a live event, generating its pages again when standings are updated")
+                .withOption().longNames("melee").shortNames('m').type(String.class).description("Melee.gg link of the event").required().and()
+                .withOption().longNames("min-interval").type(Integer.class).description("Minimum time between two checks (in seconds)").defaultValue("60").and()
+                .withOption().longNames("max-interval").type(Integer.class).description("Maximum time between two checks (in seconds)").defaultValue("900").and()
+                .withOption().longNames("max-idle").type(Integer.class).description("Stop following the event after this time without updates (in minutes)").defaultValue("240").and()
+                .withTarget().consumer(ctx -> {
+                    final var melee = URI.create((String) ctx.getOptionValue("melee"));
+                    final var minInterval = Duration.ofSeconds((Integer) ctx.getOptionValue("min-interval"));
+                    final var maxInterval = Duration.ofSeconds((Integer) ctx.getOptionValue("max-interval"));
+                    final var maxIdle = Duration.ofMinutes((Integer) ctx.getOptionValue("max-idle"));
+                    cmd.run(melee, minInterval, maxInterval, maxIdle);
                 })
                 .and().build();
     }
@@ -18,10 +18,13 @@ package net.swumeta.cli.commands;
 
 import net.swumeta.cli.CardDatabaseService;
 import net.swumeta.cli.CardDownloaderService;
+import net.swumeta.cli.model.Card;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+
 @Component
 class DownloadCardsCommand {
     private final Logger logger = LoggerFactory.getLogger(DownloadCardsCommand.class);
@@ -35,17 +38,15 @@ class DownloadCardsCommand {
 
     void run() {
         logger.info("Downloading cards...");
-        final var status = new Status();
-        cardDatabaseService.clear();
+        final var cards = new ArrayList<Card>(2048);
         cardsDownloaderService.downloadCards(card -> {
             logger.debug("Downloaded card: {}", card);
-            status.cardCount += 1;
-            cardDatabaseService.save(card);
+            cards.add(card);
         });
-        logger.info("Downloaded {} cards", status.cardCount);
-    }
+        logger.info("Downloaded {} cards", cards.size());
 
-    private class Status {
-        int cardCount;
+        final var result = cardDatabaseService.sync(cards);
+        logger.info("Updated card database: {} added, {} updated, {} removed, {} unchanged",
+                result.added(), result.updated(), result.removed(), result.unchanged());
     }
 }
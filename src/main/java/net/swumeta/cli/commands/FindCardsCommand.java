@@ -16,31 +16,188 @@
 
 package net.swumeta.cli.commands;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.swumeta.cli.AppException;
 import net.swumeta.cli.CardDatabaseService;
+import net.swumeta.cli.CardIndexService;
+import net.swumeta.cli.CardNameResolver;
 import net.swumeta.cli.model.Card;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.TreeSet;
 
 @Component
 class FindCardsCommand {
+    static final int BATCH_CHUNK_SIZE = 1024;
     private final Logger logger = LoggerFactory.getLogger(FindCardsCommand.class);
     private final CardDatabaseService cardDatabaseService;
+    private final CardIndexService cardIndexService;
+    private final CardNameResolver cardNameResolver;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
-    FindCardsCommand(CardDatabaseService cardDatabaseService) {
+    FindCardsCommand(CardDatabaseService cardDatabaseService, CardIndexService cardIndexService, CardNameResolver cardNameResolver) {
         this.cardDatabaseService = cardDatabaseService;
+        this.cardIndexService = cardIndexService;
+        this.cardNameResolver = cardNameResolver;
     }
 
-    void run(String title, String subtitle) {
-        final var ret = cardDatabaseService.findByName(title, subtitle);
-        if (ret.isEmpty()) {
+    enum Format {
+        CSV, JSONL
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record BatchResult(String name, String title, Card.Id id, double confidence) {
+    }
+
+    void run(String title, String subtitle, String query) {
+        final var mask = query != null ? cardIndexService.query(query) : null;
+        final var ids = new TreeSet<Card.Id>();
+        if (title != null) {
+            for (final var card : cardDatabaseService.findByName(title, subtitle)) {
+                if (mask == null || mask.contains(card.id())) {
+                    ids.add(card.id());
+                }
+            }
+        } else if (mask != null) {
+            mask.toList().forEach(ids::add);
+        } else {
+            throw new AppException("Either a card name or a query is required");
+        }
+
+        if (ids.isEmpty()) {
             logger.info("No card found");
         }
-        final var sortedCards = new TreeSet<Card>(ret);
-        for (final Card card : sortedCards) {
-            logger.info("Found card: {}", card.id());
+        for (final var id : ids) {
+            logger.info("Found card: {}", id);
+        }
+    }
+
+    /**
+     * Resolve card names read from a file (or the standard input when the file is <code>-</code>),
+     * one card per line with an optional title after a <code>|</code> or a tab character.
+     * Results are written to the standard output, in the same order as the input lines:
+     * a name shared by several cards gives one result per card.
+     */
+    void runBatch(String batch, String format) {
+        final Format outputFormat;
+        try {
+            outputFormat = Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new AppException("Unsupported output format: " + format);
+        }
+
+        final var out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        final int count;
+        try (final var in = new BufferedReader(new InputStreamReader(openBatch(batch), StandardCharsets.UTF_8))) {
+            count = resolveBatch(in, outputFormat, out);
+        } catch (IOException e) {
+            throw new AppException("Failed to resolve card names from: " + batch, e);
+        }
+        logger.debug("Resolved {} card names", count);
+    }
+
+    /**
+     * Resolve card names read line by line, in chunks.
+     *
+     * @return the number of written results
+     */
+    int resolveBatch(BufferedReader in, Format format, Writer out) throws IOException {
+        int count = 0;
+        if (format == Format.CSV) {
+            out.write("name,title,id,confidence\n");
+        }
+        final var chunk = new ArrayList<String>(BATCH_CHUNK_SIZE);
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.add(line);
+            if (chunk.size() == BATCH_CHUNK_SIZE) {
+                count += resolveChunk(chunk, format, out);
+                chunk.clear();
+            }
+        }
+        count += resolveChunk(chunk, format, out);
+        out.flush();
+        return count;
+    }
+
+    private static InputStream openBatch(String batch) throws IOException {
+        if ("-".equals(batch)) {
+            // The standard input must not be closed, since it may be used by the shell.
+            return StreamUtils.nonClosing(System.in);
+        }
+        return new FileInputStream(batch);
+    }
+
+    private int resolveChunk(List<String> lines, Format format, Writer out) throws IOException {
+        // Parallel streams keep the encounter order: results are written as lines were read.
+        final var results = lines.parallelStream().flatMap(line -> resolveLine(line).stream()).toList();
+        for (final var result : results) {
+            if (format == Format.JSONL) {
+                out.write(objectMapper.writeValueAsString(result));
+            } else {
+                out.write(String.join(",",
+                        toCsv(result.name()),
+                        toCsv(result.title()),
+                        result.id() == null ? "" : result.id().toString(),
+                        String.format(Locale.ROOT, "%.2f", result.confidence())));
+            }
+            out.write('\n');
+        }
+        out.flush();
+        return results.size();
+    }
+
+    /**
+     * Resolve a line to every card with this exact name (as <code>find-cards</code> does),
+     * or to the closest card name when there is no exact match.
+     */
+    private List<BatchResult> resolveLine(String line) {
+        int sep = line.indexOf('|');
+        if (sep == -1) {
+            sep = line.indexOf('\t');
+        }
+        final var name = (sep == -1 ? line : line.substring(0, sep)).strip();
+        final var titleStr = sep == -1 ? "" : line.substring(sep + 1).strip();
+        final var title = titleStr.isEmpty() ? null : titleStr;
+        final var ids = new TreeSet<Card.Id>();
+        for (final var card : cardDatabaseService.findByName(name, title)) {
+            ids.add(card.id());
+        }
+        if (!ids.isEmpty()) {
+            return ids.stream().map(id -> new BatchResult(name, title, id, 1)).toList();
+        }
+        final var match = cardNameResolver.resolve(name, title);
+        return List.of(match == null
+                ? new BatchResult(name, title, null, 0)
+                : new BatchResult(name, title, match.id(), match.confidence()));
+    }
+
+    private static String toCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1) {
+            return value;
         }
+        return '"' + value.replace("\"", "\"\"") + '"';
     }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.commands;
+
+import net.swumeta.cli.AppException;
+import net.swumeta.cli.EventService;
+import net.swumeta.cli.model.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Follow a live event: melee.gg is polled until the event is over, and event pages
+ * are generated again each time standings are updated.
+ * <p>
+ * Standings are usually published at the end of each round: once two rounds have been
+ * seen, the round duration is estimated, and polling is faster when the next round
+ * is about to end. Polling slows down when nothing happens.
+ */
+@Component
+class FollowEventCommand {
+    private final Logger logger = LoggerFactory.getLogger(FollowEventCommand.class);
+    private final EventService eventService;
+    private final GenerateSiteCommand generateSiteCommand;
+
+    FollowEventCommand(EventService eventService, GenerateSiteCommand generateSiteCommand) {
+        this.eventService = eventService;
+        this.generateSiteCommand = generateSiteCommand;
+    }
+
+    void run(URI melee, Duration minInterval, Duration maxInterval, Duration maxIdle) {
+        if (minInterval.isNegative() || minInterval.isZero() || maxInterval.compareTo(minInterval) < 0) {
+            throw new AppException("Invalid polling intervals: " + minInterval.toSeconds() + " s to " + maxInterval.toSeconds() + " s");
+        }
+        logger.info("Following event: {}", findEvent(melee));
+
+        var interval = minInterval;
+        Duration roundDuration = null;
+        boolean firstSync = true;
+        long lastRoundEnd = 0;
+        boolean roundEndSeen = false;
+        long lastUpdate = System.nanoTime();
+        while (true) {
+            // The event is loaded again on each iteration, so that a lock made during the follow is seen.
+            final var event = findEvent(melee);
+            if (event.locked()) {
+                logger.info("Event is locked: {}", event);
+                return;
+            }
+            final var updatedEvent = eventService.sync(event);
+            final long now = System.nanoTime();
+            if (updatedEvent != event) {
+                // The first sync catches up with standings published before following the event:
+                // only later updates are round boundaries.
+                if (!firstSync) {
+                    if (roundEndSeen) {
+                        // Standings are published once per round: the time between two updates is a round duration.
+                        final var elapsed = Duration.ofNanos(now - lastRoundEnd);
+                        roundDuration = roundDuration == null ? elapsed : roundDuration.plus(elapsed).dividedBy(2);
+                        logger.debug("Estimated round duration: {} min", roundDuration.toMinutes());
+                    }
+                    roundEndSeen = true;
+                    lastRoundEnd = now;
+                }
+                lastUpdate = now;
+                logger.info("Event updated: {}", updatedEvent);
+
+                // Sync has already invalidated decks with new match results: other decks are read from the cache.
+                generateSiteCommand.runEvent(updatedEvent);
+            }
+            firstSync = false;
+
+            final var idle = Duration.ofNanos(now - lastUpdate);
+            if (idle.compareTo(maxIdle) > 0) {
+                logger.info("No update for {} min: event is over", idle.toMinutes());
+                return;
+            }
+            interval = nextInterval(interval, idle, roundDuration, minInterval, maxInterval);
+            logger.debug("Next check in {} s", interval.toSeconds());
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.info("Stopped following event: {}", event);
+                return;
+            }
+        }
+    }
+
+    private Event findEvent(URI melee) {
+        final var event = eventService.list(e -> melee.equals(e.melee())).getFirst();
+        if (event == null) {
+            throw new AppException("Unable to find event: " + melee);
+        }
+        return event;
+    }
+
+    /**
+     * Get the time to wait before checking the event again.
+     *
+     * @param idle          time since the last update
+     * @param roundDuration estimated round duration, or <code>null</code> if unknown
+     */
+    static Duration nextInterval(Duration interval, Duration idle, Duration roundDuration,
+                                Duration minInterval, Duration maxInterval) {
+        if (idle.isZero() || roundDuration == null) {
+            // The event has just been updated, or the round duration is unknown yet.
+            return idle.isZero() ? minInterval : min(interval.multipliedBy(2), maxInterval);
+        }
+        final var untilRoundEnd = roundDuration.minus(idle);
+        final var lead = max(minInterval, roundDuration.dividedBy(10));
+        if (untilRoundEnd.compareTo(lead) > 0) {
+            // Wake up shortly before the round is expected to end.
+            return max(minInterval, min(untilRoundEnd.minus(lead), maxInterval));
+        }
+        if (untilRoundEnd.negated().compareTo(roundDuration) < 0) {
+            // The round should end any time now.
+            return minInterval;
+        }
+        // The round is late: the event is paused or over.
+        return min(interval.multipliedBy(2), maxInterval);
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
@@ -21,8 +21,11 @@ import io.jstach.jstache.*;
 import io.jstach.jstachio.JStachio;
 import net.swumeta.cli.*;
 import net.swumeta.cli.model.*;
+import net.swumeta.cli.statistics.ArchetypeMatchups;
 import net.swumeta.cli.statistics.CardStatisticsService;
 import net.swumeta.cli.statistics.DeckStatisticsService;
+import net.swumeta.cli.statistics.MetagameDatasetService;
+import net.swumeta.cli.statistics.MetagameTimeline;
 import org.eclipse.collections.api.RichIterable;
 import org.eclipse.collections.api.bag.Bag;
 import org.eclipse.collections.api.bag.ImmutableBag;
@@ -45,14 +48,17 @@ import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.text.Normalizer;
 import java.text.NumberFormat;
+import java.time.DayOfWeek;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
+import java.time.temporal.TemporalAdjusters;
 import java.util.*;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -60,27 +66,36 @@ import java.util.stream.Stream;
 
 @Component
 class GenerateSiteCommand {
+    private static final int ARCHETYPE_MATCHUP_PAGE_SIZE = 25;
+    private static final int LEADER_CARDS_MIN_DECKS = 20;
+    private static final int CARD_PAIR_LIMIT = 10;
+    private static final double CARD_REPLACEMENT_MIN_SHARE = 0.15;
+    private static final int CARD_WIN_RATE_MIN_DECKS = 10;
+    private static final int TREND_LEADER_COUNT = 10;
+    private static final int MATCHUP_CHANGE_WINDOW_DAYS = 28;
+    private static final int MATCHUP_CHANGE_MIN_MATCHES = 10;
     private final Logger logger = LoggerFactory.getLogger(GenerateSiteCommand.class);
     private final MetagameService metagameService;
     private final EventService eventService;
     private final CardDatabaseService cardDatabaseService;
     private final DeckService deckService;
     private final DeckStatisticsService deckStatisticsService;
-    private final CardStatisticsService cardStatisticsService;
+    private final MetagameDatasetService metagameDatasetService;
     private final RedirectService redirectService;
     private final QuoteService quoteService;
     private final JStachio jStachio;
     private final AppConfig config;
     private final StaticResources staticResources;
     private final ObjectMapper objectMapper;
+    private final Set<Card.Id> unavailableThumbnails = ConcurrentHashMap.newKeySet();
 
-    GenerateSiteCommand(MetagameService metagameService, EventService eventService, CardDatabaseService cardDatabaseService, DeckService deckService, DeckStatisticsService deckStatisticsService, CardStatisticsService cardStatisticsService, RedirectService redirectService, QuoteService quoteService, AppConfig config, StaticResources staticResources) {
+    GenerateSiteCommand(MetagameService metagameService, EventService eventService, CardDatabaseService cardDatabaseService, DeckService deckService, DeckStatisticsService deckStatisticsService, MetagameDatasetService metagameDatasetService, RedirectService redirectService, QuoteService quoteService, AppConfig config, StaticResources staticResources) {
         this.metagameService = metagameService;
         this.eventService = eventService;
         this.deckService = deckService;
         this.cardDatabaseService = cardDatabaseService;
         this.deckStatisticsService = deckStatisticsService;
-        this.cardStatisticsService = cardStatisticsService;
+        this.metagameDatasetService = metagameDatasetService;
         this.redirectService = redirectService;
         this.quoteService = quoteService;
         this.config = config;
@@ -92,6 +107,7 @@ class GenerateSiteCommand {
 
     void run() {
         logger.info("Generating website...");
+        unavailableThumbnails.clear();
 
         final var outputDir = config.output();
         logger.debug("Output directory: {}", outputDir);
@@ -123,93 +139,18 @@ class GenerateSiteCommand {
             tournamentsDir.mkdirs();
         }
         final var now = LocalDate.now();
-        for (final var event : eventService.list()) {
+        final var events = eventService.list();
+        prerenderThumbnails(events.select(e -> isEventPublished(e, now)),
+                metagame.statistics().leaderMatchups().collect(DeckStatisticsService.LeaderMatchup::leader));
+        for (final var event : events) {
             logger.info("Processing event: {}", event);
-            if (event.hidden() || event.melee() == null || event.players() == 0 || event.date().minusDays(1).isAfter(now)) {
+            if (!isEventPublished(event, now)) {
                 logger.debug("Skipping hidden event: {}", event);
                 continue;
             }
-
-            final var eventName = toLowercaseAscii(event.name());
-            final var eventDirName = "%s/%02d/%02d/%s".formatted(event.date().getYear(), event.date().getMonthValue(), event.date().getDayOfMonth(), eventName);
-            final var eventDir = new File(tournamentsDir, eventDirName);
-            if (!eventDir.exists()) {
-                eventDir.mkdirs();
-            }
-            final var countryFlag = event.location().countryFlag();
-            final var videoLinks = event.links() != null
-                    ? Lists.immutable.fromStream(event.links().stream().map(this::createVideoEmbedLink).filter(Objects::nonNull))
-                    : Lists.immutable.<Link>empty();
-
-            final var deckUris = Lists.immutable.fromStream(event.decks().stream()
-                    .filter(d -> d.url() != null).map(Event.DeckEntry::url));
-            final var deckBag = addMissingArchetypes(event, deckStatisticsService.getMostPlayedDecks(deckUris), 0);
-            final var deckBagTop64 = addMissingArchetypes(event, deckStatisticsService.getMostPlayedDecks(deckUris.take(64)), 64);
-            final var deckBagTop8 = addMissingArchetypes(event, deckStatisticsService.getMostPlayedDecks(deckUris.take(8)), 8);
-
-            final var leaderSeries = toLeaderSerie(deckBag);
-            final var leaderSeriesTop64 = toLeaderSerie(deckBagTop64);
-            final var leaderSeriesTop8 = toLeaderSerie(deckBagTop8);
-
-            final var statsFileName = "statistics.html";
-            final var dataComplete = eventService.isEventComplete(event);
-            renderToFile(new EventStatsModel(new HtmlMeta(
-                            "Statistics from %s (%s)".formatted(event.name(), formatDate(event)),
-                            "Statistics from the Star Wars Unlimited tournament " + event.name() + " taking place in " + event.location() + " on " + formatDate(event),
-                            UriComponentsBuilder.fromUri(config.base()).path("/%s/%s/%s".formatted(tournamentsDir.getName(), eventDirName, statsFileName)).build().toUri()),
-                            event, countryFlag, dataComplete),
-                    new File(eventDir, statsFileName));
-            renderToFile(new KeyValueModel(leaderSeries), new File(eventDir, "all-leaders.json"));
-            renderToFile(new KeyValueModel(leaderSeriesTop64), new File(eventDir, "top64-leaders.json"));
-            renderToFile(new KeyValueModel(leaderSeriesTop8), new File(eventDir, "top8-leaders.json"));
-            renderToFile(new KeyValueModel(computeSurvivorRates(leaderSeries, leaderSeriesTop64)), new File(eventDir, "top64-conversion.json"));
-            renderToFile(new KeyValueModel(computeSurvivorRates(leaderSeries, leaderSeriesTop8)), new File(eventDir, "top8-conversion.json"));
-
-            final var leaderMatchups = deckStatisticsService.getLeaderMatchups(
-                    event.decks().stream().map(Event.DeckEntry::url).filter(Objects::nonNull).toList());
-            renderToFile(toMinrateMatrixModel(leaderMatchups), new File(eventDir, "winrates-matrix.json"));
-            renderToFile(toWinRateDataModel(leaderMatchups), new File(eventDir, "winrates-chart.json"));
-
-            int winLossCount = 0;
-            int drawCount = 0;
-            for (final var entry : event.decks()) {
-                if (entry.url() == null) {
-                    continue;
-                }
-                try {
-                    final var deck = deckService.load(entry.url());
-                    for (final var m : deck.matches()) {
-                        if (Deck.Match.Result.WIN.equals(m.result()) || Deck.Match.Result.LOSS.equals(m.result())) {
-                            winLossCount += 1;
-                        } else if (Deck.Match.Result.DRAW.equals(m.result())) {
-                            drawCount += 1;
-                        }
-                    }
-                } catch (AppException ignore) {
-                }
-            }
-            renderToFile(new KeyValueModel(Lists.immutable.of(
-                    new KeyValue("Wins or Losses", winLossCount),
-                    new KeyValue("Draws", drawCount)
-            )), new File(eventDir, "match-results.json"));
-
-            final var decks = Lists.immutable.fromStream(event.decks().stream()
-                    .map(this::toDeckWithRank)
-                    .filter(Objects::nonNull)
-                    .sorted()
-            );
-            final var leaderBag = nMostCards(Bags.immutable.fromStream(deckBag.stream().map(DeckArchetype::leader).map(deckService::formatLeader)), 4);
-            final var baseBag = nMostCards(Bags.immutable.fromStream(deckBag.stream().map(deckService::lookupBase).map(deckService::formatBase)), 4);
-            renderToFile(new EventModel(new HtmlMeta("%s (%s)".formatted(event.name(), formatDate(event)),
-                            "Results from the Star Wars Unlimited tournament " + event.name() + " taking place in " + event.location() + " on " + formatDate(event) + ", including standings, decklists, Melee.gg link and more",
-                            UriComponentsBuilder.fromUri(config.base()).path("/%s/%s/".formatted(tournamentsDir.getName(), eventDirName)).build().toUri()),
-                            event, countryFlag, dataComplete, "/%s/%s/%s".formatted(tournamentsDir.getName(), eventDirName, statsFileName),
-                            decks, !decks.isEmpty(), videoLinks),
-                    new File(eventDir, "index.html"));
-            renderToFile(new KeyValueModel(leaderBag), new File(eventDir, "usage-leaders.json"));
-            renderToFile(new KeyValueModel(baseBag), new File(eventDir, "usage-bases.json"));
-            eventPages.add(new EventPage(event, isEventNew(event), metagame.events().contains(event), dataComplete,
-                    getEventWinner(event), countryFlag, "/%s/%s/".formatted(tournamentsDir.getName(), eventDirName)));
+            final var eventPath = renderEvent(event, tournamentsDir);
+            eventPages.add(new EventPage(event, isEventNew(event), metagame.events().contains(event), eventService.isEventComplete(event),
+                    getEventWinner(event), event.location().countryFlag(), eventPath));
         }
 
         logger.info("Processing event index page");
@@ -220,8 +161,8 @@ class GenerateSiteCommand {
                 new File(outputDir, "/tournaments/index.html"));
 
         logger.info("Processing metagame page");
-        final var cardBag = cardStatisticsService.getMostPlayedCards(metagame.decks());
-        final var deckBag = cardStatisticsService.getMostPlayedCards(metagame.decks(), c -> c.type().equals(Card.Type.LEADER));
+        final var cardBag = metagame.statistics().cards();
+        final var deckBag = cardBag.select(c -> cardDatabaseService.findById(c).type().equals(Card.Type.LEADER));
 
         final int totalDecks = deckBag.size();
         final int totalCards = cardBag.size();
@@ -240,7 +181,7 @@ class GenerateSiteCommand {
                 new File(outputDir, "index.html"));
 
         logger.info("Processing matchups based on {} decks", metagame.decks().size());
-        final var matchups = deckStatisticsService.getLeaderMatchups(metagame.decks());
+        final var matchups = metagame.statistics().leaderMatchups();
         var matchCount = 0;
         for (final var m : matchups) {
             matchCount += m.matchCount();
@@ -259,93 +200,22 @@ class GenerateSiteCommand {
                 metaHeader), new File(winRatesDir, "index.html"));
         renderToFile(toMinrateMatrixModel(matchups), new File(winRatesDir, "winrates-matrix.json"));
         renderToFile(toWinRateDataModel(matchups), new File(winRatesDir, "winrates-chart.json"));
+        renderArchetypeMatchups(metagame.statistics().archetypeMatchups(), new File(winRatesDir, "archetypes"));
 
-        final var top8Leaders = Bags.immutable.fromStream(
-                metagame.events().stream().flatMap(e -> e.decks().stream())
-                        .filter(e -> e.rank() < 9)
-                        .map(e -> {
-                            if (e.url() != null) {
-                                try {
-                                    return deckService.load(e.url()).leader();
-                                } catch (AppException ignore) {
-                                    return null;
-                                }
-                            }
-                            return e.leader();
-                        }).filter(Objects::nonNull).map(deckService::formatLeader));
-        final var top8LeadersWinners = Bags.immutable.fromStream(
-                metagame.events().stream().flatMap(e -> e.decks().stream())
-                        .filter(e -> e.rank() == 1)
-                        .map(e -> {
-                            if (e.url() != null) {
-                                try {
-                                    return deckService.load(e.url()).leader();
-                                } catch (AppException ignore) {
-                                    return null;
-                                }
-                            }
-                            return e.leader();
-                        }).filter(Objects::nonNull).map(deckService::formatLeader));
-        final var top8Bases = Bags.immutable.fromStream(
-                metagame.events().stream().flatMap(e -> e.decks().stream())
-                        .filter(e -> e.rank() < 9)
-                        .map(e -> {
-                            if (e.url() != null) {
-                                try {
-                                    return deckService.load(e.url()).base();
-                                } catch (AppException ignore) {
-                                    return null;
-                                }
-                            }
-                            return e.base();
-                        }).filter(Objects::nonNull).map(deckService::formatBase));
-        final var top8Archetypes = Bags.immutable.fromStream(
-                metagame.events().stream().flatMap(e -> e.decks().stream())
-                        .filter(e -> e.rank() < 9)
-                        .map(e -> {
-                            if (e.url() != null) {
-                                try {
-                                    final var deck = deckService.load(e.url());
-                                    return deckService.getArchetype(deck);
-                                } catch (AppException ignore) {
-                                    return null;
-                                }
-                            }
-                            if (e.leader() != null && e.base() != null) {
-                                return DeckArchetype.valueOf(e.leader(), e.base());
-                            }
-                            return null;
-                        }).filter(Objects::nonNull).map(deckService::formatArchetype));
-        final var top8ArchetypesWinners = Bags.immutable.fromStream(
-                metagame.events().stream().flatMap(e -> e.decks().stream())
-                        .filter(e -> e.rank() == 1)
-                        .map(e -> {
-                            if (e.url() != null) {
-                                try {
-                                    final var deck = deckService.load(e.url());
-                                    return deckService.getArchetype(deck);
-                                } catch (AppException ignore) {
-                                    return null;
-                                }
-                            }
-                            if (e.leader() != null && e.base() != null) {
-                                return DeckArchetype.valueOf(e.leader(), e.base());
-                            }
-                            return null;
-                        }).filter(Objects::nonNull).map(deckService::formatArchetype));
-        final var top8LeadersCosts = Bags.immutable.fromStream(
-                metagame.events().stream().flatMap(e -> e.decks().stream())
-                        .filter(e -> e.rank() < 9)
-                        .map(e -> {
-                            if (e.url() != null) {
-                                try {
-                                    return deckService.load(e.url()).leader();
-                                } catch (AppException ignore) {
-                                    return null;
-                                }
-                            }
-                            return e.leader();
-                        }).filter(Objects::nonNull).map(cardDatabaseService::findById).map(c -> "Cost " + c.cost()));
+        final var trendsDir = new File(metaDir, "trends");
+        if (!trendsDir.exists()) {
+            trendsDir.mkdirs();
+        }
+        renderToFile(toTrendModel(metagame.timeline(), matchups), new File(trendsDir, "leader-trends.json"));
+        renderToFile(toMatchupChangeModel(metagame.timeline()), new File(trendsDir, "matchup-changes.json"));
+
+        final var stats = metagame.statistics();
+        final var top8Leaders = stats.top8Leaders().collect(deckService::formatLeader);
+        final var top8LeadersWinners = stats.winnerLeaders().collect(deckService::formatLeader);
+        final var top8Bases = stats.top8Bases().collect(deckService::formatBase);
+        final var top8Archetypes = stats.top8Archetypes().collect(deckService::formatArchetype);
+        final var top8ArchetypesWinners = stats.winnerArchetypes().collect(deckService::formatArchetype);
+        final var top8LeadersCosts = stats.top8Leaders().collect(cardDatabaseService::findById).collect(c -> "Cost " + c.cost());
         final var top8Dir = new File(metaDir, "top8");
         if (!top8Dir.exists()) {
             top8Dir.mkdirs();
@@ -361,6 +231,49 @@ class GenerateSiteCommand {
         renderToFile(new KeyValueModel(toSeries(top8ArchetypesWinners)), new File(top8Dir, "top8-archetypes-winners.json"));
         renderToFile(new KeyValueModel(toSeries(top8LeadersCosts)), new File(top8Dir, "top8-leaders-costs.json"));
 
+        logger.info("Processing card statistics");
+        final var cardsDir = new File(metaDir, "cards");
+        if (!cardsDir.exists()) {
+            cardsDir.mkdirs();
+        }
+        final var cardPairs = stats.cardPairs()
+                .select(pairs -> pairs.decks() >= LEADER_CARDS_MIN_DECKS)
+                .collect(this::toCardPairLeader);
+        renderToFile(new CardPairModel(cardPairs), new File(cardsDir, "card-pairs.json"));
+
+        final var leaderCardsDir = new File(cardsDir, "leaders");
+        if (!leaderCardsDir.exists()) {
+            leaderCardsDir.mkdirs();
+        }
+        final var cardNames = UnifiedMap.<Card.Id, String>newMap(512);
+        final var leaderCardFiles = Lists.mutable.<LeaderCardIndexEntry>empty();
+        for (final var usage : stats.cardUsages()) {
+            if (usage.decks() < LEADER_CARDS_MIN_DECKS) {
+                continue;
+            }
+            final var fileName = usage.leader().toString().toLowerCase(Locale.ENGLISH) + ".json";
+            final var leaderName = cardNames.getIfAbsentPutWithKey(usage.leader(), cardDatabaseService::formatName);
+            renderToFile(toLeaderCardsModel(usage, leaderName, cardNames), new File(leaderCardsDir, fileName));
+            leaderCardFiles.add(new LeaderCardIndexEntry(leaderName, usage.decks(), fileName));
+        }
+        renderToFile(new LeaderCardIndexModel(leaderCardFiles.toImmutable()), new File(leaderCardsDir, "index.json"));
+        deleteStaleFiles(leaderCardsDir, leaderCardFiles.collect(LeaderCardIndexEntry::file).toSet().with("index.json"));
+
+        final var cardWinRatesDir = new File(cardsDir, "win-rates");
+        if (!cardWinRatesDir.exists()) {
+            cardWinRatesDir.mkdirs();
+        }
+        final var cardWinRateFiles = new HashSet<String>();
+        for (final var results : stats.cardResults()) {
+            if (results.leader().decks() < LEADER_CARDS_MIN_DECKS) {
+                continue;
+            }
+            final var fileName = results.leader().card().toString().toLowerCase(Locale.ENGLISH) + ".json";
+            renderToFile(new KeyValueModel(toCardWinRateSeries(results, cardNames)), new File(cardWinRatesDir, fileName));
+            cardWinRateFiles.add(fileName);
+        }
+        deleteStaleFiles(cardWinRatesDir, cardWinRateFiles);
+
         logger.info("Processing redirects");
         for (final var redirect : redirectService.getRedirects()) {
             final var resFile = new File(outputDir, redirect.resource().endsWith("/") ? (redirect.resource() + "index.html") : redirect.resource());
@@ -372,6 +285,133 @@ class GenerateSiteCommand {
         generateSitemap(outputDir, Set.of());
     }
 
+    /**
+     * Generate pages and JSON files of a single event, leaving other pages untouched.
+     */
+    void runEvent(Event event) {
+        unavailableThumbnails.clear();
+        if (!isEventPublished(event, LocalDate.now())) {
+            logger.info("Skipping hidden event: {}", event);
+            return;
+        }
+        logger.info("Processing event: {}", event);
+        final var tournamentsDir = new File(config.output(), "tournaments");
+        tournamentsDir.mkdirs();
+        prerenderThumbnails(List.of(event), List.of());
+        renderEvent(event, tournamentsDir);
+    }
+
+    /**
+     * Render thumbnails of leaders and bases shown in pages on the image worker pool,
+     * so that pages do not render card images one at a time.
+     */
+    private void prerenderThumbnails(Iterable<Event> events, Iterable<Card.Id> moreCards) {
+        final var cards = new HashSet<Card.Id>(256);
+        for (final var event : events) {
+            for (final var e : event.decks()) {
+                if (e.leader() != null && e.base() != null) {
+                    cards.add(e.leader());
+                    cards.add(e.base());
+                } else if (e.url() != null) {
+                    try {
+                        final var deck = deckService.load(e.url());
+                        if (deck.isValid()) {
+                            cards.add(deck.leader());
+                            cards.add(deck.base());
+                        }
+                    } catch (AppException ignore) {
+                    }
+                }
+            }
+        }
+        moreCards.forEach(cards::add);
+        cards.removeAll(unavailableThumbnails);
+        logger.debug("Rendering thumbnails for {} cards", cards.size());
+        final var thumbnails = cardDatabaseService.toThumbnails(cards);
+        for (final var card : cards) {
+            if (!thumbnails.containsKey(card)) {
+                // Card art is not fetched again for this card until the next run.
+                unavailableThumbnails.add(card);
+            }
+        }
+    }
+
+    private static boolean isEventPublished(Event event, LocalDate now) {
+        return !event.hidden() && event.melee() != null && event.players() != 0 && !event.date().minusDays(1).isAfter(now);
+    }
+
+    /**
+     * Render event pages to the tournaments directory.
+     *
+     * @return event page path from the website root
+     */
+    private String renderEvent(Event event, File tournamentsDir) {
+        final var eventName = toLowercaseAscii(event.name());
+        final var eventDirName = "%s/%02d/%02d/%s".formatted(event.date().getYear(), event.date().getMonthValue(), event.date().getDayOfMonth(), eventName);
+        final var eventDir = new File(tournamentsDir, eventDirName);
+        if (!eventDir.exists()) {
+            eventDir.mkdirs();
+        }
+        final var countryFlag = event.location().countryFlag();
+        final var videoLinks = event.links() != null
+                ? Lists.immutable.fromStream(event.links().stream().map(this::createVideoEmbedLink).filter(Objects::nonNull))
+                : Lists.immutable.<Link>empty();
+
+        final var deckUris = Lists.immutable.fromStream(event.decks().stream()
+                .filter(d -> d.url() != null).map(Event.DeckEntry::url));
+        final var dataset = metagameDatasetService.createFromDecks(deckUris);
+        final var deckBag = addMissingArchetypes(event, deckStatisticsService.getMostPlayedDecks(dataset), 0);
+        final var deckBagTop64 = addMissingArchetypes(event, deckStatisticsService.getMostPlayedDecks(dataset, 64), 64);
+        final var deckBagTop8 = addMissingArchetypes(event, deckStatisticsService.getMostPlayedDecks(dataset, 8), 8);
+
+        final var leaderSeries = toLeaderSerie(deckBag);
+        final var leaderSeriesTop64 = toLeaderSerie(deckBagTop64);
+        final var leaderSeriesTop8 = toLeaderSerie(deckBagTop8);
+
+        final var statsFileName = "statistics.html";
+        final var dataComplete = eventService.isEventComplete(event);
+        renderToFile(new EventStatsModel(new HtmlMeta(
+                        "Statistics from %s (%s)".formatted(event.name(), formatDate(event)),
+                        "Statistics from the Star Wars Unlimited tournament " + event.name() + " taking place in " + event.location() + " on " + formatDate(event),
+                        UriComponentsBuilder.fromUri(config.base()).path("/%s/%s/%s".formatted(tournamentsDir.getName(), eventDirName, statsFileName)).build().toUri()),
+                        event, countryFlag, dataComplete),
+                new File(eventDir, statsFileName));
+        renderToFile(new KeyValueModel(leaderSeries), new File(eventDir, "all-leaders.json"));
+        renderToFile(new KeyValueModel(leaderSeriesTop64), new File(eventDir, "top64-leaders.json"));
+        renderToFile(new KeyValueModel(leaderSeriesTop8), new File(eventDir, "top8-leaders.json"));
+        renderToFile(new KeyValueModel(computeSurvivorRates(leaderSeries, leaderSeriesTop64)), new File(eventDir, "top64-conversion.json"));
+        renderToFile(new KeyValueModel(computeSurvivorRates(leaderSeries, leaderSeriesTop8)), new File(eventDir, "top8-conversion.json"));
+
+        final var leaderMatchups = deckStatisticsService.getLeaderMatchups(dataset);
+        renderToFile(toMinrateMatrixModel(leaderMatchups), new File(eventDir, "winrates-matrix.json"));
+        renderToFile(toWinRateDataModel(leaderMatchups), new File(eventDir, "winrates-chart.json"));
+
+        final var matchResults = deckStatisticsService.getMatchResults(dataset);
+        final int winLossCount = matchResults.occurrencesOf(Deck.Match.Result.WIN) + matchResults.occurrencesOf(Deck.Match.Result.LOSS);
+        final int drawCount = matchResults.occurrencesOf(Deck.Match.Result.DRAW);
+        renderToFile(new KeyValueModel(Lists.immutable.of(
+                new KeyValue("Wins or Losses", winLossCount),
+                new KeyValue("Draws", drawCount)
+        )), new File(eventDir, "match-results.json"));
+
+        final var decks = Lists.immutable.fromStream(event.decks().stream()
+                .map(this::toDeckWithRank)
+                .filter(Objects::nonNull)
+                .sorted()
+        );
+        final var leaderBag = nMostCards(Bags.immutable.fromStream(deckBag.stream().map(DeckArchetype::leader).map(deckService::formatLeader)), 4);
+        final var baseBag = nMostCards(Bags.immutable.fromStream(deckBag.stream().map(deckService::lookupBase).map(deckService::formatBase)), 4);
+        renderToFile(new EventModel(new HtmlMeta("%s (%s)".formatted(event.name(), formatDate(event)),
+                        "Results from the Star Wars Unlimited tournament " + event.name() + " taking place in " + event.location() + " on " + formatDate(event) + ", including standings, decklists, Melee.gg link and more",
+                        UriComponentsBuilder.fromUri(config.base()).path("/%s/%s/".formatted(tournamentsDir.getName(), eventDirName)).build().toUri()),
+                        event, countryFlag, dataComplete, "/%s/%s/%s".formatted(tournamentsDir.getName(), eventDirName, statsFileName),
+                        decks, !decks.isEmpty(), videoLinks),
+                new File(eventDir, "index.html"));
+        renderToFile(new KeyValueModel(leaderBag), new File(eventDir, "usage-leaders.json"));
+        renderToFile(new KeyValueModel(baseBag), new File(eventDir, "usage-bases.json"));
+        return "/%s/%s/".formatted(tournamentsDir.getName(), eventDirName);
+    }
+
     private ImmutableBag<DeckArchetype> addMissingArchetypes(Event event, Bag<DeckArchetype> existing, int limit) {
         final var moreArchetypes = Bags.mutable.withAll(existing);
         for (final var e : event.decks()) {
@@ -395,7 +435,8 @@ class GenerateSiteCommand {
             final var aspects = Lists.mutable.<Card.Aspect>fromStream(
                     Stream.concat(leaderCard.aspects().stream(), baseCard.aspects().stream())).toSortedList();
             final var player = e.player() != null ? e.player() : "N/A";
-            return new DeckWithRank(e.rank(), e.pending(), null, player, name, leaderCard, baseCard, aspects, formatMatchRecord(null), null);
+            return new DeckWithRank(e.rank(), e.pending(), null, player, name, leaderCard, baseCard,
+                    toThumbnail(leaderCard), toThumbnail(baseCard), aspects, formatMatchRecord(null), null);
         }
         if (e.url() == null) {
             return null;
@@ -408,16 +449,30 @@ class GenerateSiteCommand {
             return null;
         }
         final var player = e.player() != null ? e.player() : deck.player();
+        final var leaderCard = cardDatabaseService.findById(deck.leader());
+        final var baseCard = cardDatabaseService.findById(deck.base());
         return new DeckWithRank(
                 e.rank(), e.pending(), deck, player, deckService.formatName(deck),
-                cardDatabaseService.findById(deck.leader()),
-                cardDatabaseService.findById(deck.base()),
+                leaderCard, baseCard, toThumbnail(leaderCard), toThumbnail(baseCard),
                 getAspects(deck),
                 formatMatchRecord(deck.matchRecord()),
                 deckService.toSwudbJson(deck)
         );
     }
 
+    private CardDatabaseService.Thumbnail toThumbnail(Card card) {
+        if (!unavailableThumbnails.contains(card.id())) {
+            try {
+                return cardDatabaseService.toThumbnail(card.id());
+            } catch (AppException e) {
+                // Card art is not fetched again for this card until the next run.
+                unavailableThumbnails.add(card.id());
+                logger.warn("Using remote thumbnail for card: {} ({})", card.id(), e.getMessage());
+            }
+        }
+        return CardDatabaseService.Thumbnail.remote(card.thumbnail());
+    }
+
     private static String formatMatchRecord(String s) {
         if (s == null || "0-0-0".equals(s)) {
             return "N/A";
@@ -441,6 +496,19 @@ class GenerateSiteCommand {
                 .toSortedList((kv1, kv2) -> Integer.compare(kv2.value(), kv1.value())).reverseThis().toImmutableList();
     }
 
+    /**
+     * Get the win rate difference (in percentage points) between decks including each card and decks without this card:
+     * only cards with enough decks on both sides are included.
+     */
+    private ImmutableList<KeyValue> toCardWinRateSeries(CardStatisticsService.LeaderCardResults results, Map<Card.Id, String> cardNames) {
+        return results.cards()
+                .select(with -> with.decks() >= CARD_WIN_RATE_MIN_DECKS && results.without(with).decks() >= CARD_WIN_RATE_MIN_DECKS)
+                .collect(with -> new KeyValue(cardNames.computeIfAbsent(with.card(), cardDatabaseService::formatName),
+                        (int) Math.round(100d * (with.winRate() - results.without(with).winRate()))))
+                .toSortedList(Comparator.comparingInt(KeyValue::value))
+                .toImmutable();
+    }
+
     private ImmutableList<KeyValue> computeSurvivorRates(ImmutableList<KeyValue> leaders, ImmutableList<KeyValue> survivorBracket) {
         final var survivorSeries = Lists.mutable.<KeyValue>ofInitialCapacity(survivorBracket.size());
         for (final var kv : leaders) {
@@ -521,7 +589,7 @@ class GenerateSiteCommand {
     }
 
     record Icon(
-            URI url,
+            CardDatabaseService.Thumbnail thumbnail,
             String alt
     ) {
     }
@@ -558,6 +626,7 @@ class GenerateSiteCommand {
     }
 
     record DeckWithRank(int rank, boolean pending, Deck deck, String player, String name, Card leader, Card base,
+                        CardDatabaseService.Thumbnail leaderThumbnail, CardDatabaseService.Thumbnail baseThumbnail,
                         Iterable<Card.Aspect> aspects, String matchRecord,
                         String swudbFormat) implements Comparable<DeckWithRank> {
         @Override
@@ -833,8 +902,8 @@ class GenerateSiteCommand {
         if (leaderName == null || baseName == null) {
             return null;
         }
-        final var leader = new Icon(cardDatabaseService.findById(leaderId).thumbnail(), leaderName);
-        final var base = new Icon(cardDatabaseService.findById(baseId).thumbnail(), baseName);
+        final var leader = new Icon(toThumbnail(cardDatabaseService.findById(leaderId)), leaderName);
+        final var base = new Icon(toThumbnail(cardDatabaseService.findById(baseId)), baseName);
         return new EventWinner(leader, base);
     }
 
@@ -950,7 +1019,8 @@ class GenerateSiteCommand {
 
     record WinrateMatrixLeader(
             String name,
-            URI art
+            URI art,
+            String artSrcset
     ) {
     }
 
@@ -967,20 +1037,24 @@ class GenerateSiteCommand {
     private WinrateMatrixModel toMinrateMatrixModel(ImmutableList<DeckStatisticsService.LeaderMatchup> leaderMatchups) {
         final var nf = NumberFormat.getNumberInstance(Locale.ENGLISH);
         nf.setMaximumFractionDigits(1);
-        return new WinrateMatrixModel(Lists.immutable.fromStream(leaderMatchups.stream().map(matchup -> new WinrateMatrixEntry(
-                new WinrateMatrixLeader(
-                        cardDatabaseService.formatName(matchup.leader()),
-                        cardDatabaseService.findById(matchup.leader()).thumbnail()
-                ),
-                Lists.immutable.fromStream(matchup.opponents().stream().map(op -> new WinrateMatrixOpponent(
-                        cardDatabaseService.formatName(op.opponent()),
-                        (int) Math.round(100d * op.winRate()),
-                        op.matchCount(),
-                        op.matchCount(Deck.Match.Result.WIN),
-                        op.matchCount(Deck.Match.Result.LOSS),
-                        op.matchCount(Deck.Match.Result.DRAW)
-                )))
-        ))));
+        return new WinrateMatrixModel(Lists.immutable.fromStream(leaderMatchups.stream().map(matchup -> {
+            final var thumbnail = toThumbnail(cardDatabaseService.findById(matchup.leader()));
+            return new WinrateMatrixEntry(
+                    new WinrateMatrixLeader(
+                            cardDatabaseService.formatName(matchup.leader()),
+                            thumbnail.src(),
+                            thumbnail.srcset() != null ? thumbnail.srcset() : ""
+                    ),
+                    Lists.immutable.fromStream(matchup.opponents().stream().map(op -> new WinrateMatrixOpponent(
+                            cardDatabaseService.formatName(op.opponent()),
+                            (int) Math.round(100d * op.winRate()),
+                            op.matchCount(),
+                            op.matchCount(Deck.Match.Result.WIN),
+                            op.matchCount(Deck.Match.Result.LOSS),
+                            op.matchCount(Deck.Match.Result.DRAW)
+                    )))
+            );
+        })));
     }
 
     private WinrateDataModel toWinRateDataModel(ImmutableList<DeckStatisticsService.LeaderMatchup> leaderMatchups) {
@@ -994,6 +1068,282 @@ class GenerateSiteCommand {
         );
     }
 
+    @JStache(path = "/templates/archetype-matchups-index.mustache")
+    @JStacheConfig
+    record ArchetypeMatchupIndexModel(
+            int minMatches,
+            int pageCount,
+            ImmutableList<ArchetypeMatchupIndexEntry> archetypes
+    ) {
+    }
+
+    record ArchetypeMatchupIndexEntry(
+            String name,
+            int decks,
+            int page
+    ) {
+    }
+
+    @JStache(path = "/templates/archetype-matchups.mustache")
+    @JStacheConfig
+    record ArchetypeMatchupPageModel(
+            int page,
+            ImmutableList<ArchetypeMatchupEntry> entries
+    ) {
+    }
+
+    record ArchetypeMatchupEntry(
+            String name,
+            int decks,
+            ImmutableList<WinrateMatrixOpponent> opponents
+    ) {
+    }
+
+    /**
+     * Render archetype matchups as pages of JSON files, with an index listing the page of each archetype:
+     * archetypes without any matchup are not included.
+     */
+    private void renderArchetypeMatchups(ArchetypeMatchups archetypeMatchups, File archetypesDir) {
+        if (!archetypesDir.exists()) {
+            archetypesDir.mkdirs();
+        }
+        final var indexEntries = Lists.mutable.<ArchetypeMatchupIndexEntry>empty();
+        final var pageEntries = Lists.mutable.<ArchetypeMatchupEntry>ofInitialCapacity(ARCHETYPE_MATCHUP_PAGE_SIZE);
+        int page = 1;
+        for (int i = 0; i < archetypeMatchups.size(); i++) {
+            final var opponents = archetypeMatchups.getMatchups(i);
+            if (opponents.isEmpty()) {
+                continue;
+            }
+            final var name = deckService.formatArchetype(archetypeMatchups.archetype(i));
+            indexEntries.add(new ArchetypeMatchupIndexEntry(name, archetypeMatchups.decks(i), page));
+            pageEntries.add(new ArchetypeMatchupEntry(name, archetypeMatchups.decks(i), opponents.collect(op -> new WinrateMatrixOpponent(
+                    deckService.formatArchetype(op.opponent()),
+                    (int) Math.round(100d * op.winRate()),
+                    op.matchCount(),
+                    op.wins(),
+                    op.losses(),
+                    op.draws()
+            ))));
+            if (pageEntries.size() == ARCHETYPE_MATCHUP_PAGE_SIZE) {
+                renderToFile(new ArchetypeMatchupPageModel(page, pageEntries.toImmutable()), new File(archetypesDir, "page-" + page + ".json"));
+                pageEntries.clear();
+                page += 1;
+            }
+        }
+        if (!pageEntries.isEmpty()) {
+            renderToFile(new ArchetypeMatchupPageModel(page, pageEntries.toImmutable()), new File(archetypesDir, "page-" + page + ".json"));
+        } else {
+            page -= 1;
+        }
+        renderToFile(new ArchetypeMatchupIndexModel(ArchetypeMatchups.DEFAULT_MIN_MATCHES, page, indexEntries.toImmutable()),
+                new File(archetypesDir, "index.json"));
+        // Remove pages left from a previous run with more archetypes.
+        int extraPage = page + 1;
+        while (new File(archetypesDir, "page-" + extraPage + ".json").delete()) {
+            extraPage += 1;
+        }
+    }
+
+    /**
+     * Remove JSON files left from a previous run, such as files of leaders
+     * which are no longer played in enough decks.
+     */
+    private void deleteStaleFiles(File dir, Set<String> fileNames) {
+        final var staleFiles = dir.listFiles((d, name) -> name.endsWith(".json") && !fileNames.contains(name));
+        if (staleFiles == null) {
+            return;
+        }
+        for (final var file : staleFiles) {
+            logger.debug("Deleting stale file: {}", file);
+            if (!file.delete()) {
+                logger.warn("Failed to delete stale file: {}", file);
+            }
+        }
+    }
+
+    @JStache(path = "/templates/leader-cards-index.mustache")
+    @JStacheConfig
+    record LeaderCardIndexModel(
+            ImmutableList<LeaderCardIndexEntry> leaders
+    ) {
+    }
+
+    record LeaderCardIndexEntry(
+            String leader,
+            int decks,
+            String file
+    ) {
+    }
+
+    @JStache(path = "/templates/leader-cards.mustache")
+    @JStacheConfig
+    record LeaderCardsModel(
+            String leader,
+            int decks,
+            ImmutableList<LeaderCardEntry> cards
+    ) {
+    }
+
+    record LeaderCardEntry(
+            String name,
+            int inclusion,
+            String averageCopies,
+            int mainCopies,
+            int sideboardCopies
+    ) {
+    }
+
+    private LeaderCardsModel toLeaderCardsModel(CardStatisticsService.LeaderCardUsage usage, String leaderName,
+                                                Map<Card.Id, String> cardNames) {
+        final var nf = NumberFormat.getNumberInstance(Locale.ENGLISH);
+        nf.setMaximumFractionDigits(1);
+        // Card names are looked up once per card, whatever the number of leaders.
+        return new LeaderCardsModel(leaderName, usage.decks(), usage.cards().collect(c -> new LeaderCardEntry(
+                cardNames.computeIfAbsent(c.card(), cardDatabaseService::formatName),
+                (int) Math.round(100d * usage.inclusionRate(c)),
+                nf.format(c.averageCopies()),
+                c.mainCopies(),
+                c.sideboardCopies()
+        )));
+    }
+
+    @JStache(path = "/templates/card-pairs.mustache")
+    @JStacheConfig
+    record CardPairModel(
+            ImmutableList<CardPairLeader> leaders
+    ) {
+    }
+
+    record CardPairLeader(
+            String leader,
+            int decks,
+            ImmutableList<CardPairEntry> together,
+            ImmutableList<CardPairEntry> replacements
+    ) {
+    }
+
+    record CardPairEntry(
+            String first,
+            String second,
+            int together,
+            int rate,
+            String lift
+    ) {
+    }
+
+    /**
+     * Select cards most often played together (by Jaccard index),
+     * and frequent cards which are rarely played together (by lift).
+     */
+    private CardPairLeader toCardPairLeader(CardStatisticsService.CardPairs pairs) {
+        final var nf = NumberFormat.getNumberInstance(Locale.ENGLISH);
+        nf.setMaximumFractionDigits(2);
+        final Function<CardStatisticsService.CardPair, CardPairEntry> toEntry = p -> new CardPairEntry(
+                cardDatabaseService.formatName(p.first()),
+                cardDatabaseService.formatName(p.second()),
+                p.together(),
+                (int) Math.round(100d * p.together() / pairs.decks()),
+                nf.format(pairs.lift(p))
+        );
+        final var together = pairs.pairs()
+                .select(p -> p.together() > 0)
+                .toSortedListBy(p -> -p.jaccard())
+                .take(CARD_PAIR_LIMIT)
+                .collect(toEntry::apply);
+        final int minDecks = (int) Math.ceil(CARD_REPLACEMENT_MIN_SHARE * pairs.decks());
+        final var replacements = pairs.pairs()
+                .select(p -> p.firstDecks() >= minDecks && p.secondDecks() >= minDecks && pairs.lift(p) < 1)
+                .toSortedListBy(pairs::lift)
+                .take(CARD_PAIR_LIMIT)
+                .collect(toEntry::apply);
+        return new CardPairLeader(cardDatabaseService.formatName(pairs.leader()), pairs.decks(),
+                together.toImmutable(), replacements.toImmutable());
+    }
+
+    @JStache(path = "/templates/trends.mustache")
+    @JStacheConfig
+    record TrendModel(
+            ImmutableList<String> weeks,
+            ImmutableList<TrendSerie> series
+    ) {
+    }
+
+    record TrendSerie(
+            String leader,
+            ImmutableList<TrendPoint> points
+    ) {
+    }
+
+    record TrendPoint(
+            String metaShare,
+            int winRate,
+            int matches
+    ) {
+    }
+
+    @JStache(path = "/templates/matchup-changes.mustache")
+    @JStacheConfig
+    record MatchupChangeModel(
+            String before,
+            String after,
+            ImmutableList<MatchupChangeEntry> entries
+    ) {
+    }
+
+    record MatchupChangeEntry(
+            String leader,
+            String opponent,
+            int winRateBefore,
+            int winRateAfter,
+            int matchesBefore,
+            int matchesAfter
+    ) {
+    }
+
+    private TrendModel toTrendModel(MetagameTimeline timeline, ImmutableList<DeckStatisticsService.LeaderMatchup> leaderMatchups) {
+        final var nf = NumberFormat.getNumberInstance(Locale.ENGLISH);
+        nf.setMaximumFractionDigits(1);
+        final var weeks = Lists.mutable.<String>empty();
+        final var leaders = leaderMatchups.take(TREND_LEADER_COUNT).collect(DeckStatisticsService.LeaderMatchup::leader);
+        final var points = UnifiedMap.<Card.Id, List<TrendPoint>>newMap(leaders.size());
+        leaders.forEach(leader -> points.put(leader, new ArrayList<>(52)));
+        if (timeline.firstDate() != null) {
+            // Each window is a week ending on Sunday.
+            for (var end = timeline.firstDate().with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+                 !end.minusDays(6).isAfter(timeline.lastDate()); end = end.plusWeeks(1)) {
+                weeks.add(DateTimeFormatter.ISO_LOCAL_DATE.format(end));
+                final var weekMatchups = timeline.window(end.minusDays(6), end).leaderMatchups()
+                        .groupByUniqueKey(DeckStatisticsService.LeaderMatchup::leader);
+                for (final var leader : leaders) {
+                    final var m = weekMatchups.get(leader);
+                    points.get(leader).add(m == null ? new TrendPoint("0", 0, 0)
+                            : new TrendPoint(nf.format(100d * m.metaShare()), (int) Math.round(100d * m.winRate()), m.matchCount()));
+                }
+            }
+        }
+        return new TrendModel(weeks.toImmutable(), leaders.collect(leader ->
+                new TrendSerie(cardDatabaseService.formatName(leader), Lists.immutable.withAll(points.get(leader)))));
+    }
+
+    private MatchupChangeModel toMatchupChangeModel(MetagameTimeline timeline) {
+        final var lastDate = timeline.lastDate() != null ? timeline.lastDate() : LocalDate.now();
+        final var after = timeline.window(lastDate.minusDays(MATCHUP_CHANGE_WINDOW_DAYS - 1), lastDate);
+        final var before = timeline.window(after.from().minusDays(MATCHUP_CHANGE_WINDOW_DAYS), after.from().minusDays(1));
+        final var entries = timeline.getMatchupChanges(before, after)
+                .select(c -> c.before().matchCount() >= MATCHUP_CHANGE_MIN_MATCHES && c.after().matchCount() >= MATCHUP_CHANGE_MIN_MATCHES)
+                .collect(c -> new MatchupChangeEntry(
+                        cardDatabaseService.formatName(c.leader()),
+                        cardDatabaseService.formatName(c.opponent()),
+                        (int) Math.round(100d * c.before().winRate()),
+                        (int) Math.round(100d * c.after().winRate()),
+                        c.before().matchCount(),
+                        c.after().matchCount()
+                ));
+        return new MatchupChangeModel(DateTimeFormatter.ISO_LOCAL_DATE.format(before.from()),
+                DateTimeFormatter.ISO_LOCAL_DATE.format(after.from()), entries);
+    }
+
     private String formatDate(Event e) {
         return DateTimeFormatter.ofLocalizedDate(FormatStyle.LONG).withLocale(Locale.ENGLISH).format(e.date());
     }
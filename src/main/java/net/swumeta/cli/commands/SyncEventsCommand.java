@@ -16,11 +16,19 @@
 
 package net.swumeta.cli.commands;
 
+import net.swumeta.cli.AppException;
 import net.swumeta.cli.EventService;
+import net.swumeta.cli.model.Event;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Component
 class SyncEventsCommand {
     private final Logger logger = LoggerFactory.getLogger(SyncEventsCommand.class);
@@ -30,11 +38,56 @@ class SyncEventsCommand {
         this.eventService = eventService;
     }
 
-    void run() {
-        logger.info("Synchronizing events");
-        for (final var event : eventService.list()) {
-            logger.info("Processing event: {}", event);
-            eventService.sync(event);
+    void run(int parallelism) {
+        if (parallelism < 1) {
+            throw new AppException("Parallelism must be at least 1: " + parallelism);
+        }
+        final var events = eventService.list();
+        logger.info("Synchronizing {} events (parallelism: {})", events.size(), parallelism);
+
+        // Syncing an event is mostly waiting for melee.gg: virtual threads are cheap,
+        // while the semaphore bounds the number of events being processed at the same time.
+        final var permits = new Semaphore(parallelism);
+        final var processed = new AtomicInteger();
+        final var failed = new AtomicInteger();
+        final var start = System.currentTimeMillis();
+        try (final var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final var tasks = new ArrayList<Future<?>>(events.size());
+            for (final var event : events) {
+                tasks.add(executor.submit(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        syncEvent(event, events.size(), processed, failed);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (final var task : tasks) {
+                try {
+                    task.get();
+                } catch (Exception e) {
+                    throw new AppException("Failed to synchronize events", e);
+                }
+            }
+        }
+
+        logger.info("Synchronized {} events in {} s", events.size() - failed.get(), (System.currentTimeMillis() - start) / 1000);
+        if (failed.get() != 0) {
+            throw new AppException("Failed to synchronize " + failed.get() + " events");
+        }
+    }
+
+    private void syncEvent(Event event, int eventCount, AtomicInteger processed, AtomicInteger failed) {
+        final var eventStart = System.currentTimeMillis();
+        try {
+            final var updatedEvent = eventService.sync(event);
+            final var status = updatedEvent == event ? "unchanged" : "updated";
+            logger.info("[{}/{}] Event {} in {} ms: {}", processed.incrementAndGet(), eventCount,
+                    status, System.currentTimeMillis() - eventStart, event);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            logger.error("[{}/{}] Failed to synchronize event: {}", processed.incrementAndGet(), eventCount, event, e);
         }
     }
 }
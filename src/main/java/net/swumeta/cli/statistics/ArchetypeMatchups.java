@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.statistics;
+
+import net.swumeta.cli.model.Deck;
+import net.swumeta.cli.model.DeckArchetype;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.primitive.LongObjectMaps;
+import org.eclipse.collections.api.factory.primitive.ObjectIntMaps;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Match results of each deck archetype against each opponent archetype.
+ * <p>
+ * Most archetype pairs are never played: results are stored in compressed rows
+ * (one row per archetype, listing opponents with results), and pairs with fewer
+ * matches than a minimum sample size are not stored at all.
+ * Archetypes are sorted by number of decks.
+ */
+public final class ArchetypeMatchups {
+    /**
+     * Default minimum number of matches between two archetypes for a matchup to be included.
+     */
+    public static final int DEFAULT_MIN_MATCHES = 5;
+    private final DeckArchetype[] archetypes;
+    private final int[] decks;
+    private final int[] rowOffsets;
+    private final int[] opponents;
+    private final int[] wins;
+    private final int[] losses;
+    private final int[] draws;
+
+    private ArchetypeMatchups(DeckArchetype[] archetypes, int[] decks, int[] rowOffsets, int[] opponents,
+                              int[] wins, int[] losses, int[] draws) {
+        this.archetypes = archetypes;
+        this.decks = decks;
+        this.rowOffsets = rowOffsets;
+        this.opponents = opponents;
+        this.wins = wins;
+        this.losses = losses;
+        this.draws = draws;
+    }
+
+    /**
+     * Get the number of archetypes.
+     */
+    public int size() {
+        return archetypes.length;
+    }
+
+    public DeckArchetype archetype(int i) {
+        return archetypes[i];
+    }
+
+    /**
+     * Get the number of decks played with an archetype.
+     */
+    public int decks(int i) {
+        return decks[i];
+    }
+
+    /**
+     * Get the number of stored matchups (archetype pairs).
+     */
+    public int matchupCount() {
+        return opponents.length;
+    }
+
+    /**
+     * Get matchups of an archetype, sorted by opponent meta share.
+     */
+    public ImmutableList<ArchetypeMatchup> getMatchups(int i) {
+        final var matchups = Lists.mutable.<ArchetypeMatchup>ofInitialCapacity(rowOffsets[i + 1] - rowOffsets[i]);
+        for (int j = rowOffsets[i]; j < rowOffsets[i + 1]; j++) {
+            matchups.add(new ArchetypeMatchup(archetypes[opponents[j]], wins[j], losses[j], draws[j]));
+        }
+        return matchups.toImmutable();
+    }
+
+    public record ArchetypeMatchup(DeckArchetype opponent, int wins, int losses, int draws) {
+        public double winRate() {
+            final int matchCount = matchCount();
+            return matchCount == 0 ? 0d : wins / (double) matchCount;
+        }
+
+        public int matchCount() {
+            return wins + losses + draws;
+        }
+    }
+
+    static final class Builder {
+        private final MutableObjectIntMap<DeckArchetype> decks = ObjectIntMaps.mutable.empty();
+        private final MutableObjectIntMap<DeckArchetype> indexes = ObjectIntMaps.mutable.empty();
+        private final MutableLongObjectMap<int[]> results = LongObjectMaps.mutable.empty();
+
+        void addDecks(DeckArchetype archetype, int count) {
+            indexOf(archetype);
+            decks.addToValue(archetype, count);
+        }
+
+        void addResults(DeckArchetype archetype, DeckArchetype opponent, int wins, int losses, int draws) {
+            final long key = ((long) indexOf(archetype) << 32) | indexOf(opponent);
+            final var r = results.getIfAbsentPut(key, () -> new int[3]);
+            r[0] += wins;
+            r[1] += losses;
+            r[2] += draws;
+        }
+
+        void addResult(DeckArchetype archetype, DeckArchetype opponent, Deck.Match.Result result) {
+            switch (result) {
+                case WIN -> addResults(archetype, opponent, 1, 0, 0);
+                case LOSS -> addResults(archetype, opponent, 0, 1, 0);
+                case DRAW -> addResults(archetype, opponent, 0, 0, 1);
+                default -> {
+                }
+            }
+        }
+
+        private int indexOf(DeckArchetype archetype) {
+            return indexes.getIfAbsentPut(archetype, indexes.size());
+        }
+
+        ArchetypeMatchups build(int minMatches) {
+            Assert.isTrue(minMatches > 0, "Minimum number of matches must be positive");
+            final var archetypes = new DeckArchetype[indexes.size()];
+            indexes.forEachKeyValue((archetype, i) -> archetypes[i] = archetype);
+            Arrays.sort(archetypes, Comparator.<DeckArchetype>comparingInt(decks::get).reversed().thenComparing(Comparator.naturalOrder()));
+            // Map insertion indexes to sorted indexes.
+            final var sortedIndexes = new int[archetypes.length];
+            final var archetypeDecks = new int[archetypes.length];
+            for (int i = 0; i < archetypes.length; i++) {
+                sortedIndexes[indexes.get(archetypes[i])] = i;
+                archetypeDecks[i] = decks.get(archetypes[i]);
+            }
+
+            // Matchup keys are sorted by archetype then opponent: this is the row storage order.
+            final var sortedKeys = new long[results.size()];
+            final int[] keyCount = {0};
+            results.forEachKeyValue((key, r) -> {
+                if (r[0] + r[1] + r[2] >= minMatches) {
+                    sortedKeys[keyCount[0]++] = ((long) sortedIndexes[(int) (key >>> 32)] << 32) | sortedIndexes[(int) key];
+                }
+            });
+            final var keys = Arrays.copyOf(sortedKeys, keyCount[0]);
+            Arrays.sort(keys);
+            final var rowOffsets = new int[archetypes.length + 1];
+            final var opponents = new int[keys.length];
+            final var wins = new int[keys.length];
+            final var losses = new int[keys.length];
+            final var draws = new int[keys.length];
+            // Original keys are needed to look results up: sorted indexes are mapped back.
+            final var insertionIndexes = new int[archetypes.length];
+            for (int i = 0; i < archetypes.length; i++) {
+                insertionIndexes[i] = indexes.get(archetypes[i]);
+            }
+            for (int j = 0; j < keys.length; j++) {
+                final int row = (int) (keys[j] >>> 32);
+                final int col = (int) keys[j];
+                rowOffsets[row + 1] += 1;
+                opponents[j] = col;
+                final var r = results.get(((long) insertionIndexes[row] << 32) | insertionIndexes[col]);
+                wins[j] = r[0];
+                losses[j] = r[1];
+                draws[j] = r[2];
+            }
+            for (int i = 0; i < archetypes.length; i++) {
+                rowOffsets[i + 1] += rowOffsets[i];
+            }
+            return new ArchetypeMatchups(archetypes, archetypeDecks, rowOffsets, opponents, wins, losses, draws);
+        }
+    }
+}
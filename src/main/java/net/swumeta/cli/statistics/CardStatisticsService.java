@@ -16,73 +16,413 @@
 
 package net.swumeta.cli.statistics;
 
-import net.swumeta.cli.AppException;
-import net.swumeta.cli.CardDatabaseService;
-import net.swumeta.cli.DeckService;
+import net.swumeta.cli.CardIndexService;
 import net.swumeta.cli.model.Card;
 import net.swumeta.cli.model.Deck;
 import org.eclipse.collections.api.bag.ImmutableBag;
-import org.eclipse.collections.api.bag.MutableBag;
 import org.eclipse.collections.api.factory.Bags;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.primitive.IntLists;
+import org.eclipse.collections.api.list.ImmutableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.net.URI;
-import java.util.List;
+import java.util.Arrays;
 import java.util.function.Predicate;
 
 @Service
 public class CardStatisticsService {
-    private static final Predicate<Card> NULL_FILTER = e -> true;
     private final Logger logger = LoggerFactory.getLogger(CardStatisticsService.class);
-    private final DeckService deckService;
-    private final CardDatabaseService cardDatabaseService;
+    private final MetagameDatasetService metagameDatasetService;
+    private final CardIndexService cardIndexService;
 
-    CardStatisticsService(DeckService deckService, CardDatabaseService cardDatabaseService) {
-        this.deckService = deckService;
-        this.cardDatabaseService = cardDatabaseService;
+    CardStatisticsService(MetagameDatasetService metagameDatasetService, CardIndexService cardIndexService) {
+        this.metagameDatasetService = metagameDatasetService;
+        this.cardIndexService = cardIndexService;
     }
 
     public ImmutableBag<Card.Id> getMostPlayedCards(Iterable<URI> decks) {
-        return getMostPlayedCards(decks, null);
+        return getMostPlayedCards(decks, (CardIndexService.Mask) null);
     }
 
     public ImmutableBag<Card.Id> getMostPlayedCards(Iterable<URI> decks, Predicate<Card> cardFilter) {
+        return getMostPlayedCards(decks, cardFilter != null ? cardIndexService.filter(cardFilter) : null);
+    }
+
+    public ImmutableBag<Card.Id> getMostPlayedCards(Iterable<URI> decks, CardIndexService.Mask cardMask) {
+        return getMostPlayedCards(metagameDatasetService.createFromDecks(decks), cardMask);
+    }
+
+    public ImmutableBag<Card.Id> getMostPlayedCards(MetagameDataset dataset) {
+        return getMostPlayedCards(dataset, (CardIndexService.Mask) null);
+    }
+
+    public ImmutableBag<Card.Id> getMostPlayedCards(MetagameDataset dataset, Predicate<Card> cardFilter) {
+        return getMostPlayedCards(dataset, cardFilter != null ? cardIndexService.filter(cardFilter) : null);
+    }
+
+    public ImmutableBag<Card.Id> getMostPlayedCards(MetagameDataset dataset, CardIndexService.Mask cardMask) {
         logger.debug("Computing statistics: most played cards");
 
+        final var counts = DatasetAccumulator.accumulate(dataset, dataset.cardCount(), (ds, deck, c) -> {
+            if (!ds.isValid(deck)) {
+                return;
+            }
+            c[ds.leaderCode(deck)] += 1;
+            c[ds.baseCode(deck)] += 1;
+            for (int i = ds.mainStart(deck); i < ds.mainEnd(deck); i++) {
+                c[ds.mainCard(i)] += ds.mainCount(i);
+            }
+            for (int i = ds.sideStart(deck); i < ds.sideEnd(deck); i++) {
+                c[ds.sideCard(i)] += ds.sideCount(i);
+            }
+        });
+
+        // The card filter is applied once per distinct card, instead of once per card in each deck.
         final var cards = Bags.mutable.<Card.Id>ofInitialCapacity(512);
-        final var f = cardFilter != null ? cardFilter : new Predicate<Card>() {
-            @Override
-            public boolean test(Card card) {
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] != 0 && (cardMask == null || cardMask.contains(dataset.card(code)))) {
+                cards.addOccurrences(dataset.card(code), counts[code]);
+            }
+        }
+        return cards.toImmutable();
+    }
+
+    /**
+     * Get cards played with each leader, sorted by number of decks.
+     * <p>
+     * Counters are computed in one pass over the dataset, in an array indexed by
+     * leader and card: for each card, decks including this card, and copies
+     * in main decks and sideboards.
+     */
+    public ImmutableList<LeaderCardUsage> getLeaderCardUsages(MetagameDataset dataset) {
+        logger.debug("Computing statistics: card usage by leader");
+        final int cardCount = dataset.cardCount();
+        final var leaderDecks = DatasetAccumulator.accumulate(dataset, cardCount, (ds, deck, c) -> {
+            if (ds.isValid(deck)) {
+                c[ds.leaderCode(deck)] += 1;
+            }
+        });
+        final var leaderIndexes = new int[cardCount];
+        final var leaderCodes = IntLists.mutable.empty();
+        for (int code = 0; code < cardCount; code++) {
+            leaderIndexes[code] = leaderDecks[code] == 0 ? -1 : leaderCodes.size();
+            if (leaderDecks[code] != 0) {
+                leaderCodes.add(code);
+            }
+        }
+
+        // Counters for a leader and a card: decks, main deck copies, sideboard copies.
+        final int counters = 3;
+        final var counts = DatasetAccumulator.accumulate(dataset, leaderCodes.size() * cardCount * counters, (ds, deck, c) -> {
+            if (!ds.isValid(deck)) {
+                return;
+            }
+            final int row = leaderIndexes[ds.leaderCode(deck)] * cardCount;
+            final int mainStart = ds.mainStart(deck);
+            final int mainEnd = ds.mainEnd(deck);
+            for (int i = mainStart; i < mainEnd; i++) {
+                final int offset = (row + ds.mainCard(i)) * counters;
+                c[offset] += 1;
+                c[offset + 1] += ds.mainCount(i);
+            }
+            for (int i = ds.sideStart(deck); i < ds.sideEnd(deck); i++) {
+                final int card = ds.sideCard(i);
+                final int offset = (row + card) * counters;
+                if (!containsCard(ds, mainStart, mainEnd, card)) {
+                    c[offset] += 1;
+                }
+                c[offset + 2] += ds.sideCount(i);
+            }
+        });
+
+        final var usages = Lists.mutable.<LeaderCardUsage>ofInitialCapacity(leaderCodes.size());
+        for (int l = 0; l < leaderCodes.size(); l++) {
+            final var cards = Lists.mutable.<CardUsage>ofInitialCapacity(64);
+            for (int card = 0; card < cardCount; card++) {
+                final int offset = (l * cardCount + card) * counters;
+                if (counts[offset] != 0) {
+                    cards.add(new CardUsage(dataset.card(card), counts[offset], counts[offset + 1], counts[offset + 2]));
+                }
+            }
+            cards.sortThisByInt(c -> -c.decks());
+            final int leaderCode = leaderCodes.get(l);
+            usages.add(new LeaderCardUsage(dataset.card(leaderCode), leaderDecks[leaderCode], cards.toImmutable()));
+        }
+        usages.sortThisByInt(u -> -u.decks());
+        return usages.toImmutable();
+    }
+
+    /**
+     * Get match results of decks including each card, for each leader.
+     * <p>
+     * Results of each deck are counted once, then added to counters of every card
+     * in its main deck: results of decks without a card are leader results
+     * minus results with this card. Decks excluded from matchups are not included.
+     */
+    public ImmutableList<LeaderCardResults> getLeaderCardResults(MetagameDataset dataset) {
+        logger.debug("Computing statistics: card results by leader");
+        final int cardCount = dataset.cardCount();
+        final var leaderDecks = DatasetAccumulator.accumulate(dataset, cardCount, (ds, deck, c) -> {
+            if (ds.isValid(deck) && !ds.isSkippedFromMatchups(deck)) {
+                c[ds.leaderCode(deck)] += 1;
+            }
+        });
+        final var leaderIndexes = new int[cardCount];
+        final var leaderCodes = IntLists.mutable.empty();
+        for (int code = 0; code < cardCount; code++) {
+            leaderIndexes[code] = leaderDecks[code] == 0 ? -1 : leaderCodes.size();
+            if (leaderDecks[code] != 0) {
+                leaderCodes.add(code);
+            }
+        }
+
+        // Counters for a leader and a card: decks, wins, losses, draws.
+        // The leader card itself holds results of all decks of this leader.
+        final int counters = 4;
+        final var counts = DatasetAccumulator.accumulate(dataset, leaderCodes.size() * cardCount * counters, (ds, deck, c) -> {
+            if (!ds.isValid(deck) || ds.isSkippedFromMatchups(deck)) {
+                return;
+            }
+            int wins = 0;
+            int losses = 0;
+            int draws = 0;
+            for (int i = ds.matchStart(deck); i < ds.matchEnd(deck); i++) {
+                final int result = ds.matchResult(i);
+                if (result == Deck.Match.Result.WIN.ordinal()) {
+                    wins += 1;
+                } else if (result == Deck.Match.Result.LOSS.ordinal()) {
+                    losses += 1;
+                } else if (result == Deck.Match.Result.DRAW.ordinal()) {
+                    draws += 1;
+                }
+            }
+            final int leader = ds.leaderCode(deck);
+            final int row = leaderIndexes[leader] * cardCount;
+            addResults(c, (row + leader) * counters, wins, losses, draws);
+            for (int i = ds.mainStart(deck); i < ds.mainEnd(deck); i++) {
+                addResults(c, (row + ds.mainCard(i)) * counters, wins, losses, draws);
+            }
+        });
+
+        final var results = Lists.mutable.<LeaderCardResults>ofInitialCapacity(leaderCodes.size());
+        for (int l = 0; l < leaderCodes.size(); l++) {
+            final int leaderCode = leaderCodes.get(l);
+            final var cards = Lists.mutable.<CardResults>ofInitialCapacity(64);
+            for (int card = 0; card < cardCount; card++) {
+                final int offset = (l * cardCount + card) * counters;
+                if (counts[offset] != 0 && card != leaderCode) {
+                    cards.add(new CardResults(dataset.card(card), counts[offset], counts[offset + 1], counts[offset + 2], counts[offset + 3]));
+                }
+            }
+            cards.sortThisByInt(c -> -c.decks());
+            final int offset = (l * cardCount + leaderCode) * counters;
+            results.add(new LeaderCardResults(new CardResults(dataset.card(leaderCode), counts[offset],
+                    counts[offset + 1], counts[offset + 2], counts[offset + 3]), cards.toImmutable()));
+        }
+        results.sortThisByInt(r -> -r.leader().decks());
+        return results.toImmutable();
+    }
+
+    private static void addResults(int[] counts, int offset, int wins, int losses, int draws) {
+        counts[offset] += 1;
+        counts[offset + 1] += wins;
+        counts[offset + 2] += losses;
+        counts[offset + 3] += draws;
+    }
+
+    private static boolean containsCard(MetagameDataset dataset, int start, int end, int card) {
+        for (int i = start; i < end; i++) {
+            if (dataset.mainCard(i) == card) {
                 return true;
             }
-        };
+        }
+        return false;
+    }
+
+    /**
+     * Cards played with a leader.
+     *
+     * @param decks number of decks of this leader
+     * @param cards cards sorted by number of decks
+     */
+    public record LeaderCardUsage(Card.Id leader, int decks, ImmutableList<CardUsage> cards) {
+        public double inclusionRate(CardUsage usage) {
+            return decks == 0 ? 0d : usage.decks / (double) decks;
+        }
+    }
+
+    /**
+     * Card usage in decks of a leader.
+     *
+     * @param decks           number of decks including this card, in main deck or sideboard
+     * @param mainCopies      copies in main decks
+     * @param sideboardCopies copies in sideboards
+     */
+    public record CardUsage(Card.Id card, int decks, int mainCopies, int sideboardCopies) {
+        /**
+         * Get the average number of copies in decks including this card.
+         */
+        public double averageCopies() {
+            return decks == 0 ? 0d : (mainCopies + sideboardCopies) / (double) decks;
+        }
+    }
+
+    /**
+     * Match results of decks of a leader, with results of decks including each card.
+     *
+     * @param leader results of all decks of this leader
+     * @param cards  results of decks including each card in main deck, sorted by number of decks
+     */
+    public record LeaderCardResults(CardResults leader, ImmutableList<CardResults> cards) {
+        /**
+         * Get results of decks of this leader which do not include a card.
+         */
+        public CardResults without(CardResults with) {
+            return new CardResults(with.card, leader.decks - with.decks, leader.wins - with.wins,
+                    leader.losses - with.losses, leader.draws - with.draws);
+        }
+    }
+
+    /**
+     * Match results of decks including a card.
+     */
+    public record CardResults(Card.Id card, int decks, int wins, int losses, int draws) {
+        public double winRate() {
+            final int matchCount = matchCount();
+            return matchCount == 0 ? 0d : wins / (double) matchCount;
+        }
+
+        public int matchCount() {
+            return wins + losses + draws;
+        }
+    }
 
-        for (final var deckUri : decks) {
-            final Deck deck;
-            try {
-                deck = deckService.load(deckUri);
-            } catch (AppException ignore) {
-                continue;
+    /**
+     * Count decks playing each pair of cards, for every leader of valid decks.
+     *
+     * @param maxCards maximum number of cards to pair for each leader, by decreasing inclusion
+     * @see #getCardPairs(MetagameDataset, Card.Id, int)
+     */
+    public ImmutableList<CardPairs> getCardPairs(MetagameDataset dataset, int maxCards) {
+        final var leaderDecks = new int[dataset.cardCount()];
+        for (int deck = 0; deck < dataset.size(); deck++) {
+            if (dataset.isValid(deck)) {
+                leaderDecks[dataset.leaderCode(deck)] += 1;
             }
-            if (!deck.isValid()) {
-                continue;
+        }
+        final var pairs = Lists.mutable.<CardPairs>empty();
+        for (int code = 0; code < leaderDecks.length; code++) {
+            if (leaderDecks[code] != 0) {
+                pairs.add(getCardPairs(dataset, dataset.card(code), maxCards));
             }
-            logger.trace("Processing deck: {}", deck.source());
-            addCardsAfterFiltering(List.of(deck.leader(), deck.base()), f, cards);
-            addCardsAfterFiltering(deck.main(), f, cards);
-            addCardsAfterFiltering(deck.sideboard(), f, cards);
         }
-        return cards.toImmutable();
+        pairs.sortThisByInt(p -> -p.decks());
+        return pairs.toImmutable();
     }
 
-    private void addCardsAfterFiltering(Iterable<Card.Id> ids, Predicate<Card> filter, MutableBag<Card.Id> output) {
-        for (final var id : ids) {
-            final var card = cardDatabaseService.findById(id);
-            if (filter.test(card)) {
-                output.add(id);
+    /**
+     * Count decks playing each pair of cards, among decks of a leader.
+     * <p>
+     * Only main deck cards are paired, and only the most included cards are considered.
+     * Each card is stored as a bitset over decks of this leader: the number of decks
+     * playing two cards is the number of bits set in both bitsets.
+     *
+     * @param maxCards maximum number of cards to pair, by decreasing inclusion
+     */
+    public CardPairs getCardPairs(MetagameDataset dataset, Card.Id leader, int maxCards) {
+        logger.debug("Computing statistics: card pairs for leader {}", leader);
+        final int leaderCode = dataset.cardCode(leader);
+        final var decks = IntLists.mutable.empty();
+        if (leaderCode != MetagameDataset.NONE) {
+            for (int deck = 0; deck < dataset.size(); deck++) {
+                if (dataset.leaderCode(deck) == leaderCode && dataset.isValid(deck)) {
+                    decks.add(deck);
+                }
+            }
+        }
+
+        final var inclusions = new int[dataset.cardCount()];
+        decks.forEach(deck -> {
+            for (int i = dataset.mainStart(deck); i < dataset.mainEnd(deck); i++) {
+                inclusions[dataset.mainCard(i)] += 1;
+            }
+        });
+        final var cardCodes = IntLists.mutable.empty();
+        final var cards = Bags.mutable.<Card.Id>ofInitialCapacity(64);
+        for (int code = 0; code < inclusions.length; code++) {
+            if (inclusions[code] != 0) {
+                cardCodes.add(code);
+                cards.addOccurrences(dataset.card(code), inclusions[code]);
+            }
+        }
+        final var sortedCodes = cardCodes.toSortedListBy(code -> -inclusions[code]);
+        final int cardCount = Math.min(maxCards, sortedCodes.size());
+        final var cardIndexes = new int[dataset.cardCount()];
+        Arrays.fill(cardIndexes, -1);
+        for (int i = 0; i < cardCount; i++) {
+            cardIndexes[sortedCodes.get(i)] = i;
+        }
+
+        // One bitset per card, with a bit per deck.
+        final int words = (decks.size() + 63) >>> 6;
+        final var bitsets = new long[cardCount][words];
+        for (int d = 0; d < decks.size(); d++) {
+            final int deck = decks.get(d);
+            for (int i = dataset.mainStart(deck); i < dataset.mainEnd(deck); i++) {
+                final int index = cardIndexes[dataset.mainCard(i)];
+                if (index != -1) {
+                    bitsets[index][d >>> 6] |= 1L << d;
+                }
             }
         }
+
+        final var pairs = Lists.mutable.<CardPair>ofInitialCapacity(cardCount * (cardCount - 1) / 2);
+        for (int a = 0; a < cardCount; a++) {
+            final var first = bitsets[a];
+            for (int b = a + 1; b < cardCount; b++) {
+                final var second = bitsets[b];
+                int together = 0;
+                for (int w = 0; w < words; w++) {
+                    together += Long.bitCount(first[w] & second[w]);
+                }
+                pairs.add(new CardPair(dataset.card(sortedCodes.get(a)), dataset.card(sortedCodes.get(b)),
+                        inclusions[sortedCodes.get(a)], inclusions[sortedCodes.get(b)], together));
+            }
+        }
+        return new CardPairs(leader, decks.size(), cards.toImmutable(), pairs.toImmutable());
+    }
+
+    /**
+     * Pairs of cards played in decks of a leader.
+     *
+     * @param decks number of decks of this leader
+     * @param cards decks playing each card in main deck, including cards which are not paired
+     */
+    public record CardPairs(Card.Id leader, int decks, ImmutableBag<Card.Id> cards, ImmutableList<CardPair> pairs) {
+        /**
+         * Get the ratio between decks playing both cards and decks expected to play both cards
+         * if cards were chosen independently: a value lower than 1 means that these cards
+         * tend to replace each other.
+         */
+        public double lift(CardPair pair) {
+            return pair.firstDecks == 0 || pair.secondDecks == 0 ? 0d
+                    : pair.together * (double) decks / ((double) pair.firstDecks * pair.secondDecks);
+        }
+    }
+
+    /**
+     * Two cards with the number of decks playing each card, and both cards.
+     */
+    public record CardPair(Card.Id first, Card.Id second, int firstDecks, int secondDecks, int together) {
+        /**
+         * Get the ratio between decks playing both cards and decks playing any of these cards.
+         */
+        public double jaccard() {
+            final int any = firstDecks + secondDecks - together;
+            return any == 0 ? 0d : together / (double) any;
+        }
     }
 }
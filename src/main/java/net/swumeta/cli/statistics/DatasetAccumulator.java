@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.statistics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Count values from dataset rows in parallel.
+ * <p>
+ * Rows are split in chunks processed on a {@link ForkJoinPool}: each chunk is
+ * counted into its own array of counters (a partial aggregate), then partial
+ * aggregates are merged by summing counters. Small datasets are processed
+ * in the calling thread.
+ */
+final class DatasetAccumulator {
+    /**
+     * Minimum number of rows processed by a single task.
+     */
+    static final int CHUNK_SIZE = 2048;
+
+    private DatasetAccumulator() {
+    }
+
+    @FunctionalInterface
+    interface RowCounter {
+        /**
+         * Add values from a dataset row to counters.
+         */
+        void count(MetagameDataset dataset, int row, int[] counts);
+    }
+
+    /**
+     * Count values from rows between two indexes.
+     *
+     * @param from      first row (inclusive)
+     * @param to        last row (exclusive)
+     * @param countSize number of counters
+     */
+    static int[] accumulate(MetagameDataset dataset, int from, int to, int countSize, RowCounter counter) {
+        final var task = new AccumulateTask(dataset, from, to, countSize, counter);
+        if (to - from <= CHUNK_SIZE) {
+            return task.compute();
+        }
+        return ForkJoinPool.commonPool().invoke(task);
+    }
+
+    static int[] accumulate(MetagameDataset dataset, int countSize, RowCounter counter) {
+        return accumulate(dataset, 0, dataset.size(), countSize, counter);
+    }
+
+    private static final class AccumulateTask extends RecursiveTask<int[]> {
+        private final MetagameDataset dataset;
+        private final int from;
+        private final int to;
+        private final int countSize;
+        private final RowCounter counter;
+
+        AccumulateTask(MetagameDataset dataset, int from, int to, int countSize, RowCounter counter) {
+            this.dataset = dataset;
+            this.from = from;
+            this.to = to;
+            this.countSize = countSize;
+            this.counter = counter;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= CHUNK_SIZE) {
+                final var counts = new int[countSize];
+                for (int row = from; row < to; row++) {
+                    counter.count(dataset, row, counts);
+                }
+                return counts;
+            }
+            final int middle = (from + to) >>> 1;
+            final var left = new AccumulateTask(dataset, from, middle, countSize, counter);
+            left.fork();
+            final var counts = new AccumulateTask(dataset, middle, to, countSize, counter).compute();
+            final var leftCounts = left.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += leftCounts[i];
+            }
+            return counts;
+        }
+    }
+}
@@ -16,183 +16,287 @@
 
 package net.swumeta.cli.statistics;
 
-import net.swumeta.cli.AppException;
-import net.swumeta.cli.DeckService;
 import net.swumeta.cli.model.Card;
 import net.swumeta.cli.model.Deck;
 import net.swumeta.cli.model.DeckArchetype;
 import org.eclipse.collections.api.bag.ImmutableBag;
-import org.eclipse.collections.api.bag.MutableBag;
 import org.eclipse.collections.api.factory.Bags;
 import org.eclipse.collections.api.factory.Lists;
-import org.eclipse.collections.api.factory.Maps;
-import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.factory.primitive.ObjectIntMaps;
 import org.eclipse.collections.api.list.ImmutableList;
-import org.eclipse.collections.api.set.ImmutableSet;
 import org.eclipse.collections.api.tuple.primitive.ObjectIntPair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.net.URI;
-import java.util.Objects;
-import java.util.stream.StreamSupport;
+import java.util.Arrays;
+import java.util.Comparator;
 
 @Service
 public class DeckStatisticsService {
-    private static final ImmutableSet<Deck.Match.Result> VALID_MATCH_RESULTS = Sets.immutable.of(
-            Deck.Match.Result.WIN, Deck.Match.Result.LOSS, Deck.Match.Result.DRAW
-    );
+    private static final int MATCHUP_RESULT_COUNT = 3;
+    // Matrix slot of each match result (by ordinal): only wins, losses and draws are counted in matchups.
+    private static final int[] MATCHUP_RESULT_SLOTS = new int[Deck.Match.Result.values().length];
+
+    static {
+        Arrays.fill(MATCHUP_RESULT_SLOTS, -1);
+        MATCHUP_RESULT_SLOTS[Deck.Match.Result.WIN.ordinal()] = 0;
+        MATCHUP_RESULT_SLOTS[Deck.Match.Result.LOSS.ordinal()] = 1;
+        MATCHUP_RESULT_SLOTS[Deck.Match.Result.DRAW.ordinal()] = 2;
+    }
+
     private final Logger logger = LoggerFactory.getLogger(DeckStatisticsService.class);
-    private final DeckService deckService;
+    private final MetagameDatasetService metagameDatasetService;
 
-    DeckStatisticsService(DeckService deckService) {
-        this.deckService = deckService;
+    DeckStatisticsService(MetagameDatasetService metagameDatasetService) {
+        this.metagameDatasetService = metagameDatasetService;
     }
 
     public ImmutableBag<DeckArchetype> getMostPlayedDecks(Iterable<URI> decks) {
+        return getMostPlayedDecks(metagameDatasetService.createFromDecks(decks));
+    }
+
+    public ImmutableBag<DeckArchetype> getMostPlayedDecks(MetagameDataset dataset) {
+        return getMostPlayedDecks(dataset, dataset.size());
+    }
+
+    /**
+     * Get most played decks among the first decks of a dataset.
+     */
+    public ImmutableBag<DeckArchetype> getMostPlayedDecks(MetagameDataset dataset, int limit) {
         logger.debug("Computing statistics: most played decks");
-        return doGetMostPlayedDecks(decks);
+        final var counts = DatasetAccumulator.accumulate(dataset, 0, Math.min(limit, dataset.size()), dataset.archetypeCount(), (ds, deck, c) -> {
+            final int archetype = ds.archetypeCode(deck);
+            if (archetype != MetagameDataset.NONE) {
+                c[archetype] += 1;
+            }
+        });
+        final var archetypes = Bags.mutable.<DeckArchetype>ofInitialCapacity(counts.length);
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] != 0) {
+                archetypes.addOccurrences(dataset.archetype(code), counts[code]);
+            }
+        }
+        return archetypes.toImmutable();
     }
 
-    private ImmutableBag<DeckArchetype> doGetMostPlayedDecks(Iterable<URI> decks) {
-        return Bags.immutable.<DeckArchetype>fromStream(
-                StreamSupport.stream(decks.spliterator(), false)
-                        .map(uri -> {
-                            try {
-                                return deckService.load(uri);
-                            } catch (AppException e) {
-                                return null;
-                            }
-                        })
-                        .filter(Objects::nonNull)
-                        .map(deckService::getArchetype)
-        );
+    /**
+     * Get results of all matches played by decks of a dataset.
+     */
+    public ImmutableBag<Deck.Match.Result> getMatchResults(MetagameDataset dataset) {
+        final var counts = DatasetAccumulator.accumulate(dataset, Deck.Match.Result.values().length, (ds, deck, c) -> {
+            for (int i = ds.matchStart(deck); i < ds.matchEnd(deck); i++) {
+                final int result = ds.matchResult(i);
+                if (result != MetagameDataset.NONE) {
+                    c[result] += 1;
+                }
+            }
+        });
+        return toResultBag(counts);
     }
 
     public ImmutableList<LeaderMatchup> getLeaderMatchups(Iterable<URI> decks) {
-        final var matchups = Maps.mutable.<LeaderOpponentKey, MutableBag<Deck.Match.Result>>ofInitialCapacity(32);
-        final var leaders = Bags.mutable.<Card.Id>ofInitialCapacity(32);
-        for (final var deckUri : decks) {
-            final Deck deck;
-            try {
-                deck = deckService.load(deckUri);
-            } catch (AppException e) {
-                continue;
+        return getLeaderMatchups(metagameDatasetService.createFromDecks(decks));
+    }
+
+    public ImmutableList<LeaderMatchup> getLeaderMatchups(MetagameDataset dataset) {
+        return getLeaderMatchups(getMatchupResults(dataset));
+    }
+
+    /**
+     * Count results of each leader against each opponent in a dataset.
+     */
+    MatchupResults getMatchupResults(MetagameDataset dataset) {
+        final var leaderDecks = DatasetAccumulator.accumulate(dataset, dataset.cardCount(), (ds, deck, c) -> {
+            final int leader = ds.leaderCode(deck);
+            if (leader == MetagameDataset.NONE) {
+                return;
             }
-            if (deck.leader() == null) {
-                continue;
+            if (ds.isSkippedFromMatchups(deck)) {
+                logger.debug("Skipping deck from matchups: {}", ds.source(deck));
+                return;
             }
-            if ("--".equals(deck.matchRecord())) {
-                logger.debug("Skipping deck from matchups: {}", deckUri);
-                continue;
+            c[leader] += 1;
+        });
+
+        // Leaders are mapped to dense indexes, so that results are counted in a flat array.
+        final var leaderIndexes = new int[dataset.cardCount()];
+        Arrays.fill(leaderIndexes, -1);
+        final var leaderIndexesById = ObjectIntMaps.mutable.<Card.Id>empty();
+        final var leaders = Bags.mutable.<Card.Id>ofInitialCapacity(32);
+        for (int code = 0; code < leaderDecks.length; code++) {
+            if (leaderDecks[code] != 0) {
+                leaderIndexes[code] = leaderIndexesById.size();
+                leaderIndexesById.put(dataset.card(code), leaderIndexes[code]);
+                leaders.addOccurrences(dataset.card(code), leaderDecks[code]);
             }
-            leaders.add(deck.leader());
+        }
 
-            for (final var match : deck.matches()) {
-                if (match.opponentDeck() == null) {
-                    continue;
-                }
-                final Deck opDeck;
-                try {
-                    opDeck = deckService.load(match.opponentDeck());
-                } catch (AppException e) {
-                    continue;
-                }
-                if (opDeck.leader() == null) {
-                    continue;
-                }
-                if ("--".equals(opDeck.matchRecord())) {
-                    logger.debug("Skipping opponent deck from matchups: {}", opDeck.source());
+        // Results of each leader against each opponent are counted in a dense matrix
+        // (leader x opponent x result): partial matrices are computed in parallel, then merged.
+        final int leaderCount = leaderIndexesById.size();
+        final var counts = DatasetAccumulator.accumulate(dataset, leaderCount * leaderCount * MATCHUP_RESULT_COUNT, (ds, deck, c) -> {
+            final int leader = ds.leaderCode(deck);
+            if (leader == MetagameDataset.NONE || ds.isSkippedFromMatchups(deck)) {
+                return;
+            }
+            final int row = leaderIndexes[leader] * leaderCount;
+            for (int i = ds.matchStart(deck); i < ds.matchEnd(deck); i++) {
+                final int opponent = ds.matchOpponentLeader(i);
+                final int result = ds.matchResult(i);
+                if (opponent == MetagameDataset.NONE || result == MetagameDataset.NONE || MATCHUP_RESULT_SLOTS[result] == -1) {
                     continue;
                 }
-                final var key = new LeaderOpponentKey(deck.leader(), opDeck.leader());
-                var allResults = matchups.get(key);
-                if (allResults == null) {
-                    allResults = Bags.mutable.<Deck.Match.Result>ofInitialCapacity(32);
-                    matchups.put(key, allResults);
+                final int opponentIndex = leaderIndexes[opponent];
+                if (opponentIndex != -1) {
+                    c[(row + opponentIndex) * MATCHUP_RESULT_COUNT + MATCHUP_RESULT_SLOTS[result]] += 1;
                 }
-                if (match.result() != null) {
-                    allResults.add(match.result());
+            }
+        });
+
+        final var immutableLeaders = leaders.toImmutable();
+        return new MatchupResults() {
+            @Override
+            public ImmutableBag<Card.Id> leaders() {
+                return immutableLeaders;
+            }
+
+            @Override
+            public LeaderMatchupOpponent get(Card.Id leader, Card.Id opponent) {
+                final int offset = (leaderIndexesById.get(leader) * leaderCount + leaderIndexesById.get(opponent)) * MATCHUP_RESULT_COUNT;
+                return new LeaderMatchupOpponent(opponent, counts[offset], counts[offset + 1], counts[offset + 2]);
+            }
+        };
+    }
+
+    /**
+     * Get match results of each archetype against each opponent archetype in a dataset.
+     *
+     * @param minMatches minimum number of matches between two archetypes for a matchup to be included
+     */
+    public ArchetypeMatchups getArchetypeMatchups(MetagameDataset dataset, int minMatches) {
+        logger.debug("Computing statistics: archetype matchups");
+        final var builder = new ArchetypeMatchups.Builder();
+        for (int deck = 0; deck < dataset.size(); deck++) {
+            final int archetype = dataset.archetypeCode(deck);
+            if (archetype == MetagameDataset.NONE) {
+                continue;
+            }
+            builder.addDecks(dataset.archetype(archetype), 1);
+            if (dataset.isSkippedFromMatchups(deck)) {
+                continue;
+            }
+            for (int i = dataset.matchStart(deck); i < dataset.matchEnd(deck); i++) {
+                final int opponent = dataset.matchOpponentArchetype(i);
+                final int result = dataset.matchResult(i);
+                if (opponent != MetagameDataset.NONE && result != MetagameDataset.NONE) {
+                    builder.addResult(dataset.archetype(archetype), dataset.archetype(opponent), MetagameDataset.toResult(result));
                 }
             }
         }
+        return builder.build(minMatches);
+    }
 
-        final var sortedLeaders = leaders.topOccurrences(leaders.sizeDistinct()).collect(ObjectIntPair::getOne);
+    /**
+     * Build leader matchups from match results, sorted by meta share.
+     */
+    static ImmutableList<LeaderMatchup> getLeaderMatchups(MatchupResults results) {
+        final var leaders = results.leaders();
+        // Leaders with the same meta share are sorted by id, so that results do not depend on how counts were merged.
+        final var sortedLeaders = leaders.topOccurrences(leaders.sizeDistinct())
+                .toSortedList(Comparator.<ObjectIntPair<Card.Id>>comparingInt(ObjectIntPair::getTwo).reversed()
+                        .thenComparing(ObjectIntPair::getOne))
+                .collect(ObjectIntPair::getOne);
         final var allLeadersMatchups = Lists.mutable.<LeaderMatchup>ofInitialCapacity(leaders.size());
         for (final var leader : sortedLeaders) {
             final var leaderMatchups = Lists.mutable.<LeaderMatchupOpponent>ofInitialCapacity(leaders.size());
-            final var resultsByOpponent = Maps.mutable.<Card.Id, MutableBag<Deck.Match.Result>>ofInitialCapacity(leaders.size());
-            final var keys = matchups.keySet().stream().filter(k -> k.leader.equals(leader)).toList();
-            for (final var key : keys) {
-                var results = resultsByOpponent.get(key.opponent);
-                if (results == null) {
-                    results = Bags.mutable.<Deck.Match.Result>ofInitialCapacity(32);
-                    resultsByOpponent.put(key.opponent, results);
-                }
-                results.addAllIterable(matchups.get(key));
-            }
+            int wins = 0;
+            int losses = 0;
+            int draws = 0;
             for (final var op : sortedLeaders) {
-                var resultForOp = resultsByOpponent.get(op);
-                if (resultForOp == null) {
-                    resultForOp = Bags.mutable.empty();
-                }
-                leaderMatchups.add(new LeaderMatchupOpponent(op, resultForOp.toImmutable()));
+                final var matchup = results.get(leader, op);
+                wins += matchup.wins;
+                losses += matchup.losses;
+                draws += matchup.draws;
+                leaderMatchups.add(matchup);
             }
             final double metaShare = leaders.occurrencesOf(leader) / (double) leaders.size();
-            allLeadersMatchups.add(new LeaderMatchup(leader, metaShare, leaderMatchups.toImmutable()));
+            allLeadersMatchups.add(new LeaderMatchup(leader, metaShare, leaderMatchups.toImmutable(), wins, losses, draws));
         }
         return allLeadersMatchups.toImmutableList();
     }
 
+    private static ImmutableBag<Deck.Match.Result> toResultBag(int[] counts) {
+        final var results = Bags.mutable.<Deck.Match.Result>empty();
+        for (int r = 0; r < counts.length; r++) {
+            if (counts[r] != 0) {
+                results.addOccurrences(MetagameDataset.toResult(r), counts[r]);
+            }
+        }
+        return results.toImmutable();
+    }
+
+    private static int countMatches(Deck.Match.Result kind, int wins, int losses, int draws) {
+        return switch (kind) {
+            case WIN -> wins;
+            case LOSS -> losses;
+            case DRAW -> draws;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Match results of each leader against each opponent.
+     */
+    interface MatchupResults {
+        /**
+         * Get leaders with the number of decks counted in matchups.
+         */
+        ImmutableBag<Card.Id> leaders();
+
+        LeaderMatchupOpponent get(Card.Id leader, Card.Id opponent);
+    }
+
     public record LeaderMatchup(
             Card.Id leader,
             double metaShare,
-            ImmutableList<LeaderMatchupOpponent> opponents
+            ImmutableList<LeaderMatchupOpponent> opponents,
+            int wins,
+            int losses,
+            int draws
     ) {
         public double winRate() {
             final int matchCount = matchCount();
-            return matchCount == 0 ? 0d : matchCount(Deck.Match.Result.WIN) / (double) matchCount;
+            return matchCount == 0 ? 0d : wins / (double) matchCount;
         }
 
         public int matchCount() {
-            int matchCount = 0;
-            for (final var op : opponents) {
-                matchCount += op.results.count(VALID_MATCH_RESULTS::contains);
-            }
-            return matchCount;
+            return wins + losses + draws;
         }
 
         public int matchCount(Deck.Match.Result kind) {
-            int matchCount = 0;
-            for (final var op : opponents) {
-                matchCount += op.results.occurrencesOf(kind);
-            }
-            return matchCount;
+            return countMatches(kind, wins, losses, draws);
         }
     }
 
     public record LeaderMatchupOpponent(
             Card.Id opponent,
-            ImmutableBag<Deck.Match.Result> results
+            int wins,
+            int losses,
+            int draws
     ) {
         public double winRate() {
             final int matchCount = matchCount();
-            return matchCount == 0 ? 0d : matchCount(Deck.Match.Result.WIN) / (double) matchCount;
+            return matchCount == 0 ? 0d : wins / (double) matchCount;
         }
 
         public int matchCount() {
-            return results.count(VALID_MATCH_RESULTS::contains);
+            return wins + losses + draws;
         }
 
         public int matchCount(Deck.Match.Result kind) {
-            return results.occurrencesOf(kind);
+            return countMatches(kind, wins, losses, draws);
         }
     }
-
-    record LeaderOpponentKey(
-            Card.Id leader,
-            Card.Id opponent
-    ) {
-    }
 }
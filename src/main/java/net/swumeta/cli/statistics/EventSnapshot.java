@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.statistics;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.annotation.Nulls;
+import net.swumeta.cli.model.Card;
+import net.swumeta.cli.model.DeckArchetype;
+import org.eclipse.collections.api.bag.Bag;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregates computed from decks of a single event.
+ * <p>
+ * Every value is a count: snapshots from several events are merged
+ * by summing counts (see {@link MetagameSnapshot}).
+ *
+ * @param cards             card copies played in valid decks, including leaders and bases
+ * @param archetypes        decks by archetype
+ * @param matchupLeaders    decks counted in matchups, by leader
+ * @param matchups          match results of each leader against each opponent
+ * @param archetypeMatchups match results of each archetype against each opponent archetype
+ * @param cardPairCards     decks playing each card in main deck, by leader
+ * @param cardPairs         decks playing each pair of cards in main deck, by leader
+ * @param cardUsages        decks and copies of each card, by leader
+ * @param cardResults       match results of decks including each card in main deck, by leader
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+record EventSnapshot(
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<CardCount> cards,
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<ArchetypeCount> archetypes,
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<CardCount> matchupLeaders,
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<MatchupCount> matchups,
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<ArchetypeMatchupCount> archetypeMatchups,
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<CardCount> top8Leaders,
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<CardCount> winnerLeaders,
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<CardCount> top8Bases,
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<ArchetypeCount> top8Archetypes,
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<ArchetypeCount> winnerArchetypes,
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<LeaderCardCount> cardPairCards,
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<CardPairCount> cardPairs,
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<CardUsageCount> cardUsages,
+        @JsonSetter(nulls = Nulls.AS_EMPTY) List<CardResultCount> cardResults
+) {
+    /**
+     * Maximum number of cards paired for each leader in metagame statistics.
+     * <p>
+     * Event snapshots store pairs of every card played with a leader: the most included cards
+     * are selected from merged counts, so that pair counts are exact over the metagame window.
+     */
+    static final int CARD_PAIR_MAX_CARDS = 60;
+
+    record CardCount(Card.Id card, int count) {
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record ArchetypeCount(Card.Id leader, @Nullable Card.Aspect aspect, @Nullable Card.Id base, int count) {
+        DeckArchetype archetype() {
+            return base != null ? DeckArchetype.valueOf(leader, base) : DeckArchetype.valueOf(leader, aspect);
+        }
+    }
+
+    record MatchupCount(Card.Id leader, Card.Id opponent, int wins, int losses, int draws) {
+    }
+
+    /**
+     * Match results of an archetype against an opponent archetype:
+     * archetypes are indexes in {@link #archetypes()}.
+     */
+    record ArchetypeMatchupCount(int archetype, int opponent, int wins, int losses, int draws) {
+    }
+
+    /**
+     * Number of decks of a leader including a card:
+     * the leader card itself holds the number of decks of this leader.
+     */
+    record LeaderCardCount(Card.Id leader, Card.Id card, int count) {
+    }
+
+    /**
+     * Number of decks playing two cards:
+     * cards are indexes in {@link #cardPairCards()}.
+     */
+    record CardPairCount(int first, int second, int together) {
+    }
+
+    /**
+     * Usage of a card in decks of a leader:
+     * the leader card itself holds the number of decks of this leader.
+     */
+    record CardUsageCount(Card.Id leader, Card.Id card, int decks, int mainCopies, int sideboardCopies) {
+    }
+
+    /**
+     * Match results of decks of a leader including a card:
+     * the leader card itself holds results of all decks of this leader.
+     */
+    record CardResultCount(Card.Id leader, Card.Id card, int decks, int wins, int losses, int draws) {
+    }
+
+    static List<CardCount> toCardCounts(Bag<Card.Id> cards) {
+        final var counts = new ArrayList<CardCount>(cards.sizeDistinct());
+        cards.forEachWithOccurrences((card, count) -> counts.add(new CardCount(card, count)));
+        return counts;
+    }
+
+    static List<ArchetypeCount> toArchetypeCounts(Bag<DeckArchetype> archetypes) {
+        final var counts = new ArrayList<ArchetypeCount>(archetypes.sizeDistinct());
+        archetypes.forEachWithOccurrences((a, count) -> counts.add(new ArchetypeCount(a.leader(), a.aspect(), a.base(), count)));
+        return counts;
+    }
+}
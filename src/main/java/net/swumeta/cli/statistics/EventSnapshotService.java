@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.statistics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import net.swumeta.cli.AppException;
+import net.swumeta.cli.DeckService;
+import net.swumeta.cli.EventService;
+import net.swumeta.cli.model.Card;
+import net.swumeta.cli.model.DeckArchetype;
+import net.swumeta.cli.model.Event;
+import org.eclipse.collections.api.bag.MutableBag;
+import org.eclipse.collections.api.factory.Bags;
+import org.eclipse.collections.api.factory.primitive.ObjectIntMaps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Compute metagame statistics by merging snapshots of events.
+ * <p>
+ * A snapshot holds aggregates computed from decks of an event. Snapshots are persisted
+ * in the cache directory, keyed by a hash of the event content and of the cached state of its decks:
+ * a snapshot is computed again only when the event or one of its decks is updated, so adding an event
+ * to the metagame only requires loading decks of this event. A snapshot is not persisted when
+ * a deck could not be loaded, so that it is computed again on next run.
+ * Snapshots are also kept in memory, since statistics from the same events are usually
+ * computed several times in a run.
+ * <p>
+ * The current snapshot key of each event is persisted in a {@link SnapshotIndex}, along with
+ * the completeness of this event: a snapshot is deleted once superseded by a new key.
+ */
+@Service
+public class EventSnapshotService {
+    private static final int SNAPSHOT_VERSION = 6;
+    private final Logger logger = LoggerFactory.getLogger(EventSnapshotService.class);
+    private final MetagameDatasetService metagameDatasetService;
+    private final CardStatisticsService cardStatisticsService;
+    private final DeckStatisticsService deckStatisticsService;
+    private final DeckService deckService;
+    private final EventService eventService;
+    private final SnapshotIndex snapshotIndex;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, EventSnapshot> snapshotCache = Caffeine.newBuilder().maximumSize(1024).build();
+
+    EventSnapshotService(MetagameDatasetService metagameDatasetService, CardStatisticsService cardStatisticsService,
+                         DeckStatisticsService deckStatisticsService, DeckService deckService,
+                         EventService eventService, SnapshotIndex snapshotIndex) {
+        this.metagameDatasetService = metagameDatasetService;
+        this.cardStatisticsService = cardStatisticsService;
+        this.deckStatisticsService = deckStatisticsService;
+        this.deckService = deckService;
+        this.eventService = eventService;
+        this.snapshotIndex = snapshotIndex;
+        this.objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private record StoredSnapshot(int version, EventSnapshot snapshot) {
+    }
+
+    /**
+     * Get statistics from these events, indexed by event date.
+     */
+    public MetagameTimeline getTimeline(Iterable<Event> events) {
+        final var snapshotsByDate = new TreeMap<LocalDate, List<EventSnapshot>>();
+        for (final var event : events) {
+            snapshotsByDate.computeIfAbsent(event.date(), k -> new ArrayList<>(4)).add(getSnapshot(event));
+        }
+        return MetagameTimeline.create(snapshotsByDate);
+    }
+
+    public MetagameSnapshot getMetagameSnapshot(Iterable<Event> events) {
+        final var snapshots = new ArrayList<EventSnapshot>(32);
+        for (final var event : events) {
+            snapshots.add(getSnapshot(event));
+        }
+        return MetagameSnapshot.merge(snapshots);
+    }
+
+    /**
+     * Check whether an event is complete, like {@link EventService#isEventComplete(Event)}.
+     * The result is persisted until this event or one of its decks is updated.
+     */
+    public boolean isEventComplete(Event event) {
+        final var snapshotKey = getSnapshotKey(event);
+        final var entry = snapshotIndex.get(event);
+        if (entry != null && entry.complete() != null && entry.snapshot().equals(snapshotKey)) {
+            return entry.complete();
+        }
+        final var result = eventService.getEventCompleteness(event);
+        if (result.definitive()) {
+            snapshotIndex.put(event, new SnapshotIndex.Entry(snapshotKey, result.complete()));
+        }
+        return result.complete();
+    }
+
+    EventSnapshot getSnapshot(Event event) {
+        final var snapshotFile = getSnapshotFile(event);
+        return snapshotCache.get(snapshotFile.getName(), k -> loadSnapshot(event, snapshotFile));
+    }
+
+    private EventSnapshot loadSnapshot(Event event, File snapshotFile) {
+        if (snapshotFile.exists()) {
+            try {
+                final var stored = objectMapper.readValue(snapshotFile, StoredSnapshot.class);
+                if (stored.version == SNAPSHOT_VERSION && stored.snapshot != null) {
+                    logger.trace("Loading event snapshot from cache: {}", event);
+                    return stored.snapshot;
+                }
+            } catch (IOException e) {
+                logger.debug("Unable to read event snapshot: {}", snapshotFile, e);
+            }
+        }
+
+        logger.debug("Creating event snapshot: {}", event);
+        final var snapshot = createSnapshot(event);
+        if (!isEveryDeckLoaded(event)) {
+            logger.debug("Not saving event snapshot since some decks could not be loaded: {}", event);
+            return snapshot;
+        }
+        snapshotFile.getParentFile().mkdirs();
+        final var snapshotKey = getSnapshotKey(event);
+        final var tempFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + "." + UUID.randomUUID() + ".tmp").toPath();
+        try {
+            try {
+                objectMapper.writeValue(tempFile.toFile(), new StoredSnapshot(SNAPSHOT_VERSION, snapshot));
+                Files.move(tempFile, snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to save event snapshot: {}", snapshotFile, e);
+            return snapshot;
+        }
+
+        // The previous snapshot of this event is superseded: it is deleted by the index.
+        final var entry = snapshotIndex.get(event);
+        final var complete = entry != null && entry.snapshot().equals(snapshotKey) ? entry.complete() : null;
+        snapshotIndex.put(event, new SnapshotIndex.Entry(snapshotKey, complete));
+        return snapshot;
+    }
+
+    private boolean isEveryDeckLoaded(Event event) {
+        for (final var entry : event.decks()) {
+            if (entry.url() == null || entry.pending()) {
+                continue;
+            }
+            try {
+                // Decks have just been loaded for this snapshot: they are taken from memory.
+                deckService.load(entry.url());
+            } catch (AppException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private EventSnapshot createSnapshot(Event event) {
+        final var dataset = metagameDatasetService.create(List.of(event));
+        final var results = deckStatisticsService.getMatchupResults(dataset);
+        final var leaders = results.leaders().toSet();
+        final var matchups = new ArrayList<EventSnapshot.MatchupCount>(leaders.size() * leaders.size());
+        for (final var leader : leaders) {
+            for (final var op : leaders) {
+                final var m = results.get(leader, op);
+                if (m.matchCount() != 0) {
+                    matchups.add(new EventSnapshot.MatchupCount(leader, op, m.wins(), m.losses(), m.draws()));
+                }
+            }
+        }
+
+        // Every pair is stored in event snapshots: the minimum sample size applies to merged results.
+        final var archetypeResults = deckStatisticsService.getArchetypeMatchups(dataset, 1);
+        final var archetypes = new ArrayList<EventSnapshot.ArchetypeCount>(archetypeResults.size());
+        final var archetypeMatchups = new ArrayList<EventSnapshot.ArchetypeMatchupCount>(archetypeResults.matchupCount());
+        final var archetypeIndexes = ObjectIntMaps.mutable.<DeckArchetype>ofInitialCapacity(archetypeResults.size());
+        for (int i = 0; i < archetypeResults.size(); i++) {
+            final var a = archetypeResults.archetype(i);
+            archetypes.add(new EventSnapshot.ArchetypeCount(a.leader(), a.aspect(), a.base(), archetypeResults.decks(i)));
+            archetypeIndexes.put(a, i);
+        }
+        for (int i = 0; i < archetypeResults.size(); i++) {
+            for (final var m : archetypeResults.getMatchups(i)) {
+                archetypeMatchups.add(new EventSnapshot.ArchetypeMatchupCount(i, archetypeIndexes.get(m.opponent()), m.wins(), m.losses(), m.draws()));
+            }
+        }
+
+        final var top8Leaders = Bags.mutable.<Card.Id>ofInitialCapacity(8);
+        final var winnerLeaders = Bags.mutable.<Card.Id>ofInitialCapacity(1);
+        final var top8Bases = Bags.mutable.<Card.Id>ofInitialCapacity(8);
+        final var top8Archetypes = Bags.mutable.<DeckArchetype>ofInitialCapacity(8);
+        final var winnerArchetypes = Bags.mutable.<DeckArchetype>ofInitialCapacity(1);
+        for (final var entry : event.decks()) {
+            if (entry.rank() >= 9) {
+                continue;
+            }
+            final Card.Id leader;
+            final Card.Id base;
+            final DeckArchetype archetype;
+            if (entry.url() != null) {
+                try {
+                    final var deck = deckService.load(entry.url());
+                    leader = deck.leader();
+                    base = deck.base();
+                    archetype = deckService.getArchetype(deck);
+                } catch (AppException ignore) {
+                    continue;
+                }
+            } else {
+                leader = entry.leader();
+                base = entry.base();
+                archetype = leader != null && base != null ? DeckArchetype.valueOf(leader, base) : null;
+            }
+            addIfPresent(top8Leaders, leader);
+            addIfPresent(top8Bases, base);
+            addIfPresent(top8Archetypes, archetype);
+            if (entry.rank() == 1) {
+                addIfPresent(winnerLeaders, leader);
+                addIfPresent(winnerArchetypes, archetype);
+            }
+        }
+
+        // Every card of a leader is paired: a card may be among the most included cards of the metagame window
+        // without being among the most included cards of this event.
+        // Pairs are stored by index in the list of card counts, which is much smaller on disk.
+        final var cardPairCards = new ArrayList<EventSnapshot.LeaderCardCount>(512);
+        final var cardPairs = new ArrayList<EventSnapshot.CardPairCount>(8192);
+        for (final var leaderPairs : cardStatisticsService.getCardPairs(dataset, Integer.MAX_VALUE)) {
+            final var leader = leaderPairs.leader();
+            final var cardIndexes = ObjectIntMaps.mutable.<Card.Id>ofInitialCapacity(leaderPairs.cards().sizeDistinct());
+            cardPairCards.add(new EventSnapshot.LeaderCardCount(leader, leader, leaderPairs.decks()));
+            leaderPairs.cards().forEachWithOccurrences((card, count) -> {
+                cardIndexes.put(card, cardPairCards.size());
+                cardPairCards.add(new EventSnapshot.LeaderCardCount(leader, card, count));
+            });
+            for (final var p : leaderPairs.pairs()) {
+                if (p.together() != 0) {
+                    cardPairs.add(new EventSnapshot.CardPairCount(cardIndexes.get(p.first()), cardIndexes.get(p.second()), p.together()));
+                }
+            }
+        }
+
+        final var cardUsages = new ArrayList<EventSnapshot.CardUsageCount>(512);
+        for (final var usage : cardStatisticsService.getLeaderCardUsages(dataset)) {
+            cardUsages.add(new EventSnapshot.CardUsageCount(usage.leader(), usage.leader(), usage.decks(), 0, 0));
+            for (final var c : usage.cards()) {
+                cardUsages.add(new EventSnapshot.CardUsageCount(usage.leader(), c.card(), c.decks(), c.mainCopies(), c.sideboardCopies()));
+            }
+        }
+
+        final var cardResults = new ArrayList<EventSnapshot.CardResultCount>(512);
+        for (final var r : cardStatisticsService.getLeaderCardResults(dataset)) {
+            final var leader = r.leader();
+            cardResults.add(new EventSnapshot.CardResultCount(leader.card(), leader.card(), leader.decks(),
+                    leader.wins(), leader.losses(), leader.draws()));
+            for (final var c : r.cards()) {
+                cardResults.add(new EventSnapshot.CardResultCount(leader.card(), c.card(), c.decks(), c.wins(), c.losses(), c.draws()));
+            }
+        }
+
+        return new EventSnapshot(
+                EventSnapshot.toCardCounts(cardStatisticsService.getMostPlayedCards(dataset)),
+                archetypes,
+                EventSnapshot.toCardCounts(results.leaders()),
+                matchups,
+                archetypeMatchups,
+                EventSnapshot.toCardCounts(top8Leaders),
+                EventSnapshot.toCardCounts(winnerLeaders),
+                EventSnapshot.toCardCounts(top8Bases),
+                EventSnapshot.toArchetypeCounts(top8Archetypes),
+                EventSnapshot.toArchetypeCounts(winnerArchetypes),
+                cardPairCards,
+                cardPairs,
+                cardUsages,
+                cardResults
+        );
+    }
+
+    private static <T> void addIfPresent(MutableBag<T> bag, @Nullable T value) {
+        if (value != null) {
+            bag.add(value);
+        }
+    }
+
+    File getSnapshotFile(Event event) {
+        return snapshotIndex.getSnapshotFile(getSnapshotKey(event));
+    }
+
+    /**
+     * Get a key for the content of this event and the cached state of its decks.
+     */
+    String getSnapshotKey(Event event) {
+        final var deckUris = new ArrayList<URI>(event.decks().size());
+        for (final var entry : event.decks()) {
+            if (entry.url() != null) {
+                deckUris.add(entry.url());
+            }
+        }
+        try {
+            final var buf = new ByteArrayOutputStream(4096);
+            buf.write(objectMapper.writeValueAsBytes(event));
+            buf.write(deckService.getCacheDigest(deckUris).getBytes(StandardCharsets.UTF_8));
+            return DigestUtils.md5DigestAsHex(buf.toByteArray());
+        } catch (IOException e) {
+            throw new AppException("Failed to hash event: " + event, e);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.statistics;
+
+import net.swumeta.cli.model.Card;
+import net.swumeta.cli.model.Deck;
+import net.swumeta.cli.model.DeckArchetype;
+import net.swumeta.cli.model.Event;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.primitive.IntLists;
+import org.eclipse.collections.api.factory.primitive.ObjectIntMaps;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.map.primitive.ImmutableObjectIntMap;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.springframework.lang.Nullable;
+
+import java.net.URI;
+import java.util.Arrays;
+
+/**
+ * Decks from a set of events, stored in columns of primitive arrays.
+ * <p>
+ * Each deck is a row: deck attributes are stored at the row index in each column.
+ * Card ids and deck archetypes are dictionary-encoded as dense codes,
+ * and variable-length data (cards, matches) is stored as flat arrays
+ * with per-deck offsets. A deck which could not be loaded is still part
+ * of this dataset, with {@link #NONE} as leader, base and archetype,
+ * so that row indexes follow the order of deck URIs.
+ * <p>
+ * Datasets are created by {@link MetagameDatasetService}, once per run:
+ * statistics are then computed as loops over these arrays,
+ * without loading decks again.
+ */
+public final class MetagameDataset {
+    /**
+     * Code used when a value is missing.
+     */
+    public static final int NONE = -1;
+    private static final Deck.Match.Result[] RESULTS = Deck.Match.Result.values();
+
+    private final Card.Id[] cards;
+    private final ImmutableObjectIntMap<Card.Id> cardCodes;
+    private final DeckArchetype[] archetypes;
+    private final ImmutableList<Event> events;
+    private final URI[] sources;
+    private final int[] deckEvents;
+    private final int[] deckRanks;
+    private final int[] deckLeaders;
+    private final int[] deckBases;
+    private final int[] deckArchetypes;
+    private final boolean[] deckSkipMatchups;
+    private final int[] mainOffsets;
+    private final int[] mainCards;
+    private final int[] mainCounts;
+    private final int[] sideOffsets;
+    private final int[] sideCards;
+    private final int[] sideCounts;
+    private final int[] matchOffsets;
+    private final int[] matchOpponentLeaders;
+    private final int[] matchOpponentArchetypes;
+    private final byte[] matchResults;
+
+    private MetagameDataset(Builder b) {
+        this.cards = b.cards.toArray(new Card.Id[0]);
+        this.cardCodes = b.cardCodes.toImmutable();
+        this.archetypes = b.archetypes.toArray(new DeckArchetype[0]);
+        this.events = b.events.toImmutable();
+        this.sources = b.sources.toArray(new URI[0]);
+        this.deckEvents = b.deckEvents.toArray();
+        this.deckRanks = b.deckRanks.toArray();
+        this.deckLeaders = b.deckLeaders.toArray();
+        this.deckBases = b.deckBases.toArray();
+        this.deckArchetypes = b.deckArchetypes.toArray();
+        this.deckSkipMatchups = Arrays.copyOf(b.deckSkipMatchups, sources.length);
+        this.mainOffsets = b.mainOffsets.toArray();
+        this.mainCards = b.mainCards.toArray();
+        this.mainCounts = b.mainCounts.toArray();
+        this.sideOffsets = b.sideOffsets.toArray();
+        this.sideCards = b.sideCards.toArray();
+        this.sideCounts = b.sideCounts.toArray();
+        this.matchOffsets = b.matchOffsets.toArray();
+        this.matchOpponentLeaders = b.matchOpponentLeaders.toArray();
+        this.matchOpponentArchetypes = b.matchOpponentArchetypes.toArray();
+        this.matchResults = new byte[b.matchResults.size()];
+        for (int i = 0; i < matchResults.length; i++) {
+            matchResults[i] = (byte) b.matchResults.get(i);
+        }
+    }
+
+    /**
+     * Get the number of decks in this dataset.
+     */
+    public int size() {
+        return sources.length;
+    }
+
+    /**
+     * Get events decks come from, in the same order as event codes.
+     */
+    public ImmutableList<Event> events() {
+        return events;
+    }
+
+    public URI source(int deck) {
+        return sources[deck];
+    }
+
+    /**
+     * Get the event code of a deck, or {@link #NONE} if the event is unknown.
+     */
+    public int eventCode(int deck) {
+        return deckEvents[deck];
+    }
+
+    /**
+     * Get the rank of a deck in its event, or <code>0</code> if the rank is unknown.
+     */
+    public int rank(int deck) {
+        return deckRanks[deck];
+    }
+
+    public int leaderCode(int deck) {
+        return deckLeaders[deck];
+    }
+
+    public int baseCode(int deck) {
+        return deckBases[deck];
+    }
+
+    public int archetypeCode(int deck) {
+        return deckArchetypes[deck];
+    }
+
+    public boolean isValid(int deck) {
+        return deckLeaders[deck] != NONE && deckBases[deck] != NONE;
+    }
+
+    /**
+     * Get the number of distinct cards in this dataset: card codes are between 0 (inclusive) and this value.
+     */
+    public int cardCount() {
+        return cards.length;
+    }
+
+    public Card.Id card(int code) {
+        return cards[code];
+    }
+
+    /**
+     * Get the code of a card, or {@link #NONE} if this card is not part of this dataset.
+     */
+    public int cardCode(Card.Id card) {
+        return cardCodes.getIfAbsent(card, NONE);
+    }
+
+    /**
+     * Get the number of distinct archetypes in this dataset: archetype codes are between 0 (inclusive) and this value.
+     */
+    public int archetypeCount() {
+        return archetypes.length;
+    }
+
+    public DeckArchetype archetype(int code) {
+        return archetypes[code];
+    }
+
+    boolean isSkippedFromMatchups(int deck) {
+        return deckSkipMatchups[deck];
+    }
+
+    int mainStart(int deck) {
+        return mainOffsets[deck];
+    }
+
+    int mainEnd(int deck) {
+        return mainOffsets[deck + 1];
+    }
+
+    int mainCard(int i) {
+        return mainCards[i];
+    }
+
+    int mainCount(int i) {
+        return mainCounts[i];
+    }
+
+    int sideStart(int deck) {
+        return sideOffsets[deck];
+    }
+
+    int sideEnd(int deck) {
+        return sideOffsets[deck + 1];
+    }
+
+    int sideCard(int i) {
+        return sideCards[i];
+    }
+
+    int sideCount(int i) {
+        return sideCounts[i];
+    }
+
+    int matchStart(int deck) {
+        return matchOffsets[deck];
+    }
+
+    int matchEnd(int deck) {
+        return matchOffsets[deck + 1];
+    }
+
+    /**
+     * Get the leader code of the opponent in a match, or {@link #NONE}
+     * if the opponent deck is unknown or must not be used for matchups.
+     */
+    int matchOpponentLeader(int i) {
+        return matchOpponentLeaders[i];
+    }
+
+    /**
+     * Get the archetype code of the opponent in a match, or {@link #NONE}
+     * if the opponent deck is unknown or must not be used for matchups.
+     */
+    int matchOpponentArchetype(int i) {
+        return matchOpponentArchetypes[i];
+    }
+
+    /**
+     * Get the result ordinal of a match, or {@link #NONE} if the result is unknown.
+     */
+    int matchResult(int i) {
+        return matchResults[i];
+    }
+
+    static Deck.Match.Result toResult(int ordinal) {
+        return RESULTS[ordinal];
+    }
+
+    static final class Builder {
+        private final MutableObjectIntMap<Card.Id> cardCodes = ObjectIntMaps.mutable.empty();
+        private final MutableList<Card.Id> cards = Lists.mutable.empty();
+        private final MutableObjectIntMap<DeckArchetype> archetypeCodes = ObjectIntMaps.mutable.empty();
+        private final MutableList<DeckArchetype> archetypes = Lists.mutable.empty();
+        private final MutableList<Event> events = Lists.mutable.empty();
+        private final MutableList<URI> sources = Lists.mutable.empty();
+        private final MutableIntList deckEvents = IntLists.mutable.empty();
+        private final MutableIntList deckRanks = IntLists.mutable.empty();
+        private final MutableIntList deckLeaders = IntLists.mutable.empty();
+        private final MutableIntList deckBases = IntLists.mutable.empty();
+        private final MutableIntList deckArchetypes = IntLists.mutable.empty();
+        private boolean[] deckSkipMatchups = new boolean[64];
+        private final MutableIntList mainOffsets = IntLists.mutable.with(0);
+        private final MutableIntList mainCards = IntLists.mutable.empty();
+        private final MutableIntList mainCounts = IntLists.mutable.empty();
+        private final MutableIntList sideOffsets = IntLists.mutable.with(0);
+        private final MutableIntList sideCards = IntLists.mutable.empty();
+        private final MutableIntList sideCounts = IntLists.mutable.empty();
+        private final MutableIntList matchOffsets = IntLists.mutable.with(0);
+        private final MutableIntList matchOpponentLeaders = IntLists.mutable.empty();
+        private final MutableIntList matchOpponentArchetypes = IntLists.mutable.empty();
+        private final MutableIntList matchResults = IntLists.mutable.empty();
+
+        int addEvent(Event event) {
+            events.add(event);
+            return events.size() - 1;
+        }
+
+        int encode(@Nullable Card.Id card) {
+            if (card == null) {
+                return NONE;
+            }
+            return cardCodes.getIfAbsentPut(card, () -> {
+                cards.add(card);
+                return cards.size() - 1;
+            });
+        }
+
+        int encode(@Nullable DeckArchetype archetype) {
+            if (archetype == null) {
+                return NONE;
+            }
+            return archetypeCodes.getIfAbsentPut(archetype, () -> {
+                archetypes.add(archetype);
+                return archetypes.size() - 1;
+            });
+        }
+
+        /**
+         * Add a deck row.
+         *
+         * @param deck                loaded deck, or <code>null</code> if the deck could not be loaded
+         * @param opponentLeaderCodes    leader codes of opponents, in the same order as deck matches
+         * @param opponentArchetypeCodes archetype codes of opponents, in the same order as deck matches,
+         *                               or <code>null</code> if opponent archetypes are unknown
+         */
+        void addDeck(URI source, int event, int rank, @Nullable Deck deck, @Nullable DeckArchetype archetype,
+                     boolean skipMatchups, int[] opponentLeaderCodes, @Nullable int[] opponentArchetypeCodes) {
+            final int row = sources.size();
+            sources.add(source);
+            deckEvents.add(event);
+            deckRanks.add(rank);
+            if (row == deckSkipMatchups.length) {
+                deckSkipMatchups = Arrays.copyOf(deckSkipMatchups, row * 2);
+            }
+            deckSkipMatchups[row] = skipMatchups;
+
+            if (deck == null) {
+                deckLeaders.add(NONE);
+                deckBases.add(NONE);
+                deckArchetypes.add(NONE);
+            } else {
+                deckLeaders.add(encode(deck.leader()));
+                deckBases.add(encode(deck.base()));
+                deckArchetypes.add(encode(archetype));
+                deck.main().forEachWithOccurrences((card, count) -> {
+                    mainCards.add(encode(card));
+                    mainCounts.add(count);
+                });
+                deck.sideboard().forEachWithOccurrences((card, count) -> {
+                    sideCards.add(encode(card));
+                    sideCounts.add(count);
+                });
+                for (int i = 0; i < deck.matches().size(); i++) {
+                    final var result = deck.matches().get(i).result();
+                    matchOpponentLeaders.add(opponentLeaderCodes[i]);
+                    matchOpponentArchetypes.add(opponentArchetypeCodes == null ? NONE : opponentArchetypeCodes[i]);
+                    matchResults.add(result == null ? NONE : result.ordinal());
+                }
+            }
+            mainOffsets.add(mainCards.size());
+            sideOffsets.add(sideCards.size());
+            matchOffsets.add(matchResults.size());
+        }
+
+        MetagameDataset build() {
+            return new MetagameDataset(this);
+        }
+    }
+}
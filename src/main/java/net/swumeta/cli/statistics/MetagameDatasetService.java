@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.statistics;
+
+import net.swumeta.cli.AppException;
+import net.swumeta.cli.DeckService;
+import net.swumeta.cli.model.Deck;
+import net.swumeta.cli.model.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+
+@Service
+public class MetagameDatasetService {
+    private final Logger logger = LoggerFactory.getLogger(MetagameDatasetService.class);
+    private final DeckService deckService;
+
+    MetagameDatasetService(DeckService deckService) {
+        this.deckService = deckService;
+    }
+
+    /**
+     * Create a dataset from decks of these events: pending decks and decks without an URL are not included.
+     */
+    public MetagameDataset create(Iterable<Event> events) {
+        logger.debug("Creating metagame dataset from events");
+        final var builder = new MetagameDataset.Builder();
+        for (final var event : events) {
+            if (event.players() == 0) {
+                continue;
+            }
+            final int eventCode = builder.addEvent(event);
+            for (final var entry : event.decks()) {
+                if (entry.url() != null && !entry.pending()) {
+                    addDeck(builder, entry.url(), eventCode, entry.rank());
+                }
+            }
+        }
+        return build(builder);
+    }
+
+    /**
+     * Create a dataset from a list of decks: dataset rows follow the order of deck URIs.
+     */
+    public MetagameDataset createFromDecks(Iterable<URI> decks) {
+        logger.debug("Creating metagame dataset from decks");
+        final var builder = new MetagameDataset.Builder();
+        for (final var deckUri : decks) {
+            addDeck(builder, deckUri, MetagameDataset.NONE, 0);
+        }
+        return build(builder);
+    }
+
+    private MetagameDataset build(MetagameDataset.Builder builder) {
+        final var dataset = builder.build();
+        logger.debug("Created metagame dataset: {} decks, {} cards, {} archetypes",
+                dataset.size(), dataset.cardCount(), dataset.archetypeCount());
+        return dataset;
+    }
+
+    private void addDeck(MetagameDataset.Builder builder, URI deckUri, int eventCode, int rank) {
+        final var deck = tryLoad(deckUri);
+        if (deck == null) {
+            builder.addDeck(deckUri, eventCode, rank, null, null, false, null, null);
+            return;
+        }
+        final var archetype = deck.isValid() ? deckService.getArchetype(deck) : null;
+        final var skipMatchups = "--".equals(deck.matchRecord());
+        final var opponentLeaders = new int[deck.matches().size()];
+        final var opponentArchetypes = new int[deck.matches().size()];
+        for (int i = 0; i < opponentLeaders.length; i++) {
+            opponentLeaders[i] = MetagameDataset.NONE;
+            opponentArchetypes[i] = MetagameDataset.NONE;
+            final var match = deck.matches().get(i);
+            if (match.opponentDeck() == null) {
+                continue;
+            }
+            final var opDeck = tryLoad(match.opponentDeck());
+            if (opDeck == null || opDeck.leader() == null) {
+                continue;
+            }
+            if ("--".equals(opDeck.matchRecord())) {
+                logger.trace("Skipping opponent deck from matchups: {}", opDeck.source());
+                continue;
+            }
+            opponentLeaders[i] = builder.encode(opDeck.leader());
+            if (opDeck.isValid()) {
+                opponentArchetypes[i] = builder.encode(deckService.getArchetype(opDeck));
+            }
+        }
+        builder.addDeck(deckUri, eventCode, rank, deck, archetype, skipMatchups, opponentLeaders, opponentArchetypes);
+    }
+
+    @Nullable
+    private Deck tryLoad(URI deckUri) {
+        try {
+            return deckService.load(deckUri);
+        } catch (AppException e) {
+            return null;
+        }
+    }
+}
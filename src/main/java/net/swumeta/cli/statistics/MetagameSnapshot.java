@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.statistics;
+
+import net.swumeta.cli.model.Card;
+import net.swumeta.cli.model.DeckArchetype;
+import org.eclipse.collections.api.bag.ImmutableBag;
+import org.eclipse.collections.api.bag.MutableBag;
+import org.eclipse.collections.api.factory.Bags;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.factory.primitive.ObjectIntMaps;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.map.primitive.ObjectIntMap;
+
+import java.util.List;
+
+/**
+ * Metagame statistics merged from snapshots of several events.
+ *
+ * @param cards             card copies played in valid decks, including leaders and bases
+ * @param archetypes        decks by archetype
+ * @param leaderMatchups    leader matchups, sorted by meta share
+ * @param archetypeMatchups archetype matchups, with at least {@link ArchetypeMatchups#DEFAULT_MIN_MATCHES} matches
+ * @param cardPairs         card pairs of each leader, sorted by number of decks
+ * @param cardUsages        cards played with each leader, sorted by number of decks
+ * @param cardResults       match results of decks including each card, for each leader sorted by number of decks
+ */
+public record MetagameSnapshot(
+        ImmutableBag<Card.Id> cards,
+        ImmutableBag<DeckArchetype> archetypes,
+        ImmutableList<DeckStatisticsService.LeaderMatchup> leaderMatchups,
+        ArchetypeMatchups archetypeMatchups,
+        ImmutableBag<Card.Id> top8Leaders,
+        ImmutableBag<Card.Id> winnerLeaders,
+        ImmutableBag<Card.Id> top8Bases,
+        ImmutableBag<DeckArchetype> top8Archetypes,
+        ImmutableBag<DeckArchetype> winnerArchetypes,
+        ImmutableList<CardStatisticsService.CardPairs> cardPairs,
+        ImmutableList<CardStatisticsService.LeaderCardUsage> cardUsages,
+        ImmutableList<CardStatisticsService.LeaderCardResults> cardResults
+) {
+    static MetagameSnapshot merge(Iterable<EventSnapshot> snapshots) {
+        final var cards = Bags.mutable.<Card.Id>ofInitialCapacity(512);
+        final var archetypes = Bags.mutable.<DeckArchetype>ofInitialCapacity(64);
+        final var matchupLeaders = Bags.mutable.<Card.Id>ofInitialCapacity(32);
+        final var matchups = Maps.mutable.<MatchupKey, int[]>ofInitialCapacity(256);
+        final var archetypeMatchups = new ArchetypeMatchups.Builder();
+        final var top8Leaders = Bags.mutable.<Card.Id>ofInitialCapacity(32);
+        final var winnerLeaders = Bags.mutable.<Card.Id>ofInitialCapacity(32);
+        final var top8Bases = Bags.mutable.<Card.Id>ofInitialCapacity(32);
+        final var top8Archetypes = Bags.mutable.<DeckArchetype>ofInitialCapacity(32);
+        final var winnerArchetypes = Bags.mutable.<DeckArchetype>ofInitialCapacity(32);
+        final var pairLeaders = Bags.mutable.<Card.Id>ofInitialCapacity(32);
+        final var pairCards = Maps.mutable.<Card.Id, MutableBag<Card.Id>>ofInitialCapacity(32);
+        final var pairCounts = ObjectIntMaps.mutable.<CardPairKey>ofInitialCapacity(4096);
+        final var usageLeaders = Bags.mutable.<Card.Id>ofInitialCapacity(32);
+        final var usages = Maps.mutable.<Card.Id, MutableMap<Card.Id, int[]>>ofInitialCapacity(32);
+        final var cardResultCounts = Maps.mutable.<Card.Id, MutableMap<Card.Id, int[]>>ofInitialCapacity(32);
+        for (final var snapshot : snapshots) {
+            addCards(cards, snapshot.cards());
+            addArchetypes(archetypes, snapshot.archetypes());
+            addCards(matchupLeaders, snapshot.matchupLeaders());
+            for (final var m : snapshot.matchups()) {
+                final var results = matchups.getIfAbsentPut(new MatchupKey(m.leader(), m.opponent()), () -> new int[3]);
+                results[0] += m.wins();
+                results[1] += m.losses();
+                results[2] += m.draws();
+            }
+            final var snapshotArchetypes = snapshot.archetypes().stream().map(EventSnapshot.ArchetypeCount::archetype).toList();
+            for (final var c : snapshot.archetypes()) {
+                archetypeMatchups.addDecks(c.archetype(), c.count());
+            }
+            for (final var m : snapshot.archetypeMatchups()) {
+                archetypeMatchups.addResults(snapshotArchetypes.get(m.archetype()), snapshotArchetypes.get(m.opponent()),
+                        m.wins(), m.losses(), m.draws());
+            }
+            addCards(top8Leaders, snapshot.top8Leaders());
+            addCards(winnerLeaders, snapshot.winnerLeaders());
+            addCards(top8Bases, snapshot.top8Bases());
+            addArchetypes(top8Archetypes, snapshot.top8Archetypes());
+            addArchetypes(winnerArchetypes, snapshot.winnerArchetypes());
+            for (final var c : snapshot.cardPairCards()) {
+                if (c.card().equals(c.leader())) {
+                    pairLeaders.addOccurrences(c.leader(), c.count());
+                } else {
+                    pairCards.getIfAbsentPut(c.leader(), Bags.mutable::empty).addOccurrences(c.card(), c.count());
+                }
+            }
+            for (final var p : snapshot.cardPairs()) {
+                final var first = snapshot.cardPairCards().get(p.first());
+                final var second = snapshot.cardPairCards().get(p.second());
+                pairCounts.addToValue(CardPairKey.of(first.leader(), first.card(), second.card()), p.together());
+            }
+            for (final var u : snapshot.cardUsages()) {
+                if (u.card().equals(u.leader())) {
+                    usageLeaders.addOccurrences(u.leader(), u.decks());
+                    continue;
+                }
+                final var counts = usages.getIfAbsentPut(u.leader(), Maps.mutable::empty).getIfAbsentPut(u.card(), () -> new int[3]);
+                counts[0] += u.decks();
+                counts[1] += u.mainCopies();
+                counts[2] += u.sideboardCopies();
+            }
+            for (final var r : snapshot.cardResults()) {
+                final var counts = cardResultCounts.getIfAbsentPut(r.leader(), Maps.mutable::empty).getIfAbsentPut(r.card(), () -> new int[4]);
+                counts[0] += r.decks();
+                counts[1] += r.wins();
+                counts[2] += r.losses();
+                counts[3] += r.draws();
+            }
+        }
+
+        final var cardPairs = Lists.mutable.<CardStatisticsService.CardPairs>ofInitialCapacity(pairLeaders.sizeDistinct());
+        pairLeaders.forEachWithOccurrences((leader, decks) -> cardPairs.add(toCardPairs(leader, decks, pairCards.get(leader), pairCounts)));
+        cardPairs.sortThisBy(CardStatisticsService.CardPairs::leader).sortThisByInt(p -> -p.decks());
+        final var cardUsages = Lists.mutable.<CardStatisticsService.LeaderCardUsage>ofInitialCapacity(usageLeaders.sizeDistinct());
+        usageLeaders.forEachWithOccurrences((leader, decks) -> {
+            final var leaderCards = Lists.mutable.<CardStatisticsService.CardUsage>ofInitialCapacity(64);
+            final var leaderUsages = usages.get(leader);
+            if (leaderUsages != null) {
+                leaderUsages.forEachKeyValue((card, counts) -> leaderCards.add(new CardStatisticsService.CardUsage(card, counts[0], counts[1], counts[2])));
+            }
+            leaderCards.sortThisBy(CardStatisticsService.CardUsage::card).sortThisByInt(c -> -c.decks());
+            cardUsages.add(new CardStatisticsService.LeaderCardUsage(leader, decks, leaderCards.toImmutable()));
+        });
+        cardUsages.sortThisBy(CardStatisticsService.LeaderCardUsage::leader).sortThisByInt(u -> -u.decks());
+        final var cardResults = Lists.mutable.<CardStatisticsService.LeaderCardResults>ofInitialCapacity(cardResultCounts.size());
+        cardResultCounts.forEachKeyValue((leader, leaderResults) -> {
+            final var leaderCards = Lists.mutable.<CardStatisticsService.CardResults>ofInitialCapacity(leaderResults.size());
+            leaderResults.forEachKeyValue((card, counts) -> {
+                if (!card.equals(leader)) {
+                    leaderCards.add(new CardStatisticsService.CardResults(card, counts[0], counts[1], counts[2], counts[3]));
+                }
+            });
+            leaderCards.sortThisBy(CardStatisticsService.CardResults::card).sortThisByInt(c -> -c.decks());
+            final var counts = leaderResults.get(leader);
+            cardResults.add(new CardStatisticsService.LeaderCardResults(new CardStatisticsService.CardResults(
+                    leader, counts[0], counts[1], counts[2], counts[3]), leaderCards.toImmutable()));
+        });
+        cardResults.sortThisBy(r -> r.leader().card()).sortThisByInt(r -> -r.leader().decks());
+
+        final var leaders = matchupLeaders.toImmutable();
+        final var leaderMatchups = DeckStatisticsService.getLeaderMatchups(new DeckStatisticsService.MatchupResults() {
+            @Override
+            public ImmutableBag<Card.Id> leaders() {
+                return leaders;
+            }
+
+            @Override
+            public DeckStatisticsService.LeaderMatchupOpponent get(Card.Id leader, Card.Id opponent) {
+                final var results = matchups.get(new MatchupKey(leader, opponent));
+                return results == null
+                        ? new DeckStatisticsService.LeaderMatchupOpponent(opponent, 0, 0, 0)
+                        : new DeckStatisticsService.LeaderMatchupOpponent(opponent, results[0], results[1], results[2]);
+            }
+        });
+        return new MetagameSnapshot(cards.toImmutable(), archetypes.toImmutable(), leaderMatchups,
+                archetypeMatchups.build(ArchetypeMatchups.DEFAULT_MIN_MATCHES),
+                top8Leaders.toImmutable(), winnerLeaders.toImmutable(), top8Bases.toImmutable(),
+                top8Archetypes.toImmutable(), winnerArchetypes.toImmutable(), cardPairs.toImmutable(), cardUsages.toImmutable(),
+                cardResults.toImmutable());
+    }
+
+    /**
+     * Pair the most included cards of a leader, as {@link CardStatisticsService#getCardPairs(MetagameDataset, Card.Id, int)}:
+     * cards with the same inclusion are sorted by id, since snapshots do not keep the order of cards in datasets.
+     */
+    private static CardStatisticsService.CardPairs toCardPairs(Card.Id leader, int decks, MutableBag<Card.Id> cards,
+                                                               ObjectIntMap<CardPairKey> pairCounts) {
+        final var cardBag = cards == null ? Bags.immutable.<Card.Id>empty() : cards.toImmutable();
+        final var sortedCards = cardBag.toSortedSet().toList()
+                .sortThisByInt(c -> -cardBag.occurrencesOf(c))
+                .take(EventSnapshot.CARD_PAIR_MAX_CARDS);
+        final var pairs = Lists.mutable.<CardStatisticsService.CardPair>ofInitialCapacity(sortedCards.size() * (sortedCards.size() - 1) / 2);
+        for (int a = 0; a < sortedCards.size(); a++) {
+            final var first = sortedCards.get(a);
+            for (int b = a + 1; b < sortedCards.size(); b++) {
+                final var second = sortedCards.get(b);
+                pairs.add(new CardStatisticsService.CardPair(first, second, cardBag.occurrencesOf(first), cardBag.occurrencesOf(second),
+                        pairCounts.get(CardPairKey.of(leader, first, second))));
+            }
+        }
+        return new CardStatisticsService.CardPairs(leader, decks, cardBag, pairs.toImmutable());
+    }
+
+    private static void addCards(MutableBag<Card.Id> bag, List<EventSnapshot.CardCount> counts) {
+        for (final var c : counts) {
+            bag.addOccurrences(c.card(), c.count());
+        }
+    }
+
+    private static void addArchetypes(MutableBag<DeckArchetype> bag, List<EventSnapshot.ArchetypeCount> counts) {
+        for (final var c : counts) {
+            bag.addOccurrences(c.archetype(), c.count());
+        }
+    }
+
+    private record MatchupKey(Card.Id leader, Card.Id opponent) {
+    }
+
+    /**
+     * Two cards played with a leader, whatever the order of these cards.
+     */
+    private record CardPairKey(Card.Id leader, Card.Id first, Card.Id second) {
+        static CardPairKey of(Card.Id leader, Card.Id a, Card.Id b) {
+            return a.compareTo(b) <= 0 ? new CardPairKey(leader, a, b) : new CardPairKey(leader, b, a);
+        }
+    }
+}
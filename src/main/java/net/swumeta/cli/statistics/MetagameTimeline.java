@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.statistics;
+
+import net.swumeta.cli.model.Card;
+import net.swumeta.cli.model.DeckArchetype;
+import org.eclipse.collections.api.bag.ImmutableBag;
+import org.eclipse.collections.api.factory.Bags;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.primitive.ObjectIntMaps;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Metagame statistics indexed by event date.
+ * <p>
+ * Counts (decks by leader and archetype, match results of each leader against each opponent)
+ * are stored as cumulative sums over days with events: counts for any date window are computed
+ * by subtracting two rows, without merging events of this window again.
+ */
+public final class MetagameTimeline {
+    private static final int RESULT_COUNT = 3;
+    private final LocalDate[] days;
+    private final Card.Id[] leaders;
+    private final DeckArchetype[] archetypes;
+    private final MutableObjectIntMap<Card.Id> leaderIndexes;
+    // Each array is made of (days + 1) rows: row d holds counts from events before day d.
+    private final int[] leaderDecks;
+    private final int[] archetypeDecks;
+    private final int[] matchups;
+
+    private MetagameTimeline(LocalDate[] days, Card.Id[] leaders, DeckArchetype[] archetypes,
+                             MutableObjectIntMap<Card.Id> leaderIndexes,
+                             int[] leaderDecks, int[] archetypeDecks, int[] matchups) {
+        this.days = days;
+        this.leaders = leaders;
+        this.archetypes = archetypes;
+        this.leaderIndexes = leaderIndexes;
+        this.leaderDecks = leaderDecks;
+        this.archetypeDecks = archetypeDecks;
+        this.matchups = matchups;
+    }
+
+    static MetagameTimeline create(SortedMap<LocalDate, List<EventSnapshot>> snapshotsByDate) {
+        final var leaderIndexes = ObjectIntMaps.mutable.<Card.Id>empty();
+        final var archetypeIndexes = ObjectIntMaps.mutable.<DeckArchetype>empty();
+        for (final var snapshots : snapshotsByDate.values()) {
+            for (final var snapshot : snapshots) {
+                snapshot.matchupLeaders().forEach(c -> leaderIndexes.getIfAbsentPut(c.card(), leaderIndexes.size()));
+                snapshot.archetypes().forEach(c -> archetypeIndexes.getIfAbsentPut(c.archetype(), archetypeIndexes.size()));
+            }
+        }
+        final var leaders = new Card.Id[leaderIndexes.size()];
+        leaderIndexes.forEachKeyValue((leader, i) -> leaders[i] = leader);
+        final var archetypes = new DeckArchetype[archetypeIndexes.size()];
+        archetypeIndexes.forEachKeyValue((archetype, i) -> archetypes[i] = archetype);
+
+        final var days = snapshotsByDate.keySet().toArray(new LocalDate[0]);
+        final int l = leaders.length;
+        final int a = archetypes.length;
+        final int m = l * l * RESULT_COUNT;
+        final var leaderDecks = new int[(days.length + 1) * l];
+        final var archetypeDecks = new int[(days.length + 1) * a];
+        final var matchups = new int[(days.length + 1) * m];
+        int day = 0;
+        for (final var snapshots : snapshotsByDate.values()) {
+            day += 1;
+            System.arraycopy(leaderDecks, (day - 1) * l, leaderDecks, day * l, l);
+            System.arraycopy(archetypeDecks, (day - 1) * a, archetypeDecks, day * a, a);
+            System.arraycopy(matchups, (day - 1) * m, matchups, day * m, m);
+            for (final var snapshot : snapshots) {
+                for (final var c : snapshot.matchupLeaders()) {
+                    leaderDecks[day * l + leaderIndexes.get(c.card())] += c.count();
+                }
+                for (final var c : snapshot.archetypes()) {
+                    archetypeDecks[day * a + archetypeIndexes.get(c.archetype())] += c.count();
+                }
+                for (final var c : snapshot.matchups()) {
+                    final int offset = day * m + (leaderIndexes.get(c.leader()) * l + leaderIndexes.get(c.opponent())) * RESULT_COUNT;
+                    matchups[offset] += c.wins();
+                    matchups[offset + 1] += c.losses();
+                    matchups[offset + 2] += c.draws();
+                }
+            }
+        }
+        return new MetagameTimeline(days, leaders, archetypes, leaderIndexes, leaderDecks, archetypeDecks, matchups);
+    }
+
+    /**
+     * Get the date of the first event, or <code>null</code> if this timeline is empty.
+     */
+    @Nullable
+    public LocalDate firstDate() {
+        return days.length == 0 ? null : days[0];
+    }
+
+    /**
+     * Get the date of the last event, or <code>null</code> if this timeline is empty.
+     */
+    @Nullable
+    public LocalDate lastDate() {
+        return days.length == 0 ? null : days[days.length - 1];
+    }
+
+    /**
+     * Get statistics from events between two dates (inclusive).
+     */
+    public Window window(LocalDate from, LocalDate to) {
+        Assert.isTrue(!to.isBefore(from), "Window end must not be before window start");
+        return new Window(from, to, indexOf(from, false), indexOf(to, true));
+    }
+
+    /**
+     * Compare matchups between two windows: only matchups played in both windows are included,
+     * sorted by decreasing win rate change.
+     */
+    public ImmutableList<MatchupChange> getMatchupChanges(Window before, Window after) {
+        final var changes = Lists.mutable.<MatchupChange>empty();
+        for (final var leader : leaders) {
+            for (final var op : leaders) {
+                final var b = before.getMatchup(leader, op);
+                final var a = after.getMatchup(leader, op);
+                if (b.matchCount() != 0 && a.matchCount() != 0) {
+                    changes.add(new MatchupChange(leader, op, b, a));
+                }
+            }
+        }
+        changes.sortThisByDouble(c -> -Math.abs(c.winRateChange()));
+        return changes.toImmutable();
+    }
+
+    // Get the row of cumulative counts before a date, or up to a date (inclusive).
+    private int indexOf(LocalDate date, boolean inclusive) {
+        final int i = Arrays.binarySearch(days, date);
+        if (i >= 0) {
+            return inclusive ? i + 1 : i;
+        }
+        return -i - 1;
+    }
+
+    public record MatchupChange(
+            Card.Id leader,
+            Card.Id opponent,
+            DeckStatisticsService.LeaderMatchupOpponent before,
+            DeckStatisticsService.LeaderMatchupOpponent after
+    ) {
+        public double winRateChange() {
+            return after.winRate() - before.winRate();
+        }
+    }
+
+    /**
+     * Statistics from events between two dates.
+     */
+    public final class Window {
+        private final LocalDate from;
+        private final LocalDate to;
+        private final int start;
+        private final int end;
+
+        private Window(LocalDate from, LocalDate to, int start, int end) {
+            this.from = from;
+            this.to = to;
+            this.start = start;
+            this.end = end;
+        }
+
+        public LocalDate from() {
+            return from;
+        }
+
+        public LocalDate to() {
+            return to;
+        }
+
+        /**
+         * Get leaders with the number of decks counted in matchups.
+         */
+        public ImmutableBag<Card.Id> leaders() {
+            final var bag = Bags.mutable.<Card.Id>ofInitialCapacity(leaders.length);
+            for (int i = 0; i < leaders.length; i++) {
+                final int count = leaderDecks[end * leaders.length + i] - leaderDecks[start * leaders.length + i];
+                if (count != 0) {
+                    bag.addOccurrences(leaders[i], count);
+                }
+            }
+            return bag.toImmutable();
+        }
+
+        public ImmutableBag<DeckArchetype> archetypes() {
+            final var bag = Bags.mutable.<DeckArchetype>ofInitialCapacity(archetypes.length);
+            for (int i = 0; i < archetypes.length; i++) {
+                final int count = archetypeDecks[end * archetypes.length + i] - archetypeDecks[start * archetypes.length + i];
+                if (count != 0) {
+                    bag.addOccurrences(archetypes[i], count);
+                }
+            }
+            return bag.toImmutable();
+        }
+
+        public DeckStatisticsService.LeaderMatchupOpponent getMatchup(Card.Id leader, Card.Id opponent) {
+            if (!leaderIndexes.containsKey(leader) || !leaderIndexes.containsKey(opponent)) {
+                return new DeckStatisticsService.LeaderMatchupOpponent(opponent, 0, 0, 0);
+            }
+            final int m = leaders.length * leaders.length * RESULT_COUNT;
+            final int offset = (leaderIndexes.get(leader) * leaders.length + leaderIndexes.get(opponent)) * RESULT_COUNT;
+            final int wins = matchups[end * m + offset] - matchups[start * m + offset];
+            final int losses = matchups[end * m + offset + 1] - matchups[start * m + offset + 1];
+            final int draws = matchups[end * m + offset + 2] - matchups[start * m + offset + 2];
+            return new DeckStatisticsService.LeaderMatchupOpponent(opponent, wins, losses, draws);
+        }
+
+        public ImmutableList<DeckStatisticsService.LeaderMatchup> leaderMatchups() {
+            final var windowLeaders = leaders();
+            return DeckStatisticsService.getLeaderMatchups(new DeckStatisticsService.MatchupResults() {
+                @Override
+                public ImmutableBag<Card.Id> leaders() {
+                    return windowLeaders;
+                }
+
+                @Override
+                public DeckStatisticsService.LeaderMatchupOpponent get(Card.Id leader, Card.Id opponent) {
+                    return getMatchup(leader, opponent);
+                }
+            });
+        }
+    }
+}
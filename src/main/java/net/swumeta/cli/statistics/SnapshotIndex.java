@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.statistics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.swumeta.cli.AppConfig;
+import net.swumeta.cli.model.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remember the current snapshot key of each event, and whether this event is complete
+ * for this key: the completeness of an event is not checked again until the event
+ * or one of its decks is updated, so decks of older events are not loaded on each run.
+ * <p>
+ * The index is persisted in the snapshot cache directory. A snapshot is deleted
+ * as soon as it is superseded by a new key for the same event, and snapshots
+ * missing from the index are deleted when the index is loaded.
+ */
+@Component
+class SnapshotIndex {
+    private static final int INDEX_VERSION = 1;
+    private final Logger logger = LoggerFactory.getLogger(SnapshotIndex.class);
+    private final AppConfig config;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>(64);
+    private boolean loaded;
+
+    SnapshotIndex(AppConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Event state in the snapshot cache.
+     *
+     * @param snapshot key of the current snapshot of this event
+     * @param complete whether this event is complete, or <code>null</code> if unknown
+     */
+    record Entry(String snapshot, @Nullable Boolean complete) {
+    }
+
+    private record Index(int version, Map<String, Entry> events) {
+    }
+
+    @Nullable
+    Entry get(Event event) {
+        load();
+        return entries.get(toKey(event));
+    }
+
+    void put(Event event, Entry entry) {
+        load();
+        final var previous = entries.put(toKey(event), entry);
+        if (entry.equals(previous)) {
+            return;
+        }
+        if (previous != null && !previous.snapshot().equals(entry.snapshot())) {
+            deleteSnapshot(previous.snapshot());
+        }
+        save();
+    }
+
+    File getSnapshotFile(String snapshot) {
+        return new File(getSnapshotDir(), snapshot + ".json");
+    }
+
+    private void deleteSnapshot(String snapshot) {
+        final var snapshotFile = getSnapshotFile(snapshot);
+        if (snapshotFile.exists()) {
+            logger.trace("Deleting superseded event snapshot: {}", snapshotFile);
+            snapshotFile.delete();
+        }
+    }
+
+    private static String toKey(Event event) {
+        return event.date().format(DateTimeFormatter.ISO_LOCAL_DATE) + " " + event.name();
+    }
+
+    private File getSnapshotDir() {
+        return new File(config.cache(), "snapshots");
+    }
+
+    private File getIndexFile() {
+        return new File(getSnapshotDir(), "index.json");
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        final var indexFile = getIndexFile();
+        if (indexFile.exists()) {
+            try {
+                final Index index = objectMapper.readValue(indexFile, Index.class);
+                if (index.version != INDEX_VERSION || index.events == null) {
+                    logger.debug("Ignoring outdated snapshot index: {}", indexFile);
+                } else {
+                    index.events.forEach(entries::putIfAbsent);
+                    logger.debug("Loaded snapshot index: {} events", index.events.size());
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to read snapshot index: {}", indexFile, e);
+            }
+        }
+        pruneSnapshots(indexFile);
+    }
+
+    /**
+     * Delete snapshots which are not the current snapshot of an event,
+     * such as snapshots written before this index was introduced.
+     */
+    private void pruneSnapshots(File indexFile) {
+        final var currentSnapshots = new HashSet<String>(entries.size());
+        entries.values().forEach(e -> currentSnapshots.add(e.snapshot() + ".json"));
+        final var snapshotFiles = getSnapshotDir().listFiles((dir, name) -> name.endsWith(".json")
+                && !name.equals(indexFile.getName()) && !currentSnapshots.contains(name));
+        if (snapshotFiles == null || snapshotFiles.length == 0) {
+            return;
+        }
+        logger.debug("Deleting {} superseded event snapshots", snapshotFiles.length);
+        for (final var snapshotFile : snapshotFiles) {
+            snapshotFile.delete();
+        }
+    }
+
+    private synchronized void save() {
+        final var indexFile = getIndexFile();
+        indexFile.getParentFile().mkdirs();
+        final var tempFile = new File(indexFile.getParentFile(), indexFile.getName() + "." + UUID.randomUUID() + ".tmp").toPath();
+        try {
+            try {
+                objectMapper.writeValue(tempFile.toFile(), new Index(INDEX_VERSION, new TreeMap<>(entries)));
+                Files.move(tempFile, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to save snapshot index: {}", indexFile, e);
+        }
+    }
+}
@@ -1,3 +1,8 @@
+function leaderArtImage(leader) {
+    const srcset = leader.artSrcset ? " srcset='" + leader.artSrcset + "' sizes='120px'" : "";
+    return "<img src='" + leader.art + "'" + srcset + " width='120' height='40' alt='" + leader.name + "'/>";
+}
+
 function initWinratesMatrix(elem) {
     const embedded = "true" == elem.attr("data-embedded");
     const dataUrl = elem.attr("data-url");
@@ -18,9 +23,7 @@ function initWinratesMatrix(elem) {
         theadTr.append($("<th></th>"));
 
         $.each(jsonData.data, function(index, item) {
-            const leaderName = item.leader.name;
-            const leaderArt = item.leader.art;
-            const th = $("<th></th>").html("<img src='" + leaderArt + "' width='120' height='40' alt='" + leaderName + "'/>");
+            const th = $("<th></th>").html(leaderArtImage(item.leader));
             theadTr.append(th);
         });
 
@@ -29,11 +32,10 @@ function initWinratesMatrix(elem) {
 
         $.each(jsonData.data, function(index, item) {
             const leaderName = item.leader.name;
-            const leaderArt = item.leader.art;
             const tr = $("<tr></tr>");
             tbody.append(tr);
 
-            const tdFirst = $("<td></td>").html("<img src='" + leaderArt + "' width='120' height='40' alt='" + leaderName + "'/>");
+            const tdFirst = $("<td></td>").html(leaderArtImage(item.leader));
             tr.append(tdFirst);
 
             $.each(item.opponents, function(opIndex, opItem) {
@@ -19,13 +19,18 @@ package net.swumeta.cli;
 import net.swumeta.cli.model.Card;
 import net.swumeta.cli.model.Set;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -64,22 +69,49 @@ class CardDatabaseServiceTests {
     }
 
     @Test
-    void testSave() throws IOException {
-        final var cardFile = new File(new File(new File(config.database(), "cards"), "JTL"), "JTL-999.yaml");
-        cardFile.delete();
+    void testSave(@TempDir File database) throws IOException {
+        // The card is saved to a temporary database, leaving the shared test database untouched.
+        final var db = new CardDatabaseService(new AppConfig(config.base(), database, config.output(), config.cache(), 0, null, 0, 0));
+        final var cardFile = new File(new File(new File(database, "cards"), "JTL"), "JTL-999.yaml");
         assertThat(cardFile.exists()).isFalse();
 
         final var card = new Card(Set.JTL, 999, Card.Type.EVENT, Card.Rarity.COMMON, Card.Arena.GROUND,
                 List.of(Card.Aspect.AGGRESSION), 8, "Restart the game", "One more game?",
                 URI.create("http://somewhere.com/myart"), URI.create("http://somewhere.com/thumnail"));
-        svc.save(card);
+        db.save(card);
 
         assertThat(cardFile.exists()).isTrue();
-        final var cards = svc.findByName("Restart the game", "One more game?");
+        final var cards = db.findByName("Restart the game", "One more game?");
         assertThat(cards).hasSize(1);
         assertThat(cards.stream().map(Card::id)).containsExactly(Card.Id.valueOf("JTL-999"));
     }
 
+    @Test
+    void testToThumbnailFromSmallArt(@TempDir File dir) throws IOException {
+        final var artFile = new File(dir, "art.png");
+        ImageIO.write(new BufferedImage(200, 60, BufferedImage.TYPE_INT_RGB), "png", artFile);
+        final var db = new CardDatabaseService(new AppConfig(config.base(), new File(dir, "database"), new File(dir, "public"),
+                new File(dir, "cache"), 0, null, 0, 0));
+        final var card = new Card(Set.JTL, 999, Card.Type.EVENT, Card.Rarity.COMMON, Card.Arena.GROUND,
+                List.of(Card.Aspect.AGGRESSION), 8, "Small art", null, artFile.toURI(), artFile.toURI());
+        db.save(card);
+
+        // The art is not upscaled: only the 1x thumbnail is rendered, and no empty image is cached.
+        final var thumbnail = db.toThumbnail(card.id());
+        assertThat(thumbnail.srcset()).endsWith("JTL-999-1x.jpg 120w");
+        final var thumbnailsDir = new File(new File(new File(dir, "public"), "images"), "thumbnails");
+        assertThat(thumbnailsDir.list()).containsExactly("JTL-999-1x.jpg");
+        try (final var cachedImages = Files.walk(new File(dir, "cache").toPath())) {
+            assertThat(cachedImages.filter(Files::isRegularFile)).allMatch(f -> f.toFile().length() != 0);
+        }
+
+        // Rendered images and art width are read from the cache: the art is not loaded again.
+        assertThat(artFile.delete()).isTrue();
+        assertThat(new File(thumbnailsDir, "JTL-999-1x.jpg").delete()).isTrue();
+        assertThat(db.toThumbnail(card.id())).isEqualTo(thumbnail);
+        assertThat(thumbnailsDir.list()).containsExactly("JTL-999-1x.jpg");
+    }
+
     @Test
     void testFindById() {
         final var card = svc.findById(Card.Id.valueOf("JTL-045"));
@@ -90,6 +122,49 @@ class CardDatabaseServiceTests {
         assertThat(card2).isSameAs(card);
     }
 
+    @Test
+    void testSync(@TempDir File database) throws IOException {
+        final var db = new CardDatabaseService(new AppConfig(config.base(), database, config.output(), config.cache(), 0, null, 0, 0));
+        final var unchanged = createCard(1, "Unchanged");
+        final var updated = createCard(2, "Before update");
+        final var removed = createCard(3, "Removed");
+        assertThat(db.sync(List.of(unchanged, updated, removed))).isEqualTo(new CardDatabaseService.SyncResult(3, 0, 0, 0));
+
+        final var unchangedFile = new File(new File(new File(database, "cards"), "JTL"), "JTL-901.yaml");
+        final var removedFile = new File(unchangedFile.getParentFile(), "JTL-903.yaml");
+        final long unchangedModified = Files.getLastModifiedTime(unchangedFile.toPath()).toMillis() - 10_000;
+        Files.setLastModifiedTime(unchangedFile.toPath(), FileTime.fromMillis(unchangedModified));
+        assertThat(removedFile).exists();
+
+        final var result = db.sync(List.of(unchanged, createCard(2, "After update"), createCard(4, "Added")));
+        assertThat(result).isEqualTo(new CardDatabaseService.SyncResult(1, 1, 1, 1));
+        assertThat(Files.getLastModifiedTime(unchangedFile.toPath()).toMillis()).isEqualTo(unchangedModified);
+        assertThat(removedFile).doesNotExist();
+        assertThat(unchangedFile.getParentFile().list()).containsExactlyInAnyOrder("JTL-901.yaml", "JTL-902.yaml", "JTL-904.yaml");
+
+        assertThat(db.findById(Card.Id.valueOf("JTL-902")).name()).isEqualTo("After update");
+        assertThat(db.findByName("Before update", null)).isEmpty();
+        assertThat(db.findByName("Removed", null)).isEmpty();
+        assertThat(db.findByName("Added", null)).hasSize(1);
+        assertThat(db.findAll().stream().map(Card::id)).containsExactlyInAnyOrder(
+                Card.Id.valueOf("JTL-901"), Card.Id.valueOf("JTL-902"), Card.Id.valueOf("JTL-904"));
+    }
+
+    @Test
+    void testSyncEmpty(@TempDir File database) {
+        final var db = new CardDatabaseService(new AppConfig(config.base(), database, config.output(), config.cache(), 0, null, 0, 0));
+        db.sync(List.of(createCard(1, "Existing")));
+        assertThatExceptionOfType(AppException.class).isThrownBy(() -> db.sync(List.of()));
+        assertThat(db.findByName("Existing", null)).hasSize(1);
+        assertThat(new File(new File(new File(database, "cards"), "JTL"), "JTL-901.yaml")).exists();
+    }
+
+    private static Card createCard(int number, String name) {
+        return new Card(Set.JTL, 900 + number, Card.Type.EVENT, Card.Rarity.COMMON, Card.Arena.GROUND,
+                List.of(Card.Aspect.AGGRESSION), 2, name, null,
+                URI.create("http://somewhere.com/myart"), URI.create("http://somewhere.com/thumbnail"));
+    }
+
     @Test
     void findByIdNull() {
         assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> svc.findById(null));
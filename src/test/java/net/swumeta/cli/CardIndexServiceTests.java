@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli;
+
+import net.swumeta.cli.model.Card;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class CardIndexServiceTests {
+    @Autowired
+    private CardIndexService svc;
+
+    @Test
+    void testQueryType() {
+        final var mask = svc.query("type=leader");
+        assertThat(mask.toList()).containsExactlyInAnyOrder(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("SOR-008"));
+        assertThat(mask.contains(Card.Id.valueOf("JTL-009"))).isTrue();
+        assertThat(mask.contains(Card.Id.valueOf("JTL-045"))).isFalse();
+    }
+
+    @Test
+    void testQueryConjunction() {
+        final var mask = svc.query("type=unit AND aspect=vigilance AND cost<=3");
+        assertThat(mask.toList()).containsExactly(Card.Id.valueOf("JTL-045"));
+    }
+
+    @Test
+    void testQueryDisjunction() {
+        final var mask = svc.query("TYPE = unit and (arena=space or cost > 3) and not aspect=aggression");
+        assertThat(mask.toList()).containsExactlyInAnyOrder(Card.Id.valueOf("SOR-065"), Card.Id.valueOf("SOR-225"));
+    }
+
+    @Test
+    void testQueryNotEquals() {
+        final var mask = svc.query("type=base AND set!=SOR AND rarity!=rare");
+        assertThat(mask.toList()).containsExactlyInAnyOrder(
+                Card.Id.valueOf("JTL-026"), Card.Id.valueOf("LOF-020"), Card.Id.valueOf("LOF-027"));
+    }
+
+    @Test
+    void testQueryInvalid() {
+        assertThatExceptionOfType(AppException.class).isThrownBy(() -> svc.query("type=foo"));
+        assertThatExceptionOfType(AppException.class).isThrownBy(() -> svc.query("color=red"));
+        assertThatExceptionOfType(AppException.class).isThrownBy(() -> svc.query("type=unit AND"));
+        assertThatExceptionOfType(AppException.class).isThrownBy(() -> svc.query("(type=unit"));
+        assertThatExceptionOfType(AppException.class).isThrownBy(() -> svc.query("type<unit"));
+    }
+
+    @Test
+    void testFilter() {
+        final var mask = svc.filter(c -> c.name().startsWith("Hera"));
+        assertThat(mask.toList()).containsExactlyInAnyOrder(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("JTL-045"));
+    }
+}
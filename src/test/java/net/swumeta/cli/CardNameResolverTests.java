@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli;
+
+import net.swumeta.cli.model.Card;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class CardNameResolverTests {
+    @Autowired
+    private CardNameResolver svc;
+
+    @Test
+    void testResolveExact() {
+        final var match = svc.resolve("Hera Syndulla", "Spectre Two");
+        assertThat(match).isNotNull();
+        assertThat(match.id()).isEqualTo(Card.Id.valueOf("SOR-008"));
+        assertThat(match.confidence()).isEqualTo(1);
+    }
+
+    @Test
+    void testResolveNormalized() {
+        final var match = svc.resolve("ADMINISTRATOR’S  Tower", null);
+        assertThat(match).isNotNull();
+        assertThat(match.id()).isEqualTo(Card.Id.valueOf("SOR-029"));
+        assertThat(match.confidence()).isEqualTo(1);
+
+        final var match2 = svc.resolve("Bóba Fétt", "Any Methods Necessary");
+        assertThat(match2).isNotNull();
+        assertThat(match2.id()).isEqualTo(Card.Id.valueOf("JTL-009"));
+        assertThat(match2.confidence()).isEqualTo(1);
+    }
+
+    @Test
+    void testResolveTypo() {
+        final var match = svc.resolve("Catacombs of Cadra", null);
+        assertThat(match).isNotNull();
+        assertThat(match.id()).isEqualTo(Card.Id.valueOf("SOR-026"));
+        assertThat(match.confidence()).isBetween(0.6, 0.99);
+
+        final var match2 = svc.resolve("Hera Sydulla", "Spectre 2");
+        assertThat(match2).isNotNull();
+        assertThat(match2.id()).isEqualTo(Card.Id.valueOf("SOR-008"));
+    }
+
+    @Test
+    void testResolveUnknown() {
+        assertThat(svc.resolve("Luke Skywalker", null)).isNull();
+    }
+
+    @Test
+    void testNormalize() {
+        assertThat(CardNameResolver.normalize("  TIE/ln Fighter ")).isEqualTo("tie ln fighter");
+        assertThat(CardNameResolver.normalize("Administrator's Tower")).isEqualTo("administrators tower");
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.swumeta.cli;
+
+import net.swumeta.cli.model.Card;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class DatabaseWatcherTests {
+    private static final long TIMEOUT_MILLIS = 10_000;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private DatabaseWatcher contextWatcher;
+    @TempDir
+    private File database;
+    private CardDatabaseService cardDatabaseService;
+    private DatabaseWatcher watcher;
+
+    @BeforeEach
+    void setUp() {
+        final var config = new AppConfig(URI.create("http://localhost"), database, new File(database, "public"),
+                new File(database, "cache"), 0, null, 0, 0);
+        cardDatabaseService = new CardDatabaseService(config);
+        watcher = new DatabaseWatcher(cardDatabaseService, eventService, config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.stop();
+    }
+
+    @Test
+    void testIndexUpdates() throws IOException {
+        final var cardFile = new File(new File(new File(database, "cards"), "JTL"), "JTL-999.yaml");
+        writeCard(cardFile, "Restart the game");
+        assertThat(cardDatabaseService.findByName("Restart the game", null)).hasSize(1);
+
+        writeCard(cardFile, "One more game");
+        cardDatabaseService.onCardFileChanged(cardFile);
+        assertThat(cardDatabaseService.findByName("Restart the game", null)).isEmpty();
+        assertThat(cardDatabaseService.findByName("One more game", null)).hasSize(1);
+        assertThat(cardDatabaseService.findById(Card.Id.valueOf("JTL-999")).name()).isEqualTo("One more game");
+
+        Files.delete(cardFile.toPath());
+        cardDatabaseService.onCardFileDeleted(cardFile);
+        assertThat(cardDatabaseService.findByName("One more game", null)).isEmpty();
+
+        writeCard(cardFile, "Restart the game");
+        cardDatabaseService.reindex();
+        assertThat(cardDatabaseService.findByName("Restart the game", null)).hasSize(1);
+    }
+
+    @Test
+    void testWatchCardFiles() throws IOException {
+        // The cards directory does not exist yet: it must be watched once it is created.
+        assertThat(cardDatabaseService.findByName("Restart the game", null)).isEmpty();
+        watcher.start();
+        assertThat(watcher.isRunning()).isTrue();
+
+        final var cardFile = new File(new File(new File(database, "cards"), "JTL"), "JTL-999.yaml");
+        writeCard(cardFile, "Restart the game");
+        await(() -> cardDatabaseService.findByName("Restart the game", null).size() == 1);
+
+        writeCard(cardFile, "One more game");
+        await(() -> cardDatabaseService.findByName("One more game", null).size() == 1);
+        assertThat(cardDatabaseService.findByName("Restart the game", null)).isEmpty();
+        assertThat(cardDatabaseService.findById(Card.Id.valueOf("JTL-999")).name()).isEqualTo("One more game");
+
+        Files.delete(cardFile.toPath());
+        await(() -> cardDatabaseService.findByName("One more game", null).isEmpty());
+    }
+
+    @Test
+    void testWatchRecreatedCardsDirectory() throws IOException {
+        final var cardFile = new File(new File(new File(database, "cards"), "JTL"), "JTL-999.yaml");
+        writeCard(cardFile, "Restart the game");
+        assertThat(cardDatabaseService.findByName("Restart the game", null)).hasSize(1);
+        watcher.start();
+
+        cardDatabaseService.clear();
+        assertThat(new File(database, "cards")).doesNotExist();
+        assertThat(cardDatabaseService.findByName("Restart the game", null)).isEmpty();
+        writeCard(cardFile, "One more game");
+        await(() -> cardDatabaseService.findByName("One more game", null).size() == 1);
+    }
+
+    @Test
+    void testLongRunningSession() {
+        assertThat(DatabaseWatcher.isLongRunningSession(new String[0])).isTrue();
+        assertThat(DatabaseWatcher.isLongRunningSession(new String[]{"serve"})).isTrue();
+        assertThat(DatabaseWatcher.isLongRunningSession(new String[]{"--swu.output=public", "follow-event", "--melee", "url"})).isTrue();
+        assertThat(DatabaseWatcher.isLongRunningSession(new String[]{"generate-site"})).isFalse();
+        assertThat(DatabaseWatcher.isLongRunningSession(new String[]{"find-cards", "--name", "serve"})).isFalse();
+        // Option values separated with a space are not commands.
+        assertThat(DatabaseWatcher.isLongRunningSession(new String[]{"--swu.database", "/path", "serve"})).isTrue();
+        assertThat(DatabaseWatcher.isLongRunningSession(new String[]{"--swu.database", "/path", "generate-site"})).isFalse();
+        assertThat(DatabaseWatcher.isLongRunningSession(new String[]{"--swu.database", "/path"})).isTrue();
+        // Watching the database is disabled for tests.
+        assertThat(contextWatcher.isAutoStartup()).isFalse();
+        assertThat(contextWatcher.isRunning()).isFalse();
+    }
+
+    private static void writeCard(File cardFile, String name) throws IOException {
+        cardFile.getParentFile().mkdirs();
+        Files.writeString(cardFile.toPath(), """
+                ---
+                set: "JTL"
+                number: 999
+                type: "event"
+                rarity: "common"
+                arena: "ground"
+                aspects:
+                - "aggression"
+                cost: 8
+                name: "%s"
+                title: null
+                art: "http://somewhere.com/myart"
+                thumbnail: "http://somewhere.com/thumbnail"
+                """.formatted(name));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("Timeout while waiting for database changes").isLessThan(deadline);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli;
+
+import net.swumeta.cli.model.Event;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class EventRepositoryTests {
+    @Autowired
+    private EventRepository repo;
+
+    @Test
+    void testFindAllIsCached() {
+        final var events = repo.findAll();
+        assertThat(events).hasSize(2);
+        assertThat(repo.findAll()).isSameAs(events);
+    }
+
+    @Test
+    void testFindByDate() {
+        final var events = repo.findByDate(LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 13));
+        assertThat(events.collect(e -> e.name())).containsExactly("Santa Geek Café Store Showdown");
+        assertThat(repo.findByDate(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31))).isEmpty();
+    }
+
+    @Test
+    void testFindByDateOrder(@TempDir File dir) throws IOException {
+        final var eventsDir = new File(new File(dir, "database"), "events");
+        eventsDir.mkdirs();
+        // File names are not in the same order as event dates and names.
+        writeEvent(new File(eventsDir, "a.yaml"), "Zeta Showdown", "2025-05-10");
+        writeEvent(new File(eventsDir, "b.yaml"), "Alpha Showdown", "2025-05-10");
+        writeEvent(new File(eventsDir, "c.yaml"), "Beta Showdown", "2025-05-03");
+        writeEvent(new File(eventsDir, "d.yaml"), "Out of window", "2025-06-01");
+        final var config = new AppConfig(URI.create("http://localhost"), eventsDir.getParentFile(), new File(dir, "public"),
+                new File(dir, "cache"), 0, null, 0, 0);
+        final var from = LocalDate.of(2025, 5, 1);
+        final var to = LocalDate.of(2025, 5, 31);
+        final var expected = List.of("Beta Showdown", "Alpha Showdown", "Zeta Showdown");
+
+        // No header index: every file is parsed.
+        final var headerIndexFile = new File(config.cache(), "event-headers.json");
+        assertThat(headerIndexFile).doesNotExist();
+        assertThat(new EventRepository(config).findByDate(from, to).collect(Event::name)).containsExactlyElementsOf(expected);
+
+        // Fresh header index: only files in the date window are parsed.
+        assertThat(headerIndexFile).exists();
+        final var repo2 = new EventRepository(config);
+        assertThat(repo2.findByDate(from, to).collect(Event::name)).containsExactlyElementsOf(expected);
+
+        // Up-to-date snapshot: events are taken from memory.
+        assertThat(repo2.findAll()).hasSize(4);
+        assertThat(repo2.findByDate(from, to).collect(Event::name)).containsExactlyElementsOf(expected);
+    }
+
+    private static void writeEvent(File eventFile, String name, String date) throws IOException {
+        Files.writeString(eventFile.toPath(), """
+                name: %s
+                date: %s
+                type: planetary-qualifier
+                players: 32
+                location:
+                  city: Paris
+                  country: France
+                melee: https://melee.gg/Tournament/View/%d
+                decks: []
+                """.formatted(name, date, Math.abs(name.hashCode())));
+    }
+
+    @Test
+    void testFindFileByMelee() {
+        final var eventFile = repo.findFileByMelee(URI.create("https://melee.gg/Tournament/View/270771"));
+        assertThat(eventFile).isNotNull();
+        assertThat(eventFile.getName()).isEqualTo("event1.yaml");
+        assertThat(repo.findFileByMelee(URI.create("https://melee.gg/Tournament/View/1"))).isNull();
+    }
+}
@@ -16,22 +16,56 @@
 
 package net.swumeta.cli;
 
+import net.swumeta.cli.model.Card;
+import net.swumeta.cli.model.Event;
+import net.swumeta.cli.model.Format;
+import net.swumeta.cli.model.Location;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpRequest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.ResponseCreator;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
 @ActiveProfiles("test")
 class EventServiceTests {
+    private static final String MELEE_EVENT = "https://melee.gg/Tournament/View/42";
     @Autowired
     private EventService svc;
     @Autowired
     private AppConfig config;
+    @Autowired
+    private DeckService deckService;
+    @Autowired
+    private TestHelper helper;
+    @Autowired
+    private RestClient.Builder restClientBuilder;
+    @TempDir
+    private File tempDir;
 
     @Test
     void testListNoFilter() {
@@ -47,4 +81,344 @@ class EventServiceTests {
         assertThat(events).hasSize(1);
         assertThat(events.getAny().name()).isEqualTo("Santa Geek Café Store Showdown");
     }
+
+    @Test
+    void testListDateWindow() {
+        final var events = svc.list(LocalDate.of(2025, 3, 29), LocalDate.of(2025, 4, 12), null);
+        assertThat(events).hasSize(1);
+        assertThat(events.getAny().name()).isEqualTo("Sector Qualifier Milan");
+
+        final var filteredEvents = svc.list(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31), e -> e.players() > 100);
+        assertThat(filteredEvents.collect(e -> e.name())).containsExactly("Sector Qualifier Milan");
+    }
+
+    @Test
+    void testGetChangedDecks() {
+        final var deckA = URI.create("https://melee.gg/Decklist/View/a");
+        final var deckB = URI.create("https://melee.gg/Decklist/View/b");
+        final var deckC = URI.create("https://melee.gg/Decklist/View/c");
+        final var deckD = URI.create("https://melee.gg/Decklist/View/d");
+        final var oldDecks = List.of(
+                new Event.DeckEntry(1, false, deckA, null, null, null),
+                new Event.DeckEntry(2, false, deckB, null, null, null),
+                new Event.DeckEntry(3, true, deckC, null, null, null)
+        );
+        final var newDecks = List.of(
+                new Event.DeckEntry(1, false, deckA, null, null, null),
+                new Event.DeckEntry(2, false, deckC, null, null, null),
+                new Event.DeckEntry(3, false, deckD, null, null, null),
+                new Event.DeckEntry(4, false, null, null, null, null)
+        );
+        final var records = Map.of(deckA, "2-0-0", deckB, "1-1-0", deckC, "1-1-0");
+        assertThat(EventService.getChangedDecks(oldDecks, newDecks, records, records)).containsExactlyInAnyOrder(deckB, deckC, deckD);
+        assertThat(EventService.getChangedDecks(oldDecks, oldDecks, records, records)).isEmpty();
+
+        // A deck keeping its rank after a new round has new match results.
+        final var newRecords = Map.of(deckA, "3-0-0", deckB, "1-1-0", deckC, "1-1-0");
+        assertThat(EventService.getChangedDecks(oldDecks, oldDecks, records, newRecords)).containsExactly(deckA);
+
+        // Without a previous match record, only the standing of a deck is compared.
+        assertThat(EventService.getChangedDecks(oldDecks, oldDecks, Map.of(), newRecords)).isEmpty();
+        assertThat(EventService.getChangedDecks(oldDecks, oldDecks, Map.of(deckB, "1-0-0"), newRecords)).containsExactly(deckB);
+    }
+
+    @Test
+    void testSyncNewRoundInvalidatesDecks() throws IOException {
+        final var client = restClientBuilder.clone();
+        final var server = MockRestServiceServer.bindTo(client).ignoreExpectOrder(true).build();
+        final var svc = createEventService(client.build());
+        final var deletedDecks = new CopyOnWriteArrayList<URI>();
+        deckService.addDeleteListener(deletedDecks::addAll);
+
+        expectEventPage(server, 3, 2);
+        expectStandings(server, 1002, """
+                {"recordsTotal": 3, "data": [
+                  {"Rank": 1, "MatchRecord": "2-0-0", "Decklists": [{"DecklistId": "deck-1"}], "Team": {"Players": [{"ID": "p1"}]}},
+                  {"Rank": 2, "MatchRecord": "1-1-0", "Decklists": [{"DecklistId": "deck-2"}], "Team": {"Players": [{"ID": "p2"}]}},
+                  {"Rank": 3, "MatchRecord": "0-2-0", "Decklists": [{"DecklistId": "deck-3"}], "Team": {"Players": [{"ID": "p3"}]}}
+                ]}
+                """);
+        final var event = svc.sync(svc.list().getOnly());
+        server.verify();
+
+        // Every player keeps the same rank after round 3: the player who dropped has no new match result.
+        server.reset();
+        deletedDecks.clear();
+        expectEventPage(server, 3, 3);
+        expectStandings(server, 1003, """
+                {"recordsTotal": 3, "data": [
+                  {"Rank": 1, "MatchRecord": "3-0-0", "Decklists": [{"DecklistId": "deck-1"}], "Team": {"Players": [{"ID": "p1"}]}},
+                  {"Rank": 2, "MatchRecord": "1-2-0", "Decklists": [{"DecklistId": "deck-2"}], "Team": {"Players": [{"ID": "p2"}]}},
+                  {"Rank": 3, "MatchRecord": "0-2-0", "Decklists": [{"DecklistId": "deck-3"}], "Team": {"Players": [{"ID": "p3"}]}}
+                ]}
+                """);
+        final var updatedEvent = svc.sync(event);
+        assertThat(updatedEvent).isNotSameAs(event);
+        assertThat(updatedEvent.decks()).isEqualTo(event.decks());
+        assertThat(deletedDecks).containsExactlyInAnyOrder(
+                URI.create("https://melee.gg/Decklist/View/deck-1"),
+                URI.create("https://melee.gg/Decklist/View/deck-2")
+        );
+        server.verify();
+    }
+
+    @Test
+    void testSyncMissingJournalEntry() throws IOException {
+        final var client = restClientBuilder.clone();
+        final var server = MockRestServiceServer.bindTo(client).ignoreExpectOrder(true).build();
+        final var standings = """
+                {"recordsTotal": 2, "data": [
+                  {"Rank": 1, "MatchRecord": "2-0-0", "Decklists": [{"DecklistId": "deck-1"}], "Team": {"Players": [{"ID": "p1"}]}},
+                  {"Rank": 2, "MatchRecord": "1-1-0", "Decklists": [{"DecklistId": "deck-2"}], "Team": {"Players": [{"ID": "p2"}]}}
+                ]}
+                """;
+        expectEventPage(server, 2);
+        expectStandings(server, standings);
+        final var firstSvc = createEventService(client.build());
+        firstSvc.sync(firstSvc.list().getOnly());
+        server.verify();
+
+        // The journal is discarded: an unchanged event must not delete its decks.
+        final var tempConfig = createTempConfig();
+        assertThat(new File(tempConfig.cache(), "sync-journal.json").delete()).isTrue();
+        server.reset();
+        expectEventPage(server, 2);
+        expectStandings(server, standings);
+        final var svc = new EventService(deckService, new EventRepository(tempConfig), new SyncJournal(tempConfig), client.build());
+        final var deletedDecks = new CopyOnWriteArrayList<URI>();
+        deckService.addDeleteListener(deletedDecks::addAll);
+        final var event = svc.list().getOnly();
+        assertThat(svc.sync(event)).isSameAs(event);
+        assertThat(deletedDecks).isEmpty();
+        server.verify();
+    }
+
+    @Test
+    void testIsEventCompleteThreshold() {
+        // 20 players with top 8 decks available: 80% of the field must be known.
+        assertThat(svc.isEventComplete(createEvent(20, 2))).isTrue();
+        assertThat(svc.isEventComplete(createEvent(20, 1))).isFalse();
+        assertThat(svc.isEventComplete(createEvent(0, 2))).isFalse();
+    }
+
+    @Test
+    void testIsEventCompleteInvalidation() throws IOException {
+        final var event = createEvent(20, 2);
+        assertThat(svc.isEventComplete(event)).isTrue();
+
+        // A deck from the top 8 is no longer available: the memoised result is kept until the deck is deleted from the cache.
+        final var topDeck = event.decks().getFirst().url();
+        final var topDeckFile = new File(UriComponentsBuilder.fromUri(topDeck).scheme("file").build().toUri()).toPath();
+        final var topDeckContent = Files.readAllBytes(topDeckFile);
+        Files.delete(topDeckFile);
+        assertThat(svc.isEventComplete(event)).isTrue();
+        deckService.delete(List.of(topDeck));
+        assertThat(svc.isEventComplete(event)).isFalse();
+
+        // A result depending on a failed deck load is not memoised.
+        Files.write(topDeckFile, topDeckContent);
+        assertThat(svc.isEventComplete(event)).isTrue();
+        // A modified event gives a new instance, which is checked again.
+        final var otherEvent = createEvent(20, 2);
+        assertThat(svc.isEventComplete(otherEvent)).isTrue();
+        final var updatedEvent = new Event(otherEvent.name(), false, otherEvent.type(), 30, otherEvent.date(), otherEvent.location(),
+                false, otherEvent.format(), otherEvent.melee(), otherEvent.contributors(), otherEvent.links(), otherEvent.decks());
+        assertThat(svc.isEventComplete(updatedEvent)).isFalse();
+        assertThat(svc.isEventComplete(otherEvent)).isTrue();
+    }
+
+    /**
+     * Create an event with valid top decks, followed by a number of deck entries with known content.
+     */
+    private Event createEvent(int players, int decksWithContent) {
+        final var decks = new ArrayList<Event.DeckEntry>(players);
+        for (int rank = 1; rank < 8; rank++) {
+            final var deck = helper.createDeck(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("JTL-026"));
+            decks.add(new Event.DeckEntry(rank, false, deck.source(), null, null, null));
+        }
+        for (int i = 0; i < decksWithContent; i++) {
+            decks.add(new Event.DeckEntry(decks.size() + 1, false, null, null, Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-026")));
+        }
+        while (decks.size() < players) {
+            decks.add(new Event.DeckEntry(decks.size() + 1, false, null, null, null, null));
+        }
+        return new Event("Complete Showdown", false, Event.Type.PQ, players, LocalDate.of(2025, 5, 10), new Location("France", "Paris"),
+                false, Format.PREMIER, URI.create("https://melee.gg/Tournament/View/43"), List.of(), List.of(), decks);
+    }
+
+    @Test
+    void testSyncDecklistsFromStandings() throws IOException {
+        final var client = restClientBuilder.clone();
+        final var server = MockRestServiceServer.bindTo(client).ignoreExpectOrder(true).build();
+        final var svc = createEventService(client.build());
+        expectEventPage(server, 3);
+        expectStandings(server, """
+                {"recordsTotal": 3, "data": [
+                  {"Rank": 1, "MatchRecord": "3-0-0", "Decklists": [{"DecklistId": "deck-1"}], "Team": {"Players": [{"ID": "p1"}]}},
+                  {"Rank": 2, "MatchRecord": "2-1-0", "Decklists": [], "Team": {"Players": [{"ID": "p2"}]}},
+                  {"Rank": 3, "MatchRecord": "1-2-0", "Decklists": [{"DecklistId": "deck-3"}], "Team": {"Players": [{"ID": "p3"}]}}
+                ]}
+                """);
+        // Player details are only fetched for players without a decklist in standings.
+        server.expect(ExpectedCount.once(), requestTo("https://melee.gg/Player/GetPlayerDetails?id=p2"))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("""
+                        {"decklists": [{"id": "deck-2"}]}
+                        """, MediaType.APPLICATION_JSON));
+
+        final var event = svc.sync(svc.list().getOnly());
+        assertThat(event.players()).isEqualTo(3);
+        assertThat(event.decks()).containsExactly(
+                new Event.DeckEntry(1, false, URI.create("https://melee.gg/Decklist/View/deck-1"), null, null, null),
+                new Event.DeckEntry(2, false, URI.create("https://melee.gg/Decklist/View/deck-2"), null, null, null),
+                new Event.DeckEntry(3, false, URI.create("https://melee.gg/Decklist/View/deck-3"), null, null, null)
+        );
+        server.verify();
+    }
+
+    @Test
+    void testSyncMissingDecklist() throws IOException {
+        final var client = restClientBuilder.clone();
+        final var server = MockRestServiceServer.bindTo(client).ignoreExpectOrder(true).build();
+        final var svc = createEventService(client.build());
+        expectEventPage(server, 2);
+        expectStandings(server, """
+                {"recordsTotal": 2, "data": [
+                  {"Rank": 1, "MatchRecord": "3-0-0", "Decklists": null, "Team": {"Players": [{"ID": "p1"}]}},
+                  {"Rank": 2, "MatchRecord": "2-1-0", "Decklists": [{"DecklistId": "deck-2"}], "Team": {"Players": [{"ID": "p2"}]}}
+                ]}
+                """);
+        server.expect(ExpectedCount.once(), requestTo("https://melee.gg/Player/GetPlayerDetails?id=p1"))
+                .andRespond(withSuccess("""
+                        {"decklists": []}
+                        """, MediaType.APPLICATION_JSON));
+
+        final var event = svc.sync(svc.list().getOnly());
+        assertThat(event.decks()).containsExactly(
+                new Event.DeckEntry(1, false, null, null, null, null),
+                new Event.DeckEntry(2, false, URI.create("https://melee.gg/Decklist/View/deck-2"), null, null, null)
+        );
+        server.verify();
+    }
+
+    @Test
+    void testSyncStandingsPages() throws IOException {
+        final var client = restClientBuilder.clone();
+        final var server = MockRestServiceServer.bindTo(client).ignoreExpectOrder(true).build();
+        final var svc = createEventService(client.build());
+        final int players = 250;
+        expectEventPage(server, players);
+        expectStandings(server, request -> {
+            final int start = Integer.parseInt(getFormData(request, "start"));
+            final int length = Integer.parseInt(getFormData(request, "length"));
+            if (start == 100) {
+                // Pages are fetched concurrently: a slow page must not change the standings order.
+                sleep(200);
+            }
+            final var rows = new StringBuilder();
+            for (int rank = start + 1; rank <= Math.min(start + length, players); rank++) {
+                if (!rows.isEmpty()) {
+                    rows.append(',');
+                }
+                rows.append("""
+                        {"Rank": %d, "MatchRecord": "1-1-0", "Decklists": [{"DecklistId": "deck-%d"}], "Team": {"Players": [{"ID": "p%d"}]}}
+                        """.formatted(rank, rank, rank));
+            }
+            return withSuccess("""
+                    {"recordsTotal": %d, "data": [%s]}
+                    """.formatted(players, rows), MediaType.APPLICATION_JSON).createResponse(request);
+        });
+
+        final var event = svc.sync(svc.list().getOnly());
+        assertThat(event.decks()).hasSize(players);
+        for (int i = 0; i < players; i++) {
+            final var entry = event.decks().get(i);
+            assertThat(entry.rank()).isEqualTo(i + 1);
+            assertThat(entry.url()).isEqualTo(URI.create("https://melee.gg/Decklist/View/deck-" + (i + 1)));
+        }
+        server.verify();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Create a service syncing a single event from a temporary database, using a mocked melee.gg client.
+     */
+    private EventService createEventService(RestClient client) throws IOException {
+        final var database = new File(tempDir, "database");
+        final var eventsDir = new File(database, "events");
+        eventsDir.mkdirs();
+        Files.writeString(new File(eventsDir, "event.yaml").toPath(), """
+                name: Test Showdown
+                date: 2025-05-10
+                type: planetary-qualifier
+                location:
+                  city: Paris
+                  country: France
+                melee: %s
+                """.formatted(MELEE_EVENT));
+        final var tempConfig = createTempConfig();
+        return new EventService(deckService, new EventRepository(tempConfig), new SyncJournal(tempConfig), client);
+    }
+
+    private AppConfig createTempConfig() {
+        return new AppConfig(config.base(), new File(tempDir, "database"), new File(tempDir, "public"),
+                new File(tempDir, "cache"), 0, null, 0, 0);
+    }
+
+    private static void expectEventPage(MockRestServiceServer server, int players) {
+        expectEventPage(server, players, 2);
+    }
+
+    /**
+     * Expect the event page with 3 rounds (ids 1001 to 1003), the first ones being completed.
+     */
+    private static void expectEventPage(MockRestServiceServer server, int players, int completedRounds) {
+        final var rounds = new StringBuilder();
+        for (int round = 1; round <= 3; round++) {
+            rounds.append("""
+                    <button data-id="%d" data-is-completed="%s">Round %d</button>
+                    """.formatted(1000 + round, round <= completedRounds ? "True" : "False", round));
+        }
+        server.expect(ExpectedCount.once(), requestTo(MELEE_EVENT))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("""
+                        <html><body>
+                        <div id="tournament-headline-registration">%d of 64 Enrolled Players</div>
+                        <div id="standings-round-selector-container">
+                        %s</div>
+                        </body></html>
+                        """.formatted(players, rounds), MediaType.TEXT_HTML));
+    }
+
+    private static void expectStandings(MockRestServiceServer server, String standings) {
+        expectStandings(server, 1002, standings);
+    }
+
+    private static void expectStandings(MockRestServiceServer server, int roundId, String standings) {
+        expectStandings(server, roundId, request -> withSuccess(standings, MediaType.APPLICATION_JSON).createResponse(request));
+    }
+
+    private static void expectStandings(MockRestServiceServer server, ResponseCreator responseCreator) {
+        expectStandings(server, 1002, responseCreator);
+    }
+
+    private static void expectStandings(MockRestServiceServer server, int roundId, ResponseCreator responseCreator) {
+        server.expect(ExpectedCount.manyTimes(), requestTo("https://melee.gg/Standing/GetRoundStandings"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(request -> assertThat(getFormData(request, "roundId")).isEqualTo(String.valueOf(roundId)))
+                .andRespond(responseCreator);
+    }
+
+    private static String getFormData(ClientHttpRequest request, String key) {
+        final var body = ((MockClientHttpRequest) request).getBodyAsString();
+        return UriComponentsBuilder.newInstance().query(body).build().getQueryParams().getFirst(key);
+    }
 }
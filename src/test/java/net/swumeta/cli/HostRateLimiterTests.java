@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.swumeta.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HostRateLimiterTests {
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(250);
+
+    @Test
+    void testReserveSpacesRequestsPerHost() {
+        final var clock = new AtomicLong(1_000_000);
+        final var limiter = new HostRateLimiter(4, "melee.gg", clock::get);
+
+        assertThat(limiter.reserve("melee.gg")).isZero();
+        assertThat(limiter.reserve("melee.gg")).isEqualTo(INTERVAL);
+        assertThat(limiter.reserve("melee.gg")).isEqualTo(2 * INTERVAL);
+        // Hosts do not share slots.
+        assertThat(limiter.reserve("www.melee.gg")).isZero();
+
+        clock.addAndGet(INTERVAL);
+        assertThat(limiter.reserve("melee.gg")).isEqualTo(2 * INTERVAL);
+
+        // Slots are not accumulated while a host is idle.
+        clock.addAndGet(10 * INTERVAL);
+        assertThat(limiter.reserve("melee.gg")).isZero();
+        assertThat(limiter.reserve("melee.gg")).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void testIsRateLimited() {
+        final var limiter = new HostRateLimiter(4, "melee.gg");
+        assertThat(limiter.isRateLimited("melee.gg")).isTrue();
+        assertThat(limiter.isRateLimited("Melee.GG")).isTrue();
+        assertThat(limiter.isRateLimited("api.melee.gg")).isTrue();
+        assertThat(limiter.isRateLimited("notmelee.gg")).isFalse();
+        assertThat(limiter.isRateLimited("cdn.swu-db.com")).isFalse();
+    }
+
+    @Test
+    void testDisabled() {
+        final var limiter = new HostRateLimiter(0, "melee.gg", () -> 0);
+        assertThat(limiter.reserve("melee.gg")).isZero();
+        assertThat(limiter.reserve("melee.gg")).isZero();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PngEncoderTests {
+    @Test
+    void testEncodeTrueColor() throws IOException {
+        final var img = new BufferedImage(64, 32, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < img.getWidth(); x++) {
+            for (int y = 0; y < img.getHeight(); y++) {
+                img.setRGB(x, y, ((x * 4) << 24) | (x << 16) | (y << 8) | (x ^ y));
+            }
+        }
+        assertDecodedEquals(img, PngEncoder.encode(img));
+    }
+
+    @Test
+    void testEncodeOpaqueTrueColor() throws IOException {
+        final var img = new BufferedImage(64, 32, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < img.getWidth(); x++) {
+            for (int y = 0; y < img.getHeight(); y++) {
+                img.setRGB(x, y, (x << 18) | (y << 10) | (x * y));
+            }
+        }
+        assertDecodedEquals(img, PngEncoder.encode(img));
+    }
+
+    @Test
+    void testEncodePalette() throws IOException {
+        final var img = new BufferedImage(40, 20, BufferedImage.TYPE_INT_ARGB);
+        final int[] colors = {0x00000000, 0x80ff0000, 0xff00ff00, 0xff0000ff, 0xffffffff};
+        for (int x = 0; x < img.getWidth(); x++) {
+            for (int y = 0; y < img.getHeight(); y++) {
+                img.setRGB(x, y, colors[(x / 3 + y) % colors.length]);
+            }
+        }
+        final var png = PngEncoder.encode(img);
+        assertDecodedEquals(img, png);
+
+        final var defaultPng = new ByteArrayOutputStream();
+        ImageIO.write(img, "PNG", defaultPng);
+        assertThat(png.length).isLessThan(defaultPng.size());
+    }
+
+    @Test
+    void testEncodeTwoColors() throws IOException {
+        final var img = new BufferedImage(13, 7, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < img.getWidth(); x++) {
+            for (int y = 0; y < img.getHeight(); y++) {
+                img.setRGB(x, y, (x + y) % 2 == 0 ? 0x000000 : 0xffffff);
+            }
+        }
+        assertDecodedEquals(img, PngEncoder.encode(img));
+    }
+
+    private static void assertDecodedEquals(BufferedImage expected, byte[] png) throws IOException {
+        final var actual = ImageIO.read(new ByteArrayInputStream(png));
+        assertThat(actual.getWidth()).isEqualTo(expected.getWidth());
+        assertThat(actual.getHeight()).isEqualTo(expected.getHeight());
+        for (int x = 0; x < expected.getWidth(); x++) {
+            for (int y = 0; y < expected.getHeight(); y++) {
+                final int expectedPixel = expected.getRGB(x, y);
+                final int actualPixel = actual.getRGB(x, y);
+                if ((expectedPixel >>> 24) == 0) {
+                    assertThat(actualPixel >>> 24).isZero();
+                } else {
+                    assertThat(actualPixel).isEqualTo(expectedPixel);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli;
+
+import net.swumeta.cli.model.Event;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.File;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class SyncJournalTests {
+    @Autowired
+    private SyncJournal journal;
+    @Autowired
+    private AppConfig config;
+
+    @Test
+    void testPutAndGet() {
+        final var melee = URI.create("https://melee.gg/Tournament/View/123456");
+        assertThat(journal.get(URI.create("https://melee.gg/Tournament/View/1"))).isNull();
+
+        final var entry = new SyncJournal.Entry(42, 64, 64, "abc", true,
+                Map.of(URI.create("https://melee.gg/Decklist/View/a"), "3-1-0"));
+        journal.put(melee, entry);
+        assertThat(journal.get(melee)).isEqualTo(entry);
+        assertThat(new File(config.cache(), "sync-journal.json")).exists();
+    }
+
+    @Test
+    void testHash() {
+        final var decks = List.of(
+                new Event.DeckEntry(1, false, URI.create("https://melee.gg/Decklist/View/a"), null, null, null),
+                new Event.DeckEntry(2, false, URI.create("https://melee.gg/Decklist/View/b"), null, null, null)
+        );
+        final var swappedDecks = List.of(
+                new Event.DeckEntry(1, false, URI.create("https://melee.gg/Decklist/View/b"), null, null, null),
+                new Event.DeckEntry(2, false, URI.create("https://melee.gg/Decklist/View/a"), null, null, null)
+        );
+        assertThat(SyncJournal.hash(decks)).isEqualTo(SyncJournal.hash(List.copyOf(decks)));
+        assertThat(SyncJournal.hash(decks)).isNotEqualTo(SyncJournal.hash(swappedDecks));
+    }
+}
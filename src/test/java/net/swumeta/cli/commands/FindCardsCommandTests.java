@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.swumeta.cli.commands;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class FindCardsCommandTests {
+    @Autowired
+    private FindCardsCommand cmd;
+
+    @Test
+    void testResolveBatchCsv() throws IOException {
+        final var out = new StringWriter();
+        final var count = cmd.resolveBatch(new BufferedReader(new StringReader("""
+                Hera Syndulla
+                Hera Syndulla|Spectre Two
+                
+                Catacombs of Cadra
+                Luke Skywalker, Jedi
+                """)), FindCardsCommand.Format.CSV, out);
+        assertThat(count).isEqualTo(5);
+        assertThat(out.toString()).isEqualTo("""
+                name,title,id,confidence
+                Hera Syndulla,,SOR-008,1.00
+                Hera Syndulla,,JTL-045,1.00
+                Hera Syndulla,Spectre Two,SOR-008,1.00
+                Catacombs of Cadra,,SOR-026,0.86
+                "Luke Skywalker, Jedi",,,0.00
+                """);
+    }
+
+    @Test
+    void testResolveBatchJsonlOrder() throws IOException {
+        // Input lines span several chunks: results must still follow the input order.
+        final var names = new String[]{"Hera Syndulla\tSpectre Two", "Security Complex", "Administrator's Tower"};
+        final var ids = new String[]{"SOR-008", "SOR-019", "SOR-029"};
+        final var lineCount = FindCardsCommand.BATCH_CHUNK_SIZE * 2 + 10;
+        final var input = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            input.append(names[i % names.length]).append('\n');
+        }
+
+        final var out = new StringWriter();
+        final var count = cmd.resolveBatch(new BufferedReader(new StringReader(input.toString())), FindCardsCommand.Format.JSONL, out);
+        assertThat(count).isEqualTo(lineCount);
+
+        final var objectMapper = new ObjectMapper();
+        final var resultIds = new ArrayList<String>(lineCount);
+        for (final var line : out.toString().split("\n")) {
+            resultIds.add(objectMapper.readTree(line).get("id").asText());
+        }
+        assertThat(resultIds).hasSize(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            assertThat(resultIds.get(i)).isEqualTo(ids[i % ids.length]);
+        }
+    }
+}
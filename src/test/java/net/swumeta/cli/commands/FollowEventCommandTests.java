@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.swumeta.cli.commands;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FollowEventCommandTests {
+    private static final Duration MIN_INTERVAL = Duration.ofSeconds(30);
+    private static final Duration MAX_INTERVAL = Duration.ofMinutes(5);
+    private static final Duration ROUND = Duration.ofMinutes(40);
+
+    @Test
+    void testNextIntervalAfterUpdate() {
+        assertThat(next(Duration.ofMinutes(2), Duration.ZERO, null)).isEqualTo(MIN_INTERVAL);
+        assertThat(next(Duration.ofMinutes(2), Duration.ZERO, ROUND)).isEqualTo(MIN_INTERVAL);
+    }
+
+    @Test
+    void testNextIntervalUnknownRoundDuration() {
+        assertThat(next(MIN_INTERVAL, Duration.ofMinutes(1), null)).isEqualTo(Duration.ofMinutes(1));
+        assertThat(next(Duration.ofMinutes(4), Duration.ofMinutes(10), null)).isEqualTo(MAX_INTERVAL);
+    }
+
+    @Test
+    void testNextIntervalBeforeRoundEnd() {
+        // Round end is far away: polling is as slow as possible.
+        assertThat(next(MIN_INTERVAL, Duration.ofMinutes(10), ROUND)).isEqualTo(MAX_INTERVAL);
+        assertThat(next(MAX_INTERVAL, Duration.ofMinutes(30), ROUND)).isEqualTo(MAX_INTERVAL);
+        // Wake up shortly before the round is expected to end (lead time: 10% of the round).
+        assertThat(next(MAX_INTERVAL, Duration.ofMinutes(33), ROUND)).isEqualTo(Duration.ofMinutes(3));
+        // Never below the minimum interval.
+        assertThat(next(MAX_INTERVAL, Duration.ofSeconds(35 * 60 + 50), ROUND)).isEqualTo(MIN_INTERVAL);
+    }
+
+    @Test
+    void testNextIntervalRoundEnding() {
+        assertThat(next(MAX_INTERVAL, Duration.ofMinutes(38), ROUND)).isEqualTo(MIN_INTERVAL);
+        assertThat(next(MAX_INTERVAL, Duration.ofMinutes(70), ROUND)).isEqualTo(MIN_INTERVAL);
+    }
+
+    @Test
+    void testNextIntervalRoundLate() {
+        // No update for more than a round after the expected round end: the event is paused or over.
+        assertThat(next(MIN_INTERVAL, Duration.ofMinutes(81), ROUND)).isEqualTo(Duration.ofMinutes(1));
+        assertThat(next(Duration.ofMinutes(4), Duration.ofMinutes(90), ROUND)).isEqualTo(MAX_INTERVAL);
+    }
+
+    private static Duration next(Duration interval, Duration idle, Duration roundDuration) {
+        return FollowEventCommand.nextInterval(interval, idle, roundDuration, MIN_INTERVAL, MAX_INTERVAL);
+    }
+}
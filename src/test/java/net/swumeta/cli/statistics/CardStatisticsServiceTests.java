@@ -18,13 +18,17 @@ package net.swumeta.cli.statistics;
 
 import net.swumeta.cli.TestHelper;
 import net.swumeta.cli.model.Card;
+import net.swumeta.cli.model.Deck;
+import net.swumeta.cli.model.Format;
 import org.eclipse.collections.api.factory.Bags;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -73,4 +77,122 @@ class CardStatisticsServiceTests {
         assertThat(stats.occurrencesOf(Card.Id.valueOf("JTL-009"))).isEqualTo(1);
         assertThat(stats.occurrencesOf(Card.Id.valueOf("SOR-008"))).isEqualTo(2);
     }
+
+    @Test
+    void testGetLeaderCardUsages() {
+        final var leader1 = Card.Id.valueOf("JTL-009");
+        final var leader2 = Card.Id.valueOf("SOR-008");
+        final var a = Card.Id.valueOf("JTL-143");
+        final var b = Card.Id.valueOf("JTL-045");
+        final var builder = new MetagameDataset.Builder();
+        final var decks = List.of(
+                new Deck(URI.create("https://melee.gg/Decklist/View/1"), "Player 1", Format.PREMIER, leader1, Card.Id.valueOf("JTL-026"),
+                        Bags.immutable.ofOccurrences(a, 3), Bags.immutable.ofOccurrences(a, 1), "0-0-0", List.of()),
+                new Deck(URI.create("https://melee.gg/Decklist/View/2"), "Player 2", Format.PREMIER, leader1, Card.Id.valueOf("JTL-026"),
+                        Bags.immutable.ofOccurrences(b, 2), Bags.immutable.empty(), "0-0-0", List.of()),
+                new Deck(URI.create("https://melee.gg/Decklist/View/3"), "Player 3", Format.PREMIER, leader2, Card.Id.valueOf("SOR-028"),
+                        Bags.immutable.ofOccurrences(a, 1), Bags.immutable.ofOccurrences(b, 2), "0-0-0", List.of())
+        );
+        for (final var deck : decks) {
+            builder.addDeck(deck.source(), MetagameDataset.NONE, 0, deck, null, false, new int[0], null);
+        }
+
+        final var usages = svc.getLeaderCardUsages(builder.build());
+        assertThat(usages).hasSize(2);
+        final var usage1 = usages.getFirst();
+        assertThat(usage1.leader()).isEqualTo(leader1);
+        assertThat(usage1.decks()).isEqualTo(2);
+        // A card found in both main deck and sideboard is included once.
+        final var cardA = usage1.cards().detect(c -> c.card().equals(a));
+        assertThat(cardA.decks()).isEqualTo(1);
+        assertThat(cardA.mainCopies()).isEqualTo(3);
+        assertThat(cardA.sideboardCopies()).isEqualTo(1);
+        assertThat(cardA.averageCopies()).isEqualTo(4d);
+        assertThat(usage1.inclusionRate(cardA)).isEqualTo(0.5d);
+
+        final var usage2 = usages.get(1);
+        assertThat(usage2.leader()).isEqualTo(leader2);
+        assertThat(usage2.cards().collect(CardStatisticsService.CardUsage::card)).containsExactlyInAnyOrder(a, b);
+        assertThat(usage2.cards().detect(c -> c.card().equals(b)).sideboardCopies()).isEqualTo(2);
+    }
+
+    @Test
+    void testGetLeaderCardResults() {
+        final var leader = Card.Id.valueOf("JTL-009");
+        final var a = Card.Id.valueOf("JTL-143");
+        final var b = Card.Id.valueOf("JTL-045");
+        final var win = new Deck.Match(1, "op", null, Deck.Match.Result.WIN, "2-0-0");
+        final var loss = new Deck.Match(2, "op", null, Deck.Match.Result.LOSS, "0-2-0");
+        final var bye = new Deck.Match(3, null, null, Deck.Match.Result.BYE, "1-0-0");
+        final var builder = new MetagameDataset.Builder();
+        final var decks = List.of(
+                new Deck(URI.create("https://melee.gg/Decklist/View/1"), "Player 1", Format.PREMIER, leader, Card.Id.valueOf("JTL-026"),
+                        Bags.immutable.ofOccurrences(a, 3), Bags.immutable.empty(), "2-0-0", List.of(win, win, bye)),
+                new Deck(URI.create("https://melee.gg/Decklist/View/2"), "Player 2", Format.PREMIER, leader, Card.Id.valueOf("JTL-026"),
+                        Bags.immutable.of(a, b), Bags.immutable.empty(), "1-1-0", List.of(win, loss)),
+                new Deck(URI.create("https://melee.gg/Decklist/View/3"), "Player 3", Format.PREMIER, leader, Card.Id.valueOf("JTL-026"),
+                        Bags.immutable.of(b), Bags.immutable.empty(), "0-2-0", List.of(loss, loss))
+        );
+        for (final var deck : decks) {
+            builder.addDeck(deck.source(), MetagameDataset.NONE, 0, deck, null, false, new int[deck.matches().size()], null);
+        }
+
+        final var results = svc.getLeaderCardResults(builder.build());
+        assertThat(results).hasSize(1);
+        final var leaderResults = results.getFirst();
+        assertThat(leaderResults.leader().decks()).isEqualTo(3);
+        assertThat(leaderResults.leader().matchCount()).isEqualTo(6);
+        assertThat(leaderResults.leader().wins()).isEqualTo(3);
+
+        final var withA = leaderResults.cards().detect(c -> c.card().equals(a));
+        assertThat(withA.decks()).isEqualTo(2);
+        assertThat(withA.winRate()).isEqualTo(0.75d);
+        final var withoutA = leaderResults.without(withA);
+        assertThat(withoutA.decks()).isEqualTo(1);
+        assertThat(withoutA.winRate()).isZero();
+    }
+
+    @Test
+    void testGetCardPairs() {
+        final var leader = Card.Id.valueOf("JTL-009");
+        final var a = Card.Id.valueOf("JTL-143");
+        final var b = Card.Id.valueOf("JTL-045");
+        final var c = Card.Id.valueOf("SOR-128");
+        final var builder = new MetagameDataset.Builder();
+        // More than 64 decks, so that bitsets span several words.
+        for (int i = 0; i < 100; i++) {
+            final var main = Bags.mutable.of(a);
+            main.add(i % 2 == 0 ? b : c);
+            final var deck = new Deck(URI.create("https://melee.gg/Decklist/View/" + i), "Player " + i, Format.PREMIER,
+                    leader, Card.Id.valueOf("JTL-026"), main.toImmutable(), Bags.immutable.empty(), "0-0-0", List.of());
+            builder.addDeck(deck.source(), MetagameDataset.NONE, i + 1, deck, null, false, new int[0], null);
+        }
+        final var other = new Deck(URI.create("https://melee.gg/Decklist/View/other"), "Other", Format.PREMIER,
+                Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"), Bags.immutable.of(b, c), Bags.immutable.empty(), "0-0-0", List.of());
+        builder.addDeck(other.source(), MetagameDataset.NONE, 101, other, null, false, new int[0], null);
+        final var dataset = builder.build();
+
+        final var pairs = svc.getCardPairs(dataset, leader, 10);
+        assertThat(pairs.decks()).isEqualTo(100);
+        assertThat(pairs.cards().occurrencesOf(a)).isEqualTo(100);
+        assertThat(pairs.cards().occurrencesOf(b)).isEqualTo(50);
+        assertThat(pairs.pairs()).hasSize(3);
+        final var ab = pairs.pairs().detect(p -> Set.of(p.first(), p.second()).equals(Set.of(a, b)));
+        assertThat(ab.together()).isEqualTo(50);
+        assertThat(ab.jaccard()).isEqualTo(0.5d);
+        assertThat(pairs.lift(ab)).isEqualTo(1d);
+        final var bc = pairs.pairs().detect(p -> Set.of(p.first(), p.second()).equals(Set.of(b, c)));
+        assertThat(bc.together()).isZero();
+        assertThat(pairs.lift(bc)).isZero();
+
+        // A single card cannot be paired, but every card is counted.
+        assertThat(svc.getCardPairs(dataset, leader, 1).pairs()).isEmpty();
+        assertThat(svc.getCardPairs(dataset, leader, 1).cards().sizeDistinct()).isEqualTo(3);
+        assertThat(svc.getCardPairs(dataset, Card.Id.valueOf("SOR-010"), 10).decks()).isZero();
+
+        final var leaderPairs = svc.getCardPairs(dataset, 10);
+        assertThat(leaderPairs.collect(CardStatisticsService.CardPairs::leader)).containsExactly(leader, Card.Id.valueOf("SOR-008"));
+        assertThat(leaderPairs.getFirst()).isEqualTo(pairs);
+        assertThat(leaderPairs.getLast().pairs().getOnly().together()).isEqualTo(1);
+    }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.statistics;
+
+import net.swumeta.cli.model.Card;
+import net.swumeta.cli.model.Deck;
+import net.swumeta.cli.model.Format;
+import org.eclipse.collections.api.factory.Bags;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class DatasetAccumulatorTests {
+    @Test
+    void testAccumulateInParallel() {
+        final var leaders = List.of(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-010"));
+        final var base = Card.Id.valueOf("SOR-028");
+        final var builder = new MetagameDataset.Builder();
+        final int deckCount = DatasetAccumulator.CHUNK_SIZE * 5 + 7;
+        for (int i = 0; i < deckCount; i++) {
+            final var deck = new Deck(URI.create("https://melee.gg/Decklist/View/" + i), "Player " + i, Format.PREMIER,
+                    leaders.get(i % leaders.size()), base, Bags.immutable.empty(), Bags.immutable.empty(), "0-0-0", List.of());
+            builder.addDeck(deck.source(), MetagameDataset.NONE, i + 1, deck, null, false, new int[0], null);
+        }
+        final var dataset = builder.build();
+
+        final var counts = DatasetAccumulator.accumulate(dataset, dataset.cardCount(), (ds, deck, c) -> c[ds.leaderCode(deck)] += 1);
+        assertThat(counts[dataset.leaderCode(0)]).isEqualTo(deckCount / 3 + 1);
+        assertThat(counts[dataset.leaderCode(1)]).isEqualTo(deckCount / 3 + 1);
+        assertThat(counts[dataset.leaderCode(2)]).isEqualTo(deckCount / 3);
+        assertThat(counts[dataset.baseCode(0)]).isZero();
+
+        final var firstDecks = DatasetAccumulator.accumulate(dataset, 0, 10, dataset.cardCount(), (ds, deck, c) -> c[ds.leaderCode(deck)] += 1);
+        assertThat(firstDecks[dataset.leaderCode(0)]).isEqualTo(4);
+    }
+}
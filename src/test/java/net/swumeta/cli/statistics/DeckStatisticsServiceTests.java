@@ -36,6 +36,8 @@ class DeckStatisticsServiceTests {
     @Autowired
     private DeckStatisticsService svc;
     @Autowired
+    private MetagameDatasetService metagameDatasetService;
+    @Autowired
     private TestHelper helper;
 
     @Test
@@ -85,8 +87,41 @@ class DeckStatisticsServiceTests {
         assertThat(matchups.get(0).leader()).isEqualTo(Card.Id.valueOf("JTL-009"));
         assertThat(matchups.get(0).metaShare()).isEqualTo(0.66, Offset.offset(0.1));
         assertThat(matchups.get(0).winRate()).isEqualTo(0.66d, Offset.offset(0.1));
+        assertThat(matchups.get(0).matchCount()).isEqualTo(3);
+        assertThat(matchups.get(0).opponents().get(0).opponent()).isEqualTo(Card.Id.valueOf("JTL-009"));
+        assertThat(matchups.get(0).opponents().get(0).matchCount(Deck.Match.Result.WIN)).isEqualTo(1);
+        assertThat(matchups.get(0).opponents().get(0).matchCount(Deck.Match.Result.LOSS)).isEqualTo(1);
         assertThat(matchups.get(1).leader()).isEqualTo(Card.Id.valueOf("SOR-008"));
         assertThat(matchups.get(1).metaShare()).isEqualTo(0.33, Offset.offset(0.1));
         assertThat(matchups.get(1).winRate()).isEqualTo(0d, Offset.offset(0.1));
     }
+
+    @Test
+    void testArchetypeMatchups() {
+        final var deck1 = helper.createDeck(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("JTL-026"));
+        final var deck2 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"));
+        final var deck3 = helper.createDeck(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("SOR-028"));
+
+        helper.updateMatches(deck1, "2-0-0", List.of(
+                new Deck.Match(1, "deck2", deck2.source(), Deck.Match.Result.WIN, "2-0-0"),
+                new Deck.Match(2, "deck3", deck3.source(), Deck.Match.Result.WIN, "2-1-0")
+        ));
+        helper.updateMatches(deck2, "0-1-1", List.of(
+                new Deck.Match(1, "deck1", deck1.source(), Deck.Match.Result.LOSS, "0-2-0"),
+                new Deck.Match(2, "deck3", deck3.source(), Deck.Match.Result.DRAW, "1-1-1")
+        ));
+        final var dataset = metagameDatasetService.createFromDecks(List.of(deck1.source(), deck2.source(), deck3.source()));
+
+        final var matchups = svc.getArchetypeMatchups(dataset, 1);
+        assertThat(matchups.size()).isEqualTo(3);
+        assertThat(matchups.matchupCount()).isEqualTo(4);
+        final var aggro = DeckArchetype.valueOf(Card.Id.valueOf("JTL-009"), Card.Aspect.AGGRESSION);
+        final int aggroIndex = matchups.archetype(0).equals(aggro) ? 0 : matchups.archetype(1).equals(aggro) ? 1 : 2;
+        assertThat(matchups.decks(aggroIndex)).isEqualTo(1);
+        assertThat(matchups.getMatchups(aggroIndex)).hasSize(2);
+        assertThat(matchups.getMatchups(aggroIndex).allSatisfy(m -> m.wins() == 1 && m.matchCount() == 1)).isTrue();
+
+        // Pairs with fewer matches than the minimum sample size are not stored.
+        assertThat(svc.getArchetypeMatchups(dataset, 2).matchupCount()).isZero();
+    }
 }
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.statistics;
+
+import net.swumeta.cli.DeckService;
+import net.swumeta.cli.TestHelper;
+import net.swumeta.cli.model.Card;
+import net.swumeta.cli.model.Deck;
+import net.swumeta.cli.model.DeckArchetype;
+import net.swumeta.cli.model.Event;
+import org.eclipse.collections.api.factory.Bags;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class EventSnapshotServiceTests {
+    @Autowired
+    private EventSnapshotService svc;
+    @Autowired
+    private DeckStatisticsService deckStatisticsService;
+    @Autowired
+    private MetagameDatasetService metagameDatasetService;
+    @Autowired
+    private CardStatisticsService cardStatisticsService;
+    @Autowired
+    private TestHelper helper;
+    @Autowired
+    private DeckService deckService;
+    @Autowired
+    private SnapshotIndex snapshotIndex;
+
+    @Test
+    void testGetSnapshot() {
+        final var deck1 = helper.createDeck(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("JTL-026"),
+                Bags.immutable.ofOccurrences(Card.Id.valueOf("JTL-143"), 2), Bags.immutable.empty());
+        final var deck2 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"));
+        helper.updateMatches(deck1, "1-0-0", List.of(
+                new Deck.Match(1, "deck2", deck2.source(), Deck.Match.Result.WIN, "2-0-0")
+        ));
+        final var event = helper.createEvent("Snapshot", LocalDate.of(2025, 4, 1), List.of(deck1, deck2));
+
+        final var snapshot = svc.getSnapshot(event);
+        assertThat(snapshot.cards()).contains(new EventSnapshot.CardCount(Card.Id.valueOf("JTL-143"), 2));
+        assertThat(snapshot.matchups()).containsExactly(
+                new EventSnapshot.MatchupCount(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("SOR-008"), 1, 0, 0));
+        assertThat(snapshot.winnerLeaders()).containsExactly(new EventSnapshot.CardCount(Card.Id.valueOf("JTL-009"), 1));
+        assertThat(snapshot.top8Bases()).hasSize(2);
+
+        // The snapshot is now read from the cache.
+        assertThat(svc.getSnapshot(event)).isEqualTo(snapshot);
+    }
+
+    @Test
+    void testGetSnapshotAfterDeckChange() throws IOException {
+        final var deck1 = helper.createDeck(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("JTL-026"));
+        final var deck2 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"));
+        final var event = helper.createEvent("Deck change", LocalDate.of(2025, 4, 2), List.of(deck1, deck2));
+        final var snapshot = svc.getSnapshot(event);
+        assertThat(snapshot.matchups()).isEmpty();
+        final var snapshotFile = svc.getSnapshotFile(event);
+        assertThat(snapshotFile).exists();
+
+        // The deck is updated then fetched again: the event itself is unchanged.
+        helper.updateMatches(deck1, "1-0-0", List.of(
+                new Deck.Match(1, "deck2", deck2.source(), Deck.Match.Result.WIN, "2-0-0")
+        ));
+        final var deckFile = new File(UriComponentsBuilder.fromUri(deck1.source()).scheme("file").build().toUri());
+        Files.setLastModifiedTime(deckFile.toPath(), FileTime.fromMillis(deckFile.lastModified() + 1000));
+        deckService.delete(List.of(deck1.source()));
+
+        assertThat(svc.getSnapshotFile(event)).isNotEqualTo(snapshotFile);
+        assertThat(svc.getSnapshot(event).matchups()).containsExactly(
+                new EventSnapshot.MatchupCount(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("SOR-008"), 1, 0, 0));
+
+        // The previous snapshot is superseded.
+        assertThat(svc.getSnapshotFile(event)).exists();
+        assertThat(snapshotFile).doesNotExist();
+    }
+
+    @Test
+    void testGetSnapshotWithMissingDeck() {
+        final var deck1 = helper.createDeck(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("JTL-026"));
+        final var deck2 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"));
+        final var deck2File = new File(UriComponentsBuilder.fromUri(deck2.source()).scheme("file").build().toUri());
+        assertThat(deck2File.delete()).isTrue();
+        final var event = helper.createEvent("Missing deck", LocalDate.of(2025, 4, 3), List.of(deck1, deck2));
+
+        // The snapshot is available for this run, but it is not persisted.
+        final var snapshot = svc.getSnapshot(event);
+        assertThat(snapshot.top8Leaders()).containsExactly(new EventSnapshot.CardCount(Card.Id.valueOf("JTL-009"), 1));
+        assertThat(svc.getSnapshotFile(event)).doesNotExist();
+    }
+
+    @Test
+    void testIsEventComplete() {
+        final var deck1 = helper.createDeck(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("JTL-026"));
+        final var deck2 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"));
+        final var e = helper.createEvent("Completeness", LocalDate.of(2025, 4, 4), List.of(deck1, deck2));
+        final var event = new Event(e.name(), false, e.type(), 2, e.date(), e.location(), false, e.format(),
+                e.melee(), e.contributors(), e.links(), e.decks());
+
+        // Completeness is persisted with the snapshot key of this event.
+        assertThat(svc.isEventComplete(event)).isTrue();
+        final var snapshotKey = svc.getSnapshotKey(event);
+        assertThat(snapshotIndex.get(event)).isEqualTo(new SnapshotIndex.Entry(snapshotKey, true));
+
+        // A deck is no longer available: the event is checked again, and a failed load is not persisted.
+        final var deck2File = new File(UriComponentsBuilder.fromUri(deck2.source()).scheme("file").build().toUri());
+        assertThat(deck2File.delete()).isTrue();
+        deckService.delete(List.of(deck2.source()));
+        assertThat(svc.getSnapshotKey(event)).isNotEqualTo(snapshotKey);
+        assertThat(svc.isEventComplete(event)).isFalse();
+        assertThat(snapshotIndex.get(event)).isEqualTo(new SnapshotIndex.Entry(snapshotKey, true));
+    }
+
+    @Test
+    void testGetMetagameSnapshot() {
+        final var deck1 = helper.createDeck(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("JTL-026"));
+        final var deck2 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"));
+        final var deck3 = helper.createDeck(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("JTL-026"));
+        final var deck4 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"));
+        helper.updateMatches(deck1, "1-0-0", List.of(
+                new Deck.Match(1, "deck2", deck2.source(), Deck.Match.Result.WIN, "2-0-0")
+        ));
+        helper.updateMatches(deck2, "0-1-0", List.of(
+                new Deck.Match(1, "deck1", deck1.source(), Deck.Match.Result.LOSS, "0-2-0")
+        ));
+        helper.updateMatches(deck4, "1-0-0", List.of(
+                new Deck.Match(1, "deck3", deck3.source(), Deck.Match.Result.WIN, "2-1-0")
+        ));
+        final var event1 = helper.createEvent("Event 1", LocalDate.of(2025, 4, 1), List.of(deck1, deck2));
+        final var event2 = helper.createEvent("Event 2", LocalDate.of(2025, 4, 8), List.of(deck4, deck3));
+
+        final var metagame = svc.getMetagameSnapshot(List.of(event1, event2));
+        assertThat(metagame.archetypes().occurrencesOf(DeckArchetype.valueOf(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028")))).isEqualTo(2);
+        assertThat(metagame.winnerLeaders().toSet()).containsExactlyInAnyOrder(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("SOR-008"));
+        assertThat(metagame.top8Leaders().size()).isEqualTo(4);
+        // Archetypes played in a few matches do not have enough samples for matchups.
+        assertThat(metagame.archetypeMatchups().size()).isEqualTo(2);
+        assertThat(metagame.archetypeMatchups().matchupCount()).isZero();
+
+        // Merged snapshots give the same matchups as a dataset including all decks.
+        final var expected = deckStatisticsService.getLeaderMatchups(metagameDatasetService.create(List.of(event1, event2)));
+        assertThat(metagame.leaderMatchups()).isEqualTo(expected);
+        assertThat(metagame.leaderMatchups().sumOfInt(DeckStatisticsService.LeaderMatchup::matchCount)).isEqualTo(3);
+    }
+
+    @Test
+    void testGetMetagameSnapshotCardPairs() {
+        final var leader = Card.Id.valueOf("JTL-009");
+        final var a = Card.Id.valueOf("JTL-143");
+        final var b = Card.Id.valueOf("JTL-045");
+        final var c = Card.Id.valueOf("SOR-128");
+        final var deck1 = helper.createDeck(leader, Card.Id.valueOf("JTL-026"), Bags.immutable.of(a, b), Bags.immutable.empty());
+        final var deck2 = helper.createDeck(leader, Card.Id.valueOf("JTL-026"), Bags.immutable.of(a, c), Bags.immutable.empty());
+        final var deck3 = helper.createDeck(leader, Card.Id.valueOf("JTL-026"), Bags.immutable.of(a, b), Bags.immutable.empty());
+        final var deck4 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"), Bags.immutable.of(b, c), Bags.immutable.empty());
+        final var event1 = helper.createEvent("Pairs 1", LocalDate.of(2025, 4, 1), List.of(deck1, deck2));
+        final var event2 = helper.createEvent("Pairs 2", LocalDate.of(2025, 4, 8), List.of(deck3, deck4));
+
+        // Merged snapshots give the same pairs as a dataset including all decks.
+        final var metagame = svc.getMetagameSnapshot(List.of(event1, event2));
+        final var expected = cardStatisticsService.getCardPairs(metagameDatasetService.create(List.of(event1, event2)), leader, 10);
+        final var pairs = metagame.cardPairs().getFirst();
+        assertThat(metagame.cardPairs()).hasSize(2);
+        assertThat(pairs.leader()).isEqualTo(leader);
+        assertThat(pairs.decks()).isEqualTo(3);
+        assertThat(pairs.cards()).isEqualTo(expected.cards());
+        assertThat(pairs.pairs()).hasSameSizeAs(expected.pairs());
+        for (final var p : expected.pairs()) {
+            final var merged = pairs.pairs().detect(m -> Set.of(m.first(), m.second()).equals(Set.of(p.first(), p.second())));
+            assertThat(merged.together()).isEqualTo(p.together());
+            assertThat(pairs.lift(merged)).isEqualTo(expected.lift(p));
+        }
+    }
+
+    @Test
+    void testGetMetagameSnapshotCardUsages() {
+        final var leader = Card.Id.valueOf("JTL-009");
+        final var a = Card.Id.valueOf("JTL-143");
+        final var b = Card.Id.valueOf("JTL-045");
+        final var deck1 = helper.createDeck(leader, Card.Id.valueOf("JTL-026"),
+                Bags.immutable.ofOccurrences(a, 3), Bags.immutable.ofOccurrences(b, 1));
+        final var deck2 = helper.createDeck(leader, Card.Id.valueOf("JTL-026"),
+                Bags.immutable.of(a, a, b, b), Bags.immutable.empty());
+        final var deck3 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"),
+                Bags.immutable.ofOccurrences(b, 3), Bags.immutable.empty());
+        final var event1 = helper.createEvent("Usages 1", LocalDate.of(2025, 4, 1), List.of(deck1, deck3));
+        final var event2 = helper.createEvent("Usages 2", LocalDate.of(2025, 4, 8), List.of(deck2));
+
+        // Merged snapshots give the same usages as a dataset including all decks.
+        final var metagame = svc.getMetagameSnapshot(List.of(event1, event2));
+        final var expected = cardStatisticsService.getLeaderCardUsages(metagameDatasetService.create(List.of(event1, event2)));
+        assertThat(metagame.cardUsages()).hasSize(2);
+        final var usage = metagame.cardUsages().getFirst();
+        assertThat(usage.leader()).isEqualTo(leader);
+        assertThat(usage.decks()).isEqualTo(2);
+        // Cards included in the same number of decks are sorted by id.
+        assertThat(usage.cards()).containsExactly(
+                new CardStatisticsService.CardUsage(b, 2, 2, 1),
+                new CardStatisticsService.CardUsage(a, 2, 5, 0));
+        assertThat(usage.cards()).containsExactlyInAnyOrderElementsOf(expected.detect(u -> u.leader().equals(leader)).cards());
+    }
+
+    @Test
+    void testGetMetagameSnapshotCardResults() {
+        final var leader = Card.Id.valueOf("JTL-009");
+        final var a = Card.Id.valueOf("JTL-143");
+        final var deck1 = helper.createDeck(leader, Card.Id.valueOf("JTL-026"), Bags.immutable.of(a), Bags.immutable.empty());
+        final var deck2 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"));
+        final var deck3 = helper.createDeck(leader, Card.Id.valueOf("JTL-026"));
+        final var deck4 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"));
+        helper.updateMatches(deck1, "1-0-0", List.of(
+                new Deck.Match(1, "deck2", deck2.source(), Deck.Match.Result.WIN, "2-0-0")
+        ));
+        helper.updateMatches(deck3, "0-1-0", List.of(
+                new Deck.Match(1, "deck4", deck4.source(), Deck.Match.Result.LOSS, "1-2-0")
+        ));
+        final var event1 = helper.createEvent("Results 1", LocalDate.of(2025, 4, 1), List.of(deck1, deck2));
+        final var event2 = helper.createEvent("Results 2", LocalDate.of(2025, 4, 8), List.of(deck4, deck3));
+
+        // Merged snapshots give the same results as a dataset including all decks.
+        final var metagame = svc.getMetagameSnapshot(List.of(event1, event2));
+        final var expected = cardStatisticsService.getLeaderCardResults(metagameDatasetService.create(List.of(event1, event2)));
+        final var results = metagame.cardResults().detect(r -> r.leader().card().equals(leader));
+        assertThat(results.leader()).isEqualTo(new CardStatisticsService.CardResults(leader, 2, 1, 1, 0));
+        assertThat(results.cards()).containsExactly(new CardStatisticsService.CardResults(a, 1, 1, 0, 0));
+        assertThat(results.without(results.cards().getOnly()).winRate()).isZero();
+        assertThat(metagame.cardResults()).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    void testGetTimeline() {
+        final var deck1 = helper.createDeck(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("JTL-026"));
+        final var deck2 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"));
+        final var deck3 = helper.createDeck(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("JTL-026"));
+        final var deck4 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"));
+        helper.updateMatches(deck1, "1-0-0", List.of(
+                new Deck.Match(1, "deck2", deck2.source(), Deck.Match.Result.WIN, "2-0-0")
+        ));
+        helper.updateMatches(deck3, "0-1-0", List.of(
+                new Deck.Match(1, "deck4", deck4.source(), Deck.Match.Result.LOSS, "1-2-0")
+        ));
+        final var event1 = helper.createEvent("Timeline 1", LocalDate.of(2025, 4, 5), List.of(deck1, deck2));
+        final var event2 = helper.createEvent("Timeline 2", LocalDate.of(2025, 4, 12), List.of(deck4, deck3));
+        final var jtl = Card.Id.valueOf("JTL-009");
+        final var sor = Card.Id.valueOf("SOR-008");
+
+        final var timeline = svc.getTimeline(List.of(event2, event1));
+        assertThat(timeline.firstDate()).isEqualTo(LocalDate.of(2025, 4, 5));
+        assertThat(timeline.lastDate()).isEqualTo(LocalDate.of(2025, 4, 12));
+
+        final var all = timeline.window(LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 30));
+        assertThat(all.leaders().occurrencesOf(jtl)).isEqualTo(2);
+        assertThat(all.leaderMatchups()).isEqualTo(svc.getMetagameSnapshot(List.of(event1, event2)).leaderMatchups());
+
+        final var week1 = timeline.window(LocalDate.of(2025, 3, 31), LocalDate.of(2025, 4, 6));
+        final var week2 = timeline.window(LocalDate.of(2025, 4, 7), LocalDate.of(2025, 4, 13));
+        assertThat(week1.getMatchup(jtl, sor).wins()).isEqualTo(1);
+        assertThat(week2.getMatchup(jtl, sor).losses()).isEqualTo(1);
+        assertThat(week2.archetypes().size()).isEqualTo(2);
+        assertThat(timeline.window(LocalDate.of(2025, 4, 6), LocalDate.of(2025, 4, 11)).leaders().isEmpty()).isTrue();
+
+        final var changes = timeline.getMatchupChanges(week1, week2);
+        assertThat(changes).hasSize(1);
+        assertThat(changes.getFirst().winRateChange()).isEqualTo(-1d);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.statistics;
+
+import net.swumeta.cli.model.Card;
+import net.swumeta.cli.model.Deck;
+import net.swumeta.cli.model.Format;
+import org.eclipse.collections.api.bag.MutableBag;
+import org.eclipse.collections.api.factory.Bags;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.tuple.primitive.ObjectIntPair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare leader matchups computed with a dense result matrix against
+ * the previous implementation, based on a map of result bags.
+ * <p>
+ * Run this benchmark with <code>mvn test-compile</code>, then launch the main method
+ * of this class with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeaderMatchupsBenchmark {
+    private static final int MATCHES_PER_DECK = 8;
+
+    @Param({"500", "5000"})
+    private int deckCount;
+    @Param({"40"})
+    private int leaderCount;
+
+    private List<Deck> decks;
+    private MutableMap<URI, Deck> decksBySource;
+    private MetagameDataset dataset;
+    private DeckStatisticsService svc;
+
+    @Setup
+    public void setup() {
+        final var random = new Random(42);
+        final var leaders = new Card.Id[leaderCount];
+        for (int i = 0; i < leaderCount; i++) {
+            leaders[i] = Card.Id.valueOf("SOR-%03d".formatted(i + 1));
+        }
+        final var base = Card.Id.valueOf("SOR-026");
+
+        final var sources = new URI[deckCount];
+        final var deckLeaders = new Card.Id[deckCount];
+        for (int i = 0; i < deckCount; i++) {
+            sources[i] = URI.create("https://melee.gg/Decklist/View/" + i);
+            // Some leaders are much more played than others.
+            deckLeaders[i] = leaders[(int) (leaderCount * Math.pow(random.nextDouble(), 2))];
+        }
+
+        final var results = new Deck.Match.Result[]{Deck.Match.Result.WIN, Deck.Match.Result.LOSS, Deck.Match.Result.DRAW};
+        decks = new ArrayList<>(deckCount);
+        final var builder = new MetagameDataset.Builder();
+        for (int i = 0; i < deckCount; i++) {
+            final var matches = new ArrayList<Deck.Match>(MATCHES_PER_DECK);
+            final var opponentLeaders = new int[MATCHES_PER_DECK];
+            for (int round = 0; round < MATCHES_PER_DECK; round++) {
+                final int op = random.nextInt(deckCount);
+                matches.add(new Deck.Match(round + 1, "Player " + op, sources[op], results[random.nextInt(results.length)], "0-0-0"));
+                opponentLeaders[round] = builder.encode(deckLeaders[op]);
+            }
+            final var deck = new Deck(sources[i], "Player " + i, Format.PREMIER, deckLeaders[i], base,
+                    Bags.immutable.empty(), Bags.immutable.empty(), "4-4-0", matches);
+            decks.add(deck);
+            builder.addDeck(sources[i], MetagameDataset.NONE, 0, deck, null, false, opponentLeaders, null);
+        }
+        dataset = builder.build();
+        svc = new DeckStatisticsService(null);
+
+        // Opponent decks are resolved when building the dataset: the map used by the previous implementation
+        // is built once too, so that both implementations are compared from decks with resolved opponents.
+        decksBySource = Maps.mutable.ofInitialCapacity(deckCount);
+        decks.forEach(d -> decksBySource.put(d.source(), d));
+    }
+
+    @Benchmark
+    public void denseMatrix(Blackhole bh) {
+        bh.consume(svc.getLeaderMatchups(dataset));
+    }
+
+    @Benchmark
+    public void resultBags(Blackhole bh) {
+        bh.consume(getLeaderMatchupsWithBags());
+    }
+
+    /**
+     * Previous implementation: results are stored in a bag for each leader and opponent,
+     * then the map of bags is scanned for each leader.
+     */
+    private List<Object> getLeaderMatchupsWithBags() {
+        final var matchups = Maps.mutable.<LeaderOpponentKey, MutableBag<Deck.Match.Result>>ofInitialCapacity(32);
+        final var leaders = Bags.mutable.<Card.Id>ofInitialCapacity(32);
+        for (final var deck : decks) {
+            leaders.add(deck.leader());
+            for (final var match : deck.matches()) {
+                final var opDeck = decksBySource.get(match.opponentDeck());
+                final var key = new LeaderOpponentKey(deck.leader(), opDeck.leader());
+                matchups.getIfAbsentPut(key, () -> Bags.mutable.ofInitialCapacity(32)).add(match.result());
+            }
+        }
+
+        final var sortedLeaders = leaders.topOccurrences(leaders.sizeDistinct()).collect(ObjectIntPair::getOne);
+        final var allLeadersMatchups = new ArrayList<Object>(leaders.sizeDistinct());
+        for (final var leader : sortedLeaders) {
+            final var leaderMatchups = new ArrayList<Object>(sortedLeaders.size());
+            final var resultsByOpponent = Maps.mutable.<Card.Id, MutableBag<Deck.Match.Result>>ofInitialCapacity(leaders.size());
+            final var keys = matchups.keySet().stream().filter(k -> k.leader.equals(leader)).toList();
+            for (final var key : keys) {
+                resultsByOpponent.getIfAbsentPut(key.opponent, () -> Bags.mutable.ofInitialCapacity(32))
+                        .addAllIterable(matchups.get(key));
+            }
+            int matchCount = 0;
+            for (final var op : sortedLeaders) {
+                final var resultForOp = resultsByOpponent.getIfAbsentValue(op, Bags.mutable.empty());
+                matchCount += resultForOp.size();
+                leaderMatchups.add(resultForOp.toImmutable());
+            }
+            allLeadersMatchups.add(List.of(leader, matchCount, leaderMatchups));
+        }
+        return allLeadersMatchups;
+    }
+
+    private record LeaderOpponentKey(Card.Id leader, Card.Id opponent) {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LeaderMatchupsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
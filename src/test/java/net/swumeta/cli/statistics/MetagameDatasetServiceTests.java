@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2025 swumeta.net authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.swumeta.cli.statistics;
+
+import net.swumeta.cli.TestHelper;
+import net.swumeta.cli.model.Card;
+import net.swumeta.cli.model.Deck;
+import net.swumeta.cli.model.DeckArchetype;
+import org.eclipse.collections.api.factory.Bags;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class MetagameDatasetServiceTests {
+    @Autowired
+    private MetagameDatasetService svc;
+    @Autowired
+    private TestHelper helper;
+
+    @Test
+    void testCreate() {
+        final var deck1 = helper.createDeck(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("JTL-026"),
+                Bags.immutable.ofOccurrences(Card.Id.valueOf("JTL-143"), 2),
+                Bags.immutable.ofOccurrences(Card.Id.valueOf("JTL-045"), 3)
+        );
+        final var deck2 = helper.createDeck(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028"),
+                Bags.immutable.ofOccurrences(Card.Id.valueOf("JTL-143"), 3),
+                Bags.immutable.empty()
+        );
+        helper.updateMatches(deck1, "1-0-0", List.of(
+                new Deck.Match(1, "deck2", deck2.source(), Deck.Match.Result.WIN, "1-0-0")
+        ));
+        final var event = helper.createEvent("Test", LocalDate.of(2025, 4, 1), List.of(deck1, deck2));
+
+        final var dataset = svc.create(List.of(event));
+        assertThat(dataset.size()).isEqualTo(2);
+        assertThat(dataset.events()).containsExactly(event);
+        assertThat(dataset.source(0)).isEqualTo(deck1.source());
+        assertThat(dataset.eventCode(1)).isEqualTo(0);
+        assertThat(dataset.rank(1)).isEqualTo(2);
+        assertThat(dataset.card(dataset.leaderCode(1))).isEqualTo(Card.Id.valueOf("SOR-008"));
+        assertThat(dataset.archetype(dataset.archetypeCode(1))).isEqualTo(
+                DeckArchetype.valueOf(Card.Id.valueOf("SOR-008"), Card.Id.valueOf("SOR-028")));
+        // Leaders, bases, and cards from both decks.
+        assertThat(dataset.cardCount()).isEqualTo(6);
+
+        assertThat(dataset.matchEnd(0) - dataset.matchStart(0)).isEqualTo(1);
+        assertThat(dataset.card(dataset.matchOpponentLeader(dataset.matchStart(0)))).isEqualTo(Card.Id.valueOf("SOR-008"));
+        assertThat(dataset.matchResult(dataset.matchStart(0))).isEqualTo(Deck.Match.Result.WIN.ordinal());
+    }
+
+    @Test
+    void testCreateWithMissingDeck() {
+        final var deck = helper.createDeck(Card.Id.valueOf("JTL-009"), Card.Id.valueOf("JTL-026"));
+        final var missingDeck = URI.create("testfile:/missing-deck.yaml");
+
+        final var dataset = svc.createFromDecks(List.of(missingDeck, deck.source()));
+        assertThat(dataset.size()).isEqualTo(2);
+        assertThat(dataset.isValid(0)).isFalse();
+        assertThat(dataset.leaderCode(0)).isEqualTo(MetagameDataset.NONE);
+        assertThat(dataset.isValid(1)).isTrue();
+        assertThat(dataset.eventCode(1)).isEqualTo(MetagameDataset.NONE);
+    }
+}